@@ -0,0 +1,70 @@
+package com.base.common.config;
+
+import com.base.common.util.HttpUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 功能描述：HttpUtils 共享连接池配置
+ * <p>
+ * 根据配置调整连接池大小和响应体日志抽样规则，并在存在 MeterRegistry 时注册连接池指标
+ * （租用中、空闲、等待获取连接、最大连接数）
+ */
+@Slf4j
+@Configuration
+public class HttpClientPoolConfig {
+
+    /**
+     * 连接池最大连接数
+     */
+    @Value("${http.client.max-total:200}")
+    private int maxTotal;
+
+    /**
+     * 每个路由（目标主机）最大连接数
+     */
+    @Value("${http.client.max-per-route:50}")
+    private int maxPerRoute;
+
+    /**
+     * 每多少次请求记录一次响应体，小于等于0表示不记录
+     */
+    @Value("${http.client.body-log.sample-rate:100}")
+    private int bodyLogSampleRate;
+
+    /**
+     * 记录的响应体最大字节数
+     */
+    @Value("${http.client.body-log.max-length:512}")
+    private int bodyLogMaxLength;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        HttpUtils.configurePool(maxTotal, maxPerRoute);
+        HttpUtils.configureBodyLogging(bodyLogSampleRate, bodyLogMaxLength);
+        log.info("HTTP连接池初始化完成，最大连接数: {}, 单路由最大连接数: {}", maxTotal, maxPerRoute);
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("http.client.pool.leased", () -> HttpUtils.getPoolStats().getLeased())
+                .description("连接池中租用中的连接数")
+                .register(meterRegistry);
+        Gauge.builder("http.client.pool.available", () -> HttpUtils.getPoolStats().getAvailable())
+                .description("连接池中空闲可复用的连接数")
+                .register(meterRegistry);
+        Gauge.builder("http.client.pool.pending", () -> HttpUtils.getPoolStats().getPending())
+                .description("等待获取连接的请求数")
+                .register(meterRegistry);
+        Gauge.builder("http.client.pool.max", () -> HttpUtils.getPoolStats().getMax())
+                .description("连接池最大连接数")
+                .register(meterRegistry);
+    }
+}
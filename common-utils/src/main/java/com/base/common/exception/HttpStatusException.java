@@ -0,0 +1,24 @@
+package com.base.common.exception;
+
+import java.io.IOException;
+
+/**
+ * HTTP 响应状态码异常：服务端返回 4xx/5xx 时抛出，携带状态码供调用方区分处理（如 404 未找到、429 限流、5xx 可重试）
+ */
+public class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * HTTP 状态码
+     */
+    private final int statusCode;
+
+    public HttpStatusException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -1,29 +1,161 @@
 package com.base.common.util;
 
+import com.base.common.exception.HttpStatusException;
 import com.base.common.exception.MyException;
 import lombok.extern.slf4j.Slf4j;
+import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
 import java.io.*;
 import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
-import java.util.zip.GZIPInputStream;
 
 @Slf4j
 public class HttpUtils {
 
+    /**
+     * 默认连接超时（毫秒）
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 30000;
+
+    /**
+     * 默认读取超时（毫秒）
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+    /**
+     * 空闲连接最长保活时间（秒），服务端未返回 Keep-Alive 超时时使用
+     */
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * 共享连接池：复用 TCP/TLS 连接，按路由（目标主机）限制连接数
+     */
+    private static final PoolingHttpClientConnectionManager CONNECTION_MANAGER;
+
+    /**
+     * 共享 HTTP 客户端（线程安全）
+     */
+    private static final CloseableHttpClient HTTP_CLIENT;
+
+    /**
+     * 请求观察者：请求完成或失败时回调，用于记录耗时、状态码、响应字节数等指标
+     */
+    public interface RequestObserver {
+
+        /**
+         * 请求完成且响应解析成功
+         *
+         * @param statusCode    HTTP 状态码
+         * @param responseBytes 读取的响应体字节数（已解压）
+         * @param responseNanos 发送请求到收到响应头的耗时（纳秒）
+         * @param parseNanos    读取并解析响应体的耗时（纳秒）
+         */
+        void onComplete(int statusCode, long responseBytes, long responseNanos, long parseNanos);
+
+        /**
+         * 请求失败（连接失败、超时或解析失败）
+         *
+         * @param statusCode   HTTP 状态码，未收到响应时为 0
+         * @param elapsedNanos 请求开始到失败的耗时（纳秒）
+         * @param error        异常
+         */
+        void onError(int statusCode, long elapsedNanos, Exception error);
+    }
+
+    /**
+     * 响应体日志计数器（用于抽样）
+     */
+    private static final AtomicLong BODY_LOG_COUNTER = new AtomicLong();
+
+    /**
+     * 每多少次请求记录一次响应体
+     */
+    private static volatile int bodyLogSampleRate = 100;
+
+    /**
+     * 记录的响应体最大字节数
+     */
+    private static volatile int bodyLogMaxLength = 512;
+
+    static {
+        CONNECTION_MANAGER = new PoolingHttpClientConnectionManager(5, TimeUnit.MINUTES);
+        CONNECTION_MANAGER.setMaxTotal(200);
+        CONNECTION_MANAGER.setDefaultMaxPerRoute(50);
+        // 连接空闲超过2秒后复用前先校验，避免拿到已被服务端关闭的连接
+        CONNECTION_MANAGER.setValidateAfterInactivity(2000);
+
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : TimeUnit.SECONDS.toMillis(DEFAULT_KEEP_ALIVE_SECONDS);
+        };
+
+        HTTP_CLIENT = HttpClients.custom()
+                .setConnectionManager(CONNECTION_MANAGER)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS)
+                .setUserAgent("Mozilla/5.0 (Java)")
+                .build();
+    }
+
+    /**
+     * 设置连接池大小
+     *
+     * @param maxTotal    连接池最大连接数
+     * @param maxPerRoute 每个路由（目标主机）默认最大连接数
+     */
+    public static void configurePool(int maxTotal, int maxPerRoute) {
+        CONNECTION_MANAGER.setMaxTotal(maxTotal);
+        CONNECTION_MANAGER.setDefaultMaxPerRoute(maxPerRoute);
+    }
+
+    /**
+     * 设置指定路由的最大连接数
+     *
+     * @param url         目标地址（取其协议、主机和端口）
+     * @param maxPerRoute 该路由最大连接数
+     */
+    public static void setMaxPerRoute(String url, int maxPerRoute) {
+        URI uri = URI.create(url);
+        HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+        CONNECTION_MANAGER.setMaxPerRoute(new HttpRoute(host, null, "https".equalsIgnoreCase(uri.getScheme())), maxPerRoute);
+    }
+
+    /**
+     * 获取连接池整体统计信息（租用中、空闲、等待、上限）
+     *
+     * @return 连接池统计
+     */
+    public static PoolStats getPoolStats() {
+        return CONNECTION_MANAGER.getTotalStats();
+    }
+
     /**
      * 发送 GET 请求（支持请求头和URL参数）
      *
@@ -34,108 +166,292 @@ public class HttpUtils {
      * @throws IOException IO异常
      */
     public static String get(String url, Map<String, String> params, Map<String, String> headers) throws IOException {
+        return get(url, params, headers, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * 发送 GET 请求（支持请求头、URL参数和单次请求超时）
+     * <p>
+     * 使用共享连接池发送请求，连接在响应读取完成后归还连接池复用；gzip/deflate 响应由客户端自动解压
+     *
+     * @param url            请求地址
+     * @param params         URL参数 Map
+     * @param headers        请求头 Map
+     * @param connectTimeout 连接超时（毫秒），同时作为从连接池获取连接的超时
+     * @param readTimeout    读取超时（毫秒）
+     * @return 响应内容
+     * @throws IOException IO异常
+     */
+    public static String get(String url, Map<String, String> params, Map<String, String> headers,
+                             int connectTimeout, int readTimeout) throws IOException {
         // 构建带参数的URL，参数做URL编码
         if (params != null && !params.isEmpty()) {
             String paramsStr = buildUrlParams(params);
             url += (url.contains("?") ? "&" : "?") + paramsStr;
         }
-        HttpURLConnection conn = null;
-        try {
-            URL myUrl = new URL(url);
-            conn = (HttpURLConnection) myUrl.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(30000); // 连接超时 30秒
-            conn.setReadTimeout(30000);    // 读取超时 30秒
-
-            // 设置默认请求头
-            conn.setRequestProperty("Accept", "application/json, */*;q=0.8");
-            conn.setRequestProperty("Accept-Charset", "UTF-8");
-            conn.setRequestProperty("Accept-Encoding", "gzip, deflate"); // 支持Gzip压缩
-            conn.setRequestProperty("User-Agent", "Mozilla/5.0 (Java)");
-
-            // 设置自定义请求头（会覆盖同名的默认请求头）
-            if (headers != null && !headers.isEmpty()) {
-                for (Map.Entry<String, String> entry : headers.entrySet()) {
-                    conn.setRequestProperty(entry.getKey(), entry.getValue());
-                }
-            }
+        HttpGet httpGet = buildGet(url, headers, connectTimeout, readTimeout);
+        try (CloseableHttpResponse response = HTTP_CLIENT.execute(httpGet)) {
             // 获取响应码
-            int responseCode = conn.getResponseCode();
+            int responseCode = response.getStatusLine().getStatusCode();
             log.info("GET请求响应码: {}, URL: {}", responseCode, url);
-            // 正确处理输入流/错误流
-            InputStream inputStream = null;
-            if (responseCode >= 200 && responseCode < 300) {
-                inputStream = conn.getInputStream();
-            } else {
-                inputStream = conn.getErrorStream();
-            }
-            // 无任何流可读取，直接返回空
-            if (inputStream == null) {
+
+            HttpEntity entity = response.getEntity();
+            // 无任何响应体可读取，直接返回空
+            if (entity == null) {
                 log.warn("GET请求无响应流，URL: {}", url);
                 return "";
             }
-            // 检查响应是否使用Gzip压缩
-            String contentEncoding = conn.getContentEncoding();
-            boolean isGzip = contentEncoding != null && contentEncoding.toLowerCase().contains("gzip");
-            log.info("Content-Encoding: {}, 是否Gzip压缩: {}", contentEncoding, isGzip);
-
-            // try-with-resources 自动关闭流，零泄漏
-            try (InputStream rawStream = inputStream;
-                 InputStream decompressedStream = isGzip ? new GZIPInputStream(rawStream) : rawStream;
-                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = decompressedStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
-                byte[] responseBytes = outputStream.toByteArray();
-
-                // JSON响应强制使用UTF-8编码
-                String charset = StandardCharsets.UTF_8.name();
-                String contentType = conn.getContentType();
-                log.info("Content-Type: {}", contentType);
-
-                // 如果Content-Type明确指定了charset，则使用指定的编码（但JSON通常都是UTF-8）
-                if (contentType != null && contentType.contains("charset")) {
-                    String[] parts = contentType.split(";");
-                    for (String part : parts) {
-                        part = part.trim();
-                        if (part.toLowerCase().startsWith("charset=")) {
-                            String detectedCharset = part.substring("charset=".length()).trim();
-                            // 移除可能的引号
-                            if (detectedCharset.startsWith("\"") && detectedCharset.endsWith("\"")) {
-                                detectedCharset = detectedCharset.substring(1, detectedCharset.length() - 1);
-                            }
-                            // 对于JSON，即使检测到其他编码，也优先使用UTF-8
-                            if (contentType.contains("application/json")) {
-                                charset = StandardCharsets.UTF_8.name();
-                                log.info("JSON响应，强制使用UTF-8编码");
-                            } else {
-                                charset = detectedCharset;
-                            }
-                            break;
-                        }
-                    }
+            // 读取完整响应体（读取完成后连接自动归还连接池）
+            byte[] responseBytes = EntityUtils.toByteArray(entity);
+            String charset = resolveCharset(entity.getContentType() != null ? entity.getContentType().getValue() : null);
+            log.info("使用字符编码: {}, 响应字节长度: {}", charset, responseBytes.length);
+
+            String result = new String(responseBytes, charset);
+            log.info("GET请求完成，响应字符串长度: {} 字符", result.length());
+            return result;
+
+        } catch (Exception e) {
+            log.error("GET请求失败，URL: {}", url, e);
+            throw new IOException("GET请求失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 发送 GET 请求并将响应体直接解析为指定类型
+     *
+     * @param url          请求地址
+     * @param params       URL参数 Map
+     * @param headers      请求头 Map
+     * @param responseType 响应类型
+     * @return 解析后的响应对象，无响应体时返回 null
+     * @throws IOException IO异常或解析失败
+     */
+    public static <T> T get(String url, Map<String, String> params, Map<String, String> headers,
+                            Class<T> responseType) throws IOException {
+        return get(url, params, headers, responseType, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * 发送 GET 请求并将响应体直接解析为指定类型（支持单次请求超时）
+     * <p>
+     * 响应体不再复制为字节数组和字符串，而是从（已解压的）输入流直接解析；
+     * 只保留响应开头的少量字节，用于抽样日志和解析失败时的排查
+     *
+     * @param url            请求地址
+     * @param params         URL参数 Map
+     * @param headers        请求头 Map
+     * @param responseType   响应类型
+     * @param connectTimeout 连接超时（毫秒）
+     * @param readTimeout    读取超时（毫秒）
+     * @return 解析后的响应对象，无响应体时返回 null
+     * @throws IOException IO异常或解析失败
+     */
+    public static <T> T get(String url, Map<String, String> params, Map<String, String> headers,
+                            Class<T> responseType, int connectTimeout, int readTimeout) throws IOException {
+        return get(url, params, headers, responseType, connectTimeout, readTimeout, null);
+    }
+
+    /**
+     * 发送 GET 请求并将响应体直接解析为指定类型（支持单次请求超时和请求观察者）
+     *
+     * @param url            请求地址
+     * @param params         URL参数 Map
+     * @param headers        请求头 Map
+     * @param responseType   响应类型
+     * @param connectTimeout 连接超时（毫秒）
+     * @param readTimeout    读取超时（毫秒）
+     * @param observer       请求观察者，可为 null
+     * @return 解析后的响应对象，无响应体时返回 null
+     * @throws HttpStatusException 响应状态码大于等于 400（不解析响应体）
+     * @throws IOException         IO异常或解析失败
+     */
+    public static <T> T get(String url, Map<String, String> params, Map<String, String> headers,
+                            Class<T> responseType, int connectTimeout, int readTimeout,
+                            RequestObserver observer) throws IOException {
+        if (params != null && !params.isEmpty()) {
+            String paramsStr = buildUrlParams(params);
+            url += (url.contains("?") ? "&" : "?") + paramsStr;
+        }
+        HttpGet httpGet = buildGet(url, headers, connectTimeout, readTimeout);
+        HeadCapturingInputStream body = null;
+        int responseCode = 0;
+        long startNanos = System.nanoTime();
+        try (CloseableHttpResponse response = HTTP_CLIENT.execute(httpGet)) {
+            long responseNanos = System.nanoTime() - startNanos;
+            responseCode = response.getStatusLine().getStatusCode();
+            log.debug("GET请求响应码: {}, URL: {}", responseCode, url);
+
+            HttpEntity entity = response.getEntity();
+            if (responseCode >= 400) {
+                // 错误响应不解析，读完响应体使连接可以归还连接池复用
+                EntityUtils.consume(entity);
+                throw new HttpStatusException(responseCode, "GET请求响应码异常: " + responseCode);
+            }
+            if (entity == null) {
+                log.warn("GET请求无响应流，URL: {}", url);
+                if (observer != null) {
+                    observer.onComplete(responseCode, 0, responseNanos, 0);
                 }
+                return null;
+            }
+            Charset charset = Charset.forName(resolveCharset(
+                    entity.getContentType() != null ? entity.getContentType().getValue() : null));
+            long parseStartNanos = System.nanoTime();
+            body = new HeadCapturingInputStream(entity.getContent(), bodyLogMaxLength);
+            T result = JSON.parseObject(body, charset, responseType);
+            long parseNanos = System.nanoTime() - parseStartNanos;
+            // 读完剩余内容，保证连接可以归还连接池复用
+            EntityUtils.consume(entity);
+            if (observer != null) {
+                observer.onComplete(responseCode, body.count(), responseNanos, parseNanos);
+            }
 
-                log.info("使用字符编码: {}, 响应字节长度: {} (压缩前: {})", 
-                        charset, responseBytes.length, isGzip ? "已解压" : "未压缩");
-                
-                // 最终转换，使用UTF-8编码（JSON标准编码）
-                String result = new String(responseBytes, charset);
-                log.info("GET请求完成，响应字符串长度: {} 字符", result.length());
-                return result;
+            if (shouldLogBody()) {
+                log.info("GET请求响应（抽样，最多 {} 字节）: {}, URL: {}", bodyLogMaxLength, body.head(charset), url);
             }
+            return result;
 
+        } catch (HttpStatusException e) {
+            log.warn("GET请求失败，响应码: {}, URL: {}", responseCode, url);
+            if (observer != null) {
+                observer.onError(responseCode, System.nanoTime() - startNanos, e);
+            }
+            throw e;
         } catch (Exception e) {
-            log.error("GET请求失败，URL: {}", url, e);
+            String head = body != null ? body.head(StandardCharsets.UTF_8) : "";
+            log.error("GET请求失败，URL: {}, 响应开头: {}", url, head, e);
+            if (observer != null) {
+                observer.onError(responseCode, System.nanoTime() - startNanos, e);
+            }
             throw new IOException("GET请求失败: " + e.getMessage(), e);
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
+        }
+    }
+
+    /**
+     * 设置响应体日志的抽样规则
+     *
+     * @param sampleRate 每多少次请求记录一次响应体，小于等于0表示不记录
+     * @param maxLength  记录的响应体最大字节数
+     */
+    public static void configureBodyLogging(int sampleRate, int maxLength) {
+        bodyLogSampleRate = sampleRate;
+        bodyLogMaxLength = Math.max(0, maxLength);
+    }
+
+    private static boolean shouldLogBody() {
+        int sampleRate = bodyLogSampleRate;
+        return sampleRate > 0 && BODY_LOG_COUNTER.getAndIncrement() % sampleRate == 0;
+    }
+
+    /**
+     * 记录流开头若干字节的输入流，用于日志，不缓存完整响应体；同时统计读取的字节数
+     */
+    private static class HeadCapturingInputStream extends FilterInputStream {
+
+        private final byte[] head;
+
+        private int headLength;
+
+        private long count;
+
+        HeadCapturingInputStream(InputStream in, int maxLength) {
+            super(in);
+            this.head = new byte[maxLength];
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+                if (headLength < head.length) {
+                    head[headLength++] = (byte) b;
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            if (n > 0 && headLength < head.length) {
+                int copy = Math.min(n, head.length - headLength);
+                System.arraycopy(b, off, head, headLength, copy);
+                headLength += copy;
+            }
+            return n;
+        }
+
+        String head(Charset charset) {
+            return new String(head, 0, headLength, charset);
+        }
+
+        long count() {
+            return count;
+        }
+    }
+
+    /**
+     * 构建 GET 请求（默认请求头 + 自定义请求头 + 单次请求超时）
+     */
+    private static HttpGet buildGet(String url, Map<String, String> headers, int connectTimeout, int readTimeout) {
+        HttpGet httpGet = new HttpGet(url);
+        httpGet.setConfig(RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .build());
+
+        // 设置默认请求头（Accept-Encoding 由客户端自动添加并负责解压）
+        httpGet.setHeader("Accept", "application/json, */*;q=0.8");
+        httpGet.setHeader("Accept-Charset", "UTF-8");
+
+        // 设置自定义请求头（会覆盖同名的默认请求头）
+        if (headers != null && !headers.isEmpty()) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                httpGet.setHeader(entry.getKey(), entry.getValue());
+            }
+        }
+        return httpGet;
+    }
+
+    /**
+     * 根据 Content-Type 解析字符编码
+     * <p>
+     * JSON 响应强制使用 UTF-8；其他类型优先使用 Content-Type 中声明的编码，未声明时使用 UTF-8
+     *
+     * @param contentType Content-Type 响应头
+     * @return 字符编码名称
+     */
+    private static String resolveCharset(String contentType) {
+        String charset = StandardCharsets.UTF_8.name();
+        log.debug("Content-Type: {}", contentType);
+        if (contentType == null || !contentType.contains("charset")) {
+            return charset;
+        }
+        String[] parts = contentType.split(";");
+        for (String part : parts) {
+            part = part.trim();
+            if (part.toLowerCase().startsWith("charset=")) {
+                String detectedCharset = part.substring("charset=".length()).trim();
+                // 移除可能的引号
+                if (detectedCharset.startsWith("\"") && detectedCharset.endsWith("\"")) {
+                    detectedCharset = detectedCharset.substring(1, detectedCharset.length() - 1);
+                }
+                // 对于JSON，即使检测到其他编码，也优先使用UTF-8
+                if (contentType.contains("application/json")) {
+                    charset = StandardCharsets.UTF_8.name();
+                    log.debug("JSON响应，强制使用UTF-8编码");
+                } else {
+                    charset = detectedCharset;
+                }
+                break;
             }
         }
+        return charset;
     }
 
     public static String buildUrlParams(Map<String, String> params) {
@@ -0,0 +1,12 @@
+package com.base.weather.bench;
+
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * 写入基准使用的 Spring 容器（与 WeatherRestApplication 扫描范围一致，不启用定时任务和 Web 服务）
+ */
+@SpringBootApplication(scanBasePackages = {"com.base"})
+@MapperScan(basePackages = {"com.base.*.mapper"})
+public class BenchApplication {
+}
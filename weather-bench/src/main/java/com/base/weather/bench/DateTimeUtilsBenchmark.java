@@ -0,0 +1,57 @@
+package com.base.weather.bench;
+
+import com.base.weather.util.DateTimeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间解析基准：策略采集时间（多种格式依次尝试）和预报时间（UTC/带时区偏移）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateTimeUtilsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DateTimeInput {
+
+        /**
+         * 策略采集时间：第一个格式命中、需要尝试多个格式、只有日期
+         */
+        @Param({"2026-10-18 09:00:00", "2026/10/18 09:00:00", "2026-10-18"})
+        public String dateTime;
+    }
+
+    @State(Scope.Benchmark)
+    public static class ForecastTimeInput {
+
+        /**
+         * 预报时间：带时区偏移（逐小时天气预报）、UTC（空气质量小时预报）
+         */
+        @Param({"2026-10-18T09:00+08:00", "2026-10-18T01:00Z"})
+        public String forecastTime;
+    }
+
+    @Benchmark
+    public LocalDateTime parseDateTime(DateTimeInput input) {
+        return DateTimeUtils.parseDateTime(input.dateTime);
+    }
+
+    @Benchmark
+    public LocalDateTime parseForecastTime(ForecastTimeInput input) {
+        return DateTimeUtils.parseForecastTime(input.forecastTime);
+    }
+}
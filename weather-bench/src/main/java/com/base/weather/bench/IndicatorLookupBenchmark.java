@@ -0,0 +1,41 @@
+package com.base.weather.bench;
+
+import com.base.weather.constant.IndicatorEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标查找基准：按策略采集内容中的指标名称查找 IndicatorEnum（全部命中 / 未知名称）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndicatorLookupBenchmark {
+
+    private final String[] names = Payloads.ALL_INDICATORS.split(",");
+
+    @Benchmark
+    public void getByNameAll(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(IndicatorEnum.getByName(name));
+        }
+    }
+
+    @Benchmark
+    public IndicatorEnum getByNameMissing() {
+        return IndicatorEnum.getByName("Unknown_indicator");
+    }
+}
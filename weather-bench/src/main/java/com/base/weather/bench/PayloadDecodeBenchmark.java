@@ -0,0 +1,73 @@
+package com.base.weather.bench;
+
+import com.alibaba.fastjson.JSON;
+import com.base.weather.entity.dto.HourlyAirQualityResponse;
+import com.base.weather.entity.dto.HourlyForecastWeatherResponse;
+import com.base.weather.entity.dto.RealTimeAirQualityResponse;
+import com.base.weather.entity.dto.RealTimeWeatherResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应解析基准：fastjson 解析和风天气响应样本
+ * <p>
+ * fromStream 与 HttpUtils 的解析方式一致（从输入流直接解析），fromString 为先读成字符串再解析的旧方式
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadDecodeBenchmark {
+
+    @Param({Payloads.HOURLY_FORECAST, Payloads.HOURLY_AIR_QUALITY, Payloads.REALTIME_WEATHER, Payloads.REALTIME_AIR_QUALITY})
+    public String payload;
+
+    private byte[] bytes;
+
+    private String text;
+
+    private Class<?> responseType;
+
+    @Setup
+    public void setup() {
+        bytes = Payloads.load(payload);
+        text = new String(bytes, StandardCharsets.UTF_8);
+        switch (payload) {
+            case Payloads.HOURLY_FORECAST -> responseType = HourlyForecastWeatherResponse.class;
+            case Payloads.HOURLY_AIR_QUALITY -> responseType = HourlyAirQualityResponse.class;
+            case Payloads.REALTIME_WEATHER -> responseType = RealTimeWeatherResponse.class;
+            default -> responseType = RealTimeAirQualityResponse.class;
+        }
+    }
+
+    @Benchmark
+    public Object fromStream() throws IOException {
+        return JSON.parseObject(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, responseType);
+    }
+
+    @Benchmark
+    public Object fromString() {
+        return JSON.parseObject(new String(bytes, StandardCharsets.UTF_8), responseType);
+    }
+
+    @Benchmark
+    public Object fromDecodedString() {
+        return JSON.parseObject(text, responseType);
+    }
+}
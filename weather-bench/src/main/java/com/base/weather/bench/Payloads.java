@@ -0,0 +1,70 @@
+package com.base.weather.bench;
+
+import com.base.weather.entity.WeatherStrategy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 基准测试使用的和风天气响应样本（src/main/resources/payloads）
+ * <p>
+ * 样本结构与线上响应一致：逐小时天气预报 168 小时、空气质量小时预报 24 小时、实时天气、实时空气质量
+ */
+public final class Payloads {
+
+    public static final String HOURLY_FORECAST = "hourly_forecast_168h.json";
+
+    public static final String HOURLY_AIR_QUALITY = "hourly_air_quality_24h.json";
+
+    public static final String REALTIME_WEATHER = "realtime_weather.json";
+
+    public static final String REALTIME_AIR_QUALITY = "realtime_air_quality.json";
+
+    /**
+     * 采集全部指标的策略内容
+     */
+    public static final String ALL_INDICATORS = "Temperature,Perceived_temperature,Wind_speed,Wind_direction,"
+            + "Relative_humidify,Atmospheric_pressure,Precipitation,Visibility,Dew_point_temperature,Cloud_cover,"
+            + "PM2p5,PM10,CO,SO2,O3,NO2";
+
+    private Payloads() {
+    }
+
+    /**
+     * 读取响应样本
+     *
+     * @param name 样本文件名
+     * @return 响应字节
+     */
+    public static byte[] load(String name) {
+        try (InputStream in = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("响应样本不存在: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 构造采集全部指标的策略
+     *
+     * @param id 策略ID
+     * @return 策略
+     */
+    public static WeatherStrategy strategy(String id) {
+        WeatherStrategy strategy = new WeatherStrategy();
+        strategy.setId(id);
+        strategy.setDemandName("bench");
+        strategy.setCityName("北京");
+        strategy.setTargetLatitude(39.92);
+        strategy.setTargetLongitude(116.41);
+        strategy.setCollectContent(ALL_INDICATORS);
+        strategy.setCollectStart("2026-10-18 00:00:00");
+        strategy.setCollectEnd("2026-10-25 23:59:59");
+        strategy.setTargetPriority(1);
+        return strategy;
+    }
+}
@@ -0,0 +1,111 @@
+package com.base.weather.bench;
+
+import com.alibaba.fastjson.JSON;
+import com.base.weather.entity.WeatherData;
+import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.entity.dto.HourlyAirQualityResponse;
+import com.base.weather.entity.dto.HourlyForecastWeatherResponse;
+import com.base.weather.entity.vo.WeatherDataVo;
+import com.base.weather.util.DateTimeUtils;
+import com.base.weather.util.WeatherDataExtractUtils;
+import com.base.weather.util.WeatherDataVoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标提取和 VO 转换基准：一次完整预报响应（168 小时天气 + 24 小时空气质量，全部指标）
+ * <p>
+ * 调用 WeatherDataServiceImpl 使用的 WeatherDataExtractUtils、WeatherDataVoUtils（不依赖 Spring 容器）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeatherDataExtractBenchmark {
+
+    private WeatherStrategy strategy;
+
+    private String[] indicatorNames;
+
+    private List<HourlyForecastWeatherResponse.Hourly> hourlyList;
+
+    private List<LocalDateTime> hourlyTimes;
+
+    private List<HourlyAirQualityResponse.Hour> airHours;
+
+    private List<LocalDateTime> airTimes;
+
+    private List<WeatherData> extracted;
+
+    @Setup
+    public void setup() {
+        strategy = Payloads.strategy("bench-extract");
+        indicatorNames = strategy.getCollectContent().split(",");
+
+        HourlyForecastWeatherResponse forecast = JSON.parseObject(
+                Payloads.load(Payloads.HOURLY_FORECAST), HourlyForecastWeatherResponse.class);
+        hourlyList = forecast.getHourly();
+        hourlyTimes = new ArrayList<>(hourlyList.size());
+        for (HourlyForecastWeatherResponse.Hourly hourly : hourlyList) {
+            hourlyTimes.add(DateTimeUtils.parseForecastTime(hourly.getFxTime()));
+        }
+
+        HourlyAirQualityResponse airQuality = JSON.parseObject(
+                Payloads.load(Payloads.HOURLY_AIR_QUALITY), HourlyAirQualityResponse.class);
+        airHours = airQuality.getHours();
+        airTimes = new ArrayList<>(airHours.size());
+        for (HourlyAirQualityResponse.Hour hour : airHours) {
+            airTimes.add(DateTimeUtils.parseForecastTime(hour.getForecastTime()));
+        }
+
+        extracted = new ArrayList<>();
+        extractWeather(extracted);
+        extractAirQuality(extracted);
+    }
+
+    @Benchmark
+    public List<WeatherData> extractHourlyWeatherData() {
+        List<WeatherData> result = new ArrayList<>();
+        extractWeather(result);
+        return result;
+    }
+
+    @Benchmark
+    public List<WeatherData> extractHourlyAirQualityData() {
+        List<WeatherData> result = new ArrayList<>();
+        extractAirQuality(result);
+        return result;
+    }
+
+    @Benchmark
+    public List<WeatherDataVo> convertToWeatherDataVoList() {
+        return WeatherDataVoUtils.convertToWeatherDataVoList(extracted);
+    }
+
+    private void extractWeather(List<WeatherData> result) {
+        for (int i = 0; i < hourlyList.size(); i++) {
+            WeatherDataExtractUtils.extractHourlyWeatherData(strategy, hourlyList.get(i), hourlyTimes.get(i), indicatorNames, result);
+        }
+    }
+
+    private void extractAirQuality(List<WeatherData> result) {
+        for (int i = 0; i < airHours.size(); i++) {
+            WeatherDataExtractUtils.extractHourlyAirQualityData(strategy, airHours.get(i), airTimes.get(i), indicatorNames, result);
+        }
+    }
+}
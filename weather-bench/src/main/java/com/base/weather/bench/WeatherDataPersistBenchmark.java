@@ -0,0 +1,135 @@
+package com.base.weather.bench;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.entity.WeatherData;
+import com.base.weather.mapper.WeatherDataMapper;
+import com.base.weather.service.WeatherDataWriter;
+import com.base.weather.service.impl.WeatherDataServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 天气数据写入基准：saveBatch / 多行 INSERT ON CONFLICT / COPY
+ * <p>
+ * 需要本地 PostgreSQL（已建 weather_data 表），连接通过环境变量 SPRING_DATASOURCE_URL、
+ * SPRING_DATASOURCE_USERNAME、SPRING_DATASOURCE_PASSWORD 配置，默认不随其他基准运行。
+ * 每次调用写入新的策略ID（全部为插入），每轮迭代结束后删除基准数据
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WeatherDataPersistBenchmark {
+
+    private static final String STRATEGY_PREFIX = "bench-";
+
+    @Param({"saveBatch", "insertUpsert", "copyUpsert"})
+    public String writer;
+
+    @Param({"1000", "10000"})
+    public int rowCount;
+
+    private ConfigurableApplicationContext context;
+
+    private WeatherDataServiceImpl weatherDataService;
+
+    private WeatherDataWriter weatherDataWriter;
+
+    private WeatherDataMapper weatherDataMapper;
+
+    private List<WeatherData> rows;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(BenchApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        weatherDataService = context.getBean(WeatherDataServiceImpl.class);
+        weatherDataWriter = context.getBean(WeatherDataWriter.class);
+        weatherDataMapper = context.getBean(WeatherDataMapper.class);
+        cleanUp();
+    }
+
+    @Setup(Level.Invocation)
+    public void buildRows() {
+        rows = buildRows(rowCount);
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanUp() {
+        weatherDataMapper.delete(new LambdaQueryWrapper<WeatherData>()
+                .likeRight(WeatherData::getStrategyId, STRATEGY_PREFIX));
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        if (context != null) {
+            cleanUp();
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Object persist() {
+        return switch (writer) {
+            case "saveBatch" -> weatherDataService.saveBatch(rows);
+            case "insertUpsert" -> weatherDataWriter.insertUpsert(rows);
+            default -> weatherDataWriter.copyUpsert(rows);
+        };
+    }
+
+    /**
+     * 构造写入数据：每个策略 168 小时 × 全部指标
+     */
+    private static List<WeatherData> buildRows(int rowCount) {
+        List<WeatherData> rows = new ArrayList<>(rowCount);
+        IndicatorEnum[] indicators = IndicatorEnum.values();
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime createTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        int perStrategy = 168 * indicators.length;
+        String strategyId = null;
+        for (int i = 0; i < rowCount; i++) {
+            if (i % perStrategy == 0) {
+                strategyId = STRATEGY_PREFIX + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+            }
+            int offset = i % perStrategy;
+            WeatherData data = new WeatherData();
+            data.setStrategyId(strategyId);
+            data.setCityName("北京");
+            data.setLatitude(39.92);
+            data.setLongitude(116.41);
+            data.setCollectTime(start.plusHours(offset / indicators.length));
+            data.setIndicatorName(indicators[offset % indicators.length].name());
+            data.setIndicatorValue(String.valueOf(i % 100));
+            data.setIndicatorUnit("℃");
+            data.setCreateTime(createTime);
+            data.setDelFlag(0);
+            rows.add(data);
+        }
+        return rows;
+    }
+}
@@ -1,17 +1,28 @@
 package com.base.weather.controller;
 
+import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.constant.ResolutionEnum;
 import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.entity.req.WeatherDataBatchQueryReq;
+import com.base.weather.entity.req.WeatherDataExportReq;
 import com.base.weather.entity.req.WeatherDataQueryReq;
+import com.base.weather.entity.vo.WeatherDataRollupVo;
 import com.base.weather.entity.vo.WeatherDataVo;
+import com.base.weather.service.WeatherDataExporter;
 import com.base.weather.service.WeatherDataService;
 import com.base.weather.service.WeatherStrategyService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 天气数据 Controller
@@ -21,18 +32,27 @@ import java.util.List;
 @RequestMapping("/api/weather-data")
 public class WeatherDataController {
 
+    /**
+     * 批量查询单次最多的策略数量
+     */
+    private static final int MAX_BATCH_STRATEGIES = 500;
+
     @Resource
     private WeatherDataService weatherDataService;
 
     @Resource
     private WeatherStrategyService weatherStrategyService;
 
+    @Resource
+    private WeatherDataExporter weatherDataExporter;
+
     /**
      * 查询天气数据
      * <p>
      * 根据策略ID查询天气数据（包括历史数据和预报数据），支持按指标名称、时间范围等条件筛选
      * 如果指定了indicatorName，则查询特定指标的数据
      * 如果未指定indicatorName，则查询该策略下所有指标的数据
+     * 如果指定了resolution（hour/day/week/auto），则按时间桶返回汇总值；指定了maxPoints时按 LTTB 降采样
      *
      * @param queryReq 查询请求对象，包含策略ID、指标名称、时间范围等
      * @return 天气数据VO列表
@@ -40,7 +60,7 @@ public class WeatherDataController {
     @PostMapping("/weather-data")
     public ResponseEntity<List<WeatherDataVo>> queryWeatherData(@RequestBody WeatherDataQueryReq queryReq) {
         log.info("查询天气数据，请求参数: {}", queryReq);
-        if (!StringUtils.hasText(queryReq.getStrategyId())) {
+        if (!StringUtils.hasText(queryReq.getStrategyId()) || !isValidResolution(queryReq.getResolution())) {
             return ResponseEntity.badRequest().build();
         }
         
@@ -74,6 +94,73 @@ public class WeatherDataController {
         return ResponseEntity.ok(list);
     }
 
+    /**
+     * 查询天气数据汇总
+     * <p>
+     * 按时间粒度（hour/day/week/auto，默认 day）返回每个时间桶、每个指标的最小值、最大值、平均值和最后一个值
+     *
+     * @param queryReq 查询请求对象，包含策略ID、指标名称、时间范围、时间粒度等
+     * @return 汇总数据列表
+     */
+    @PostMapping("/rollup")
+    public ResponseEntity<List<WeatherDataRollupVo>> queryWeatherRollup(@RequestBody WeatherDataQueryReq queryReq) {
+        log.info("查询天气数据汇总，请求参数: {}", queryReq);
+        if (!StringUtils.hasText(queryReq.getStrategyId()) || !isValidResolution(queryReq.getResolution())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(weatherDataService.queryWeatherRollup(queryReq));
+    }
+
+    /**
+     * 导出天气数据
+     * <p>
+     * 以数据库游标逐行读取多个策略的历史数据，直接以分块响应写出 CSV 或 NDJSON，不在内存中保存完整结果；
+     * 请求头 Accept-Encoding 包含 gzip 时压缩输出
+     *
+     * @param exportReq      导出请求，包含策略ID列表、指标名称、时间范围和导出格式（csv/ndjson）
+     * @param acceptEncoding 请求头 Accept-Encoding
+     * @return 流式响应
+     */
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportWeatherData(@RequestBody WeatherDataExportReq exportReq,
+                                                                   @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("导出天气数据，请求参数: {}", exportReq);
+        if (exportReq.getStrategyIds() == null || exportReq.getStrategyIds().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        String format = StringUtils.hasText(exportReq.getFormat()) ? exportReq.getFormat().toLowerCase() : WeatherDataExporter.FORMAT_CSV;
+        if (!WeatherDataExporter.FORMAT_CSV.equals(format) && !WeatherDataExporter.FORMAT_NDJSON.equals(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (StringUtils.hasText(exportReq.getIndicatorName()) && IndicatorEnum.getByName(exportReq.getIndicatorName()) == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        exportReq.setFormat(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                // syncFlush：导出过程中的 flush 同时刷出已压缩的数据，客户端可以边下载边解压；
+                // 关闭时写入 gzip 尾部并释放压缩器（导出异常时同样释放）
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024, true)) {
+                    weatherDataExporter.export(exportReq, gzipOut);
+                }
+            } else {
+                weatherDataExporter.export(exportReq, out);
+            }
+        };
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(WeatherDataExporter.FORMAT_NDJSON.equals(format)
+                        ? MediaType.parseMediaType("application/x-ndjson;charset=UTF-8")
+                        : MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=weather-data." + format)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(body);
+    }
+
     /**
      * 根据策略查询天气数据
      * <p>
@@ -97,6 +184,24 @@ public class WeatherDataController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 批量查询多个策略的天气数据
+     * <p>
+     * 一次查询多个策略（最多500个）的历史数据，可指定指标名称列表和时间范围，结果按策略ID分组
+     *
+     * @param queryReq 批量查询请求，包含策略ID列表、指标名称列表、时间范围
+     * @return 策略ID到天气数据VO列表的映射
+     */
+    @PostMapping("/strategy/batch")
+    public ResponseEntity<Map<String, List<WeatherDataVo>>> getWeatherByStrategies(@RequestBody WeatherDataBatchQueryReq queryReq) {
+        log.info("批量查询天气数据，策略数: {}", queryReq.getStrategyIds() != null ? queryReq.getStrategyIds().size() : 0);
+        if (queryReq.getStrategyIds() == null || queryReq.getStrategyIds().isEmpty()
+                || queryReq.getStrategyIds().size() > MAX_BATCH_STRATEGIES) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(weatherDataService.queryWeatherDataBatch(queryReq));
+    }
+
     /**
      * 手动触发天气数据采集（根据策略ID）
      *
@@ -139,4 +244,9 @@ public class WeatherDataController {
         List<WeatherDataVo> result = weatherDataService.collectForecastDataByTimeRange(strategy);
         return ResponseEntity.ok(result);
     }
+
+    private static boolean isValidResolution(String resolution) {
+        return !StringUtils.hasText(resolution) || "auto".equalsIgnoreCase(resolution)
+                || ResolutionEnum.getByCode(resolution) != null;
+    }
 }
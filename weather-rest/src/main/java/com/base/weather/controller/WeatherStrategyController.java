@@ -2,10 +2,14 @@ package com.base.weather.controller;
 
 import com.base.common.entity.base.PaginationEntity;
 import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.entity.WeatherStrategy;
 import com.base.weather.entity.dto.BatchImportResult;
+import com.base.weather.entity.dto.CollectJobStatus;
 import com.base.weather.entity.req.WeatherStrategyAddReq;
 import com.base.weather.entity.req.WeatherStrategyQueryReq;
 import com.base.weather.entity.vo.WeatherStrategyVo;
+import com.base.weather.service.CollectJobHolder;
+import com.base.weather.service.ForecastCollectQueue;
 import com.base.weather.service.WeatherStrategyService;
 import com.base.weather.util.ExcelImportUtil;
 import jakarta.annotation.Resource;
@@ -15,9 +19,16 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 天气策略 Controller
@@ -27,30 +38,54 @@ import java.util.Map;
 @RequestMapping("/api/weather-strategy")
 public class WeatherStrategyController {
 
+    /**
+     * 响应头：异步预报采集任务ID
+     */
+    private static final String COLLECT_JOB_ID_HEADER = "X-Collect-Job-Id";
+
+    /**
+     * 导入结果中返回的行错误信息最大条数
+     */
+    private static final int MAX_IMPORT_ERRORS = 100;
+
+    /**
+     * 导入结果中返回的解析出的策略最大条数
+     */
+    private static final int MAX_IMPORT_DATA = 1000;
+
     @Resource
     private WeatherStrategyService weatherStrategyService;
 
     @Resource
     private ExcelImportUtil excelImportUtil;
 
+    @Resource
+    private ForecastCollectQueue forecastCollectQueue;
+
     /**
      * 新增天气策略
+     * <p>
+     * 需要立即采集时，预报数据异步采集，任务ID通过响应头 X-Collect-Job-Id 返回
      */
     @PostMapping("/add")
     public ResponseEntity<Boolean> create(@RequestBody WeatherStrategyAddReq weatherStrategy) {
         log.info("接收到新增天气策略的请求[{}]", weatherStrategy);
+        CollectJobHolder.clear();
         boolean result = weatherStrategyService.add(weatherStrategy);
-        return ResponseEntity.ok(result);
+        return okWithCollectJobId(result);
     }
 
     /**
      * 批量新增天气策略
+     * <p>
+     * 需要立即采集时，预报数据在事务提交后异步采集，任务ID通过响应头 X-Collect-Job-Id 返回
      */
     @PostMapping("/batchAdd")
     public ResponseEntity<Boolean> batchAdd(@RequestBody List<WeatherStrategyAddReq> weatherStrategys) {
         log.info("接收到批量新增天气策略的请求,共准备新增[{}]个", weatherStrategys.size());
+        CollectJobHolder.clear();
         boolean result = weatherStrategyService.batchAdd(weatherStrategys);
-        return ResponseEntity.ok(result);
+        return okWithCollectJobId(result);
     }
 
     /**
@@ -75,12 +110,30 @@ public class WeatherStrategyController {
 
     /**
      * 更新天气策略
+     * <p>
+     * 需要立即采集时，预报数据异步采集，任务ID通过响应头 X-Collect-Job-Id 返回
      */
     @PostMapping("/update")
     public ResponseEntity<Boolean> update(@RequestBody WeatherStrategyAddReq weatherStrategy) {
         log.info("接收到更新天气策略的请求[{}]", weatherStrategy);
+        CollectJobHolder.clear();
         boolean result = weatherStrategyService.update(weatherStrategy);
-        return ResponseEntity.ok(result);
+        return okWithCollectJobId(result);
+    }
+
+    /**
+     * 查询异步预报采集任务状态
+     *
+     * @param jobId 任务ID（新增/更新接口响应头 X-Collect-Job-Id 或导入结果中的 collectJobId）
+     * @return 任务状态，任务不存在或已过期时返回404
+     */
+    @GetMapping("/collect-job/{jobId}")
+    public ResponseEntity<CollectJobStatus> getCollectJob(@PathVariable String jobId) {
+        CollectJobStatus status = forecastCollectQueue.getStatus(jobId);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
     }
 
 
@@ -147,40 +200,38 @@ public class WeatherStrategyController {
 
             // 检查文件格式
             String filename = file.getOriginalFilename();
-            if (filename == null || (!filename.endsWith(".xlsx") && !filename.endsWith(".xls"))) {
+            // 流式解析只支持 .xlsx（.xls 为二进制格式）
+            if (filename == null || !filename.endsWith(".xlsx")) {
                 result.put("success", false);
-                result.put("message", "文件格式不正确，请上传Excel文件（.xlsx或.xls）");
+                result.put("message", "文件格式不正确，请上传Excel文件（.xlsx）");
                 return ResponseEntity.badRequest().body(result);
             }
 
-            // 解析Excel文件
-            List<WeatherStrategyAddReq> strategyAddReqList = excelImportUtil.importFromExcel(file);
+            // 上传文件保存为临时文件后流式解析，分批导入
+            File tempFile = File.createTempFile("strategy-import-", ".xlsx");
+            try {
+                file.transferTo(tempFile);
+                importFromExcel(tempFile, result);
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
 
-            if (strategyAddReqList.isEmpty()) {
+            if ((int) result.get("total") == 0) {
                 result.put("success", false);
                 result.put("message", "Excel文件中没有有效数据");
                 return ResponseEntity.badRequest().body(result);
             }
-            // 批量导入（带详细信息）
-            BatchImportResult importResult = weatherStrategyService.batchImportWithDetails(strategyAddReqList);
-
             result.put("success", true);
             result.put("message", "导入完成");
-            result.put("total", strategyAddReqList.size());
-            result.put("successCount", importResult.getSuccessCount());
-            result.put("skipCount", importResult.getSkipCount());
-            result.put("failCount", strategyAddReqList.size() - importResult.getSuccessCount() - importResult.getSkipCount());
-            result.put("excelDuplicates", importResult.getExcelDuplicates());  // Excel文件内重复的需求名称
-            result.put("existingDemandNames", importResult.getExistingDemandNames());  // 数据库中已存在的需求名称
-            result.put("data", strategyAddReqList);  // 返回解析出的策略列表
-
-            log.info("Excel导入完成，总数: {}, 成功: {}, 跳过: {} (Excel内重复: {}, 数据库已存在: {}), 失败: {}",
-                    strategyAddReqList.size(),
-                    importResult.getSuccessCount(),
-                    importResult.getSkipCount(),
-                    importResult.getExcelDuplicates().size(),
-                    importResult.getExistingDemandNames().size(),
-                    strategyAddReqList.size() - importResult.getSuccessCount() - importResult.getSkipCount());
+
+            log.info("Excel导入完成，总数: {}, 成功: {}, 跳过: {} (Excel内重复: {}, 数据库已存在: {}), 失败: {}, 无效行: {}",
+                    result.get("total"),
+                    result.get("successCount"),
+                    result.get("skipCount"),
+                    ((Collection<?>) result.get("excelDuplicates")).size(),
+                    ((Collection<?>) result.get("existingDemandNames")).size(),
+                    result.get("failCount"),
+                    result.get("errorCount"));
 
             return ResponseEntity.ok(result);
 
@@ -191,4 +242,80 @@ public class WeatherStrategyController {
             return ResponseEntity.internalServerError().body(result);
         }
     }
+
+    /**
+     * 流式解析Excel文件并分批导入，导入结果写入 result
+     * <p>
+     * 先读取一遍需求名称统计文件内重复，再逐批解析、导入，每批单独查重、插入；
+     * 需要立即采集的策略在全部批次导入后合并为一个异步采集任务提交（一次导入一个任务）
+     */
+    private void importFromExcel(File file, Map<String, Object> result) throws IOException {
+        Set<String> excelDuplicates = excelImportUtil.findDuplicateDemandNames(file);
+        if (!excelDuplicates.isEmpty()) {
+            log.warn("Excel文件中存在重复的需求名称: {}", excelDuplicates);
+        }
+
+        int[] successCount = new int[1];
+        int[] chunkFailCount = new int[1];
+        Set<String> existingDemandNames = new LinkedHashSet<>();
+        List<WeatherStrategy> collectStrategies = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int[] errorCount = new int[1];
+        List<WeatherStrategyAddReq> data = new ArrayList<>();
+
+        int total = excelImportUtil.importFromExcel(file, new ExcelImportUtil.ImportListener() {
+            @Override
+            public void onChunk(List<WeatherStrategyAddReq> chunk) {
+                if (data.size() < MAX_IMPORT_DATA) {
+                    data.addAll(chunk.subList(0, Math.min(chunk.size(), MAX_IMPORT_DATA - data.size())));
+                }
+                try {
+                    BatchImportResult chunkResult = weatherStrategyService.importChunk(chunk, excelDuplicates,
+                            collectStrategies);
+                    successCount[0] += chunkResult.getSuccessCount();
+                    existingDemandNames.addAll(chunkResult.getExistingDemandNames());
+                } catch (Exception e) {
+                    // 单批失败不影响后续批次
+                    chunkFailCount[0] += chunk.size();
+                    log.error("分批导入策略失败，本批数量: {}", chunk.size(), e);
+                }
+            }
+
+            @Override
+            public void onRowError(int rowNum, String message) {
+                errorCount[0]++;
+                if (errors.size() < MAX_IMPORT_ERRORS) {
+                    errors.add("第 " + rowNum + " 行: " + message);
+                }
+            }
+        });
+
+        int skipCount = excelDuplicates.size() + existingDemandNames.size();
+        result.put("total", total);
+        result.put("successCount", successCount[0]);
+        result.put("skipCount", skipCount);
+        result.put("failCount", total - successCount[0] - skipCount);
+        result.put("excelDuplicates", excelDuplicates);  // Excel文件内重复的需求名称
+        result.put("existingDemandNames", existingDemandNames);  // 数据库中已存在的需求名称
+        result.put("errorCount", errorCount[0]);  // 无效或解析失败的行数
+        result.put("errors", errors);  // 行错误信息（最多 MAX_IMPORT_ERRORS 条）
+        result.put("data", data);  // 解析出的策略列表（最多 MAX_IMPORT_DATA 条，总数见 total）
+        // 全部批次中需要立即采集的策略合并为一个异步预报采集任务
+        result.put("collectJobId", forecastCollectQueue.submit(collectStrategies, "import"));
+        CollectJobHolder.clear();
+        if (chunkFailCount[0] > 0) {
+            log.warn("分批导入失败的策略数量: {}", chunkFailCount[0]);
+        }
+    }
+
+    /**
+     * 返回结果，当前请求提交了异步采集任务时附带任务ID响应头
+     */
+    private static <T> ResponseEntity<T> okWithCollectJobId(T body) {
+        String jobId = CollectJobHolder.take();
+        if (jobId == null) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.ok().header(COLLECT_JOB_ID_HEADER, jobId).body(body);
+    }
 }
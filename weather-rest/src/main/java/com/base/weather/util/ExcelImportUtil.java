@@ -3,23 +3,53 @@ package com.base.weather.util;
 import com.base.weather.constant.IndicatorEnum;
 import com.base.weather.entity.req.WeatherStrategyAddReq;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * Excel导入工具类
  * 用于解析Excel文件并转换为天气策略请求对象
+ * <p>
+ * 使用 POI 事件模型（SAX）逐行读取第一个工作表，不构建整个工作簿的对象模型，
+ * 解析出的数据按固定行数分批回调，内存占用与总行数无关（共享字符串表除外）
  */
 @Slf4j
 @Component
 public class ExcelImportUtil {
 
+    /**
+     * 读取的列数：需求名称、需求类型、目标地址、采集内容、采集开始时间、采集结束时间、城市名称、备注信息
+     */
+    private static final int COLUMN_COUNT = 8;
+
+    /**
+     * 日期单元格的格式化格式
+     */
+    private static final String DATE_PATTERN = "yyyy/MM/dd HH:mm";
+
     /**
      * 中文指标名称到枚举名称的映射
      */
@@ -42,146 +72,194 @@ public class ExcelImportUtil {
     }
 
     /**
-     * 从Excel文件导入天气策略数据
-     *
-     * @param file Excel文件
-     * @return 天气策略请求对象列表
-     * @throws IOException IO异常
+     * 每批回调的行数
      */
-    public List<WeatherStrategyAddReq> importFromExcel(MultipartFile file) throws IOException {
-        List<WeatherStrategyAddReq> strategyList = new ArrayList<>();
+    @Value("${collect.import.chunk-size:500}")
+    private int chunkSize;
 
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
+    /**
+     * 流式导入回调
+     */
+    public interface ImportListener {
+
+        /**
+         * 每解析出一批有效数据回调一次（最后一批可能不足批大小）
+         *
+         * @param chunk 本批策略请求对象
+         */
+        void onChunk(List<WeatherStrategyAddReq> chunk);
+
+        /**
+         * 行数据无效或解析失败时回调
+         *
+         * @param rowNum  Excel行号（从1开始）
+         * @param message 错误信息
+         */
+        void onRowError(int rowNum, String message);
+    }
 
-            // 跳过表头，从第二行开始读取数据
-            for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
-                Row row = sheet.getRow(rowIndex);
-                if (row == null) {
-                    continue;
-                }
+    /**
+     * 统计Excel文件内重复的需求名称（只读取第一列）
+     *
+     * @param file Excel文件（.xlsx格式）
+     * @return 出现多次的需求名称
+     * @throws IOException IO异常或文件格式错误
+     */
+    public Set<String> findDuplicateDemandNames(File file) throws IOException {
+        Set<String> demandNames = new HashSet<>();
+        Set<String> duplicates = new LinkedHashSet<>();
+        readFirstSheet(file, (rowNum, cells) -> {
+            String demandName = cells[0];
+            if (demandName != null && !demandName.trim().isEmpty() && !demandNames.add(demandName.trim())) {
+                duplicates.add(demandName.trim());
+            }
+        });
+        return duplicates;
+    }
 
-                WeatherStrategyAddReq strategy = parseRow(row);
-                if (strategy != null) {
-                    strategyList.add(strategy);
-                }
+    /**
+     * 从Excel文件流式导入天气策略数据
+     * <p>
+     * 跳过表头，从第二行开始逐行解析，每解析出 collect.import.chunk-size 条有效数据回调一次
+     *
+     * @param file     Excel文件（.xlsx格式）
+     * @param listener 回调
+     * @return 解析出的有效数据行数
+     * @throws IOException IO异常或文件格式错误
+     */
+    public int importFromExcel(File file, ImportListener listener) throws IOException {
+        int size = Math.max(1, chunkSize);
+        List<WeatherStrategyAddReq> chunk = new ArrayList<>(size);
+        int[] parsedCount = new int[1];
+        readFirstSheet(file, (rowNum, cells) -> {
+            WeatherStrategyAddReq strategy;
+            try {
+                strategy = parseRow(cells, rowNum + 1);
+            } catch (Exception e) {
+                log.error("解析第 {} 行数据失败: {}", rowNum + 1, e.getMessage(), e);
+                listener.onRowError(rowNum + 1, "解析失败: " + e.getMessage());
+                return;
+            }
+            if (strategy == null) {
+                listener.onRowError(rowNum + 1, "需求名称为空");
+                return;
+            }
+            parsedCount[0]++;
+            chunk.add(strategy);
+            if (chunk.size() >= size) {
+                listener.onChunk(new ArrayList<>(chunk));
+                chunk.clear();
             }
+        });
+        if (!chunk.isEmpty()) {
+            listener.onChunk(new ArrayList<>(chunk));
         }
 
-        log.info("从Excel文件导入 {} 条策略数据", strategyList.size());
-        return strategyList;
+        log.info("从Excel文件导入 {} 条策略数据", parsedCount[0]);
+        return parsedCount[0];
     }
 
     /**
-     * 解析Excel行数据
+     * 使用 SAX 逐行读取第一个工作表的数据行（跳过表头）
      *
-     * @param row Excel行
-     * @return 天气策略请求对象
+     * @param file        Excel文件
+     * @param rowConsumer 行回调，参数为行索引（从0开始）和前 COLUMN_COUNT 列的格式化值
      */
-    private WeatherStrategyAddReq parseRow(Row row) {
-        WeatherStrategyAddReq strategy = new WeatherStrategyAddReq();
-
+    private void readFirstSheet(File file, BiConsumer<Integer, String[]> rowConsumer) throws IOException {
+        OPCPackage pkg;
         try {
-            // 需求名称（第0列）
-            String demandName = getCellValueAsString(row.getCell(0));
-            if (demandName == null || demandName.trim().isEmpty()) {
-                log.warn("第 {} 行需求名称为空，跳过", row.getRowNum() + 1);
-                return null;
-            }
-            strategy.setDemandName(demandName.trim());
-
-            // 需求类型（第1列，值：重点或普通）
-            String demandType = getCellValueAsString(row.getCell(1));
-            if (demandType != null && !demandType.trim().isEmpty()) {
-                Integer priority = convertDemandTypeToPriority(demandType.trim());
-                strategy.setTargetPriority(priority);
-            } else {
-                // 如果未填写，默认为普通（1）
-                strategy.setTargetPriority(1);
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Excel文件格式不正确: " + e.getMessage(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
             }
-
-            // 目标地址（第2列，格式：(经度,纬度)）
-            String targetAddress = getCellValueAsString(row.getCell(2));
-            if (targetAddress != null && !targetAddress.trim().isEmpty()) {
-                parseCoordinates(targetAddress.trim(), strategy);
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings,
+                        new RowCollector(rowConsumer), new ImportDataFormatter(), false));
+                parser.parse(new InputSource(sheet));
             }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("解析Excel文件失败: " + e.getMessage(), e);
+        } finally {
+            // 只读打开，不保存
+            pkg.revert();
+        }
+    }
 
-            // 采集内容（第3列，格式：温度;PM2.5;云量;降水量）
-            String collectContent = getCellValueAsString(row.getCell(3));
-            if (collectContent != null && !collectContent.trim().isEmpty()) {
-                String convertedContent = convertIndicatorNames(collectContent.trim());
-                strategy.setCollectContent(convertedContent);
-            }
+    /**
+     * 解析Excel行数据
+     *
+     * @param cells  各列的格式化值
+     * @param rowNum Excel行号（从1开始）
+     * @return 天气策略请求对象，需求名称为空时返回 null
+     */
+    private WeatherStrategyAddReq parseRow(String[] cells, int rowNum) {
+        WeatherStrategyAddReq strategy = new WeatherStrategyAddReq();
 
-            // 采集开始时间（第4列，格式：2026/1/1 12:00）
-            String collectStart = getCellValueAsString(row.getCell(4));
-            if (collectStart != null && !collectStart.trim().isEmpty()) {
-                strategy.setCollectStart(convertDateTime(collectStart.trim()));
-            }
+        // 需求名称（第0列）
+        String demandName = cells[0];
+        if (demandName == null || demandName.trim().isEmpty()) {
+            log.warn("第 {} 行需求名称为空，跳过", rowNum);
+            return null;
+        }
+        strategy.setDemandName(demandName.trim());
 
-            // 采集结束时间（第5列，格式：2026/1/5 12:00）
-            String collectEnd = getCellValueAsString(row.getCell(5));
-            if (collectEnd != null && !collectEnd.trim().isEmpty()) {
-                strategy.setCollectEnd(convertDateTime(collectEnd.trim()));
-            }
+        // 需求类型（第1列，值：重点或普通）
+        String demandType = cells[1];
+        if (demandType != null && !demandType.trim().isEmpty()) {
+            Integer priority = convertDemandTypeToPriority(demandType.trim());
+            strategy.setTargetPriority(priority);
+        } else {
+            // 如果未填写，默认为普通（1）
+            strategy.setTargetPriority(1);
+        }
 
-            // 城市名称（第6列）
-            String cityName = getCellValueAsString(row.getCell(6));
-            if (cityName != null && !cityName.trim().isEmpty()) {
-                strategy.setCityName(cityName.trim());
-            }
+        // 目标地址（第2列，格式：(经度,纬度)）
+        String targetAddress = cells[2];
+        if (targetAddress != null && !targetAddress.trim().isEmpty()) {
+            parseCoordinates(targetAddress.trim(), strategy);
+        }
 
-            // 备注信息（第7列）
-            String remark = getCellValueAsString(row.getCell(7));
-            if (remark != null && !remark.trim().isEmpty()) {
-                strategy.setRemark(remark.trim());
-            }
+        // 采集内容（第3列，格式：温度;PM2.5;云量;降水量）
+        String collectContent = cells[3];
+        if (collectContent != null && !collectContent.trim().isEmpty()) {
+            String convertedContent = convertIndicatorNames(collectContent.trim());
+            strategy.setCollectContent(convertedContent);
+        }
 
-            return strategy;
+        // 采集开始时间（第4列，格式：2026/1/1 12:00）
+        String collectStart = cells[4];
+        if (collectStart != null && !collectStart.trim().isEmpty()) {
+            strategy.setCollectStart(convertDateTime(collectStart.trim()));
+        }
 
-        } catch (Exception e) {
-            log.error("解析第 {} 行数据失败: {}", row.getRowNum() + 1, e.getMessage(), e);
-            return null;
+        // 采集结束时间（第5列，格式：2026/1/5 12:00）
+        String collectEnd = cells[5];
+        if (collectEnd != null && !collectEnd.trim().isEmpty()) {
+            strategy.setCollectEnd(convertDateTime(collectEnd.trim()));
         }
-    }
 
-    /**
-     * 获取单元格值（字符串格式）
-     *
-     * @param cell 单元格
-     * @return 字符串值
-     */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return null;
+        // 城市名称（第6列）
+        String cityName = cells[6];
+        if (cityName != null && !cityName.trim().isEmpty()) {
+            strategy.setCityName(cityName.trim());
         }
 
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    // 日期格式
-                    Date date = cell.getDateCellValue();
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MM/dd HH:mm");
-                    return sdf.format(date);
-                } else {
-                    // 数字格式
-                    double numericValue = cell.getNumericCellValue();
-                    // 如果是整数，去掉小数点
-                    if (numericValue == (long) numericValue) {
-                        return String.valueOf((long) numericValue);
-                    } else {
-                        return String.valueOf(numericValue);
-                    }
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return null;
+        // 备注信息（第7列）
+        String remark = cells[7];
+        if (remark != null && !remark.trim().isEmpty()) {
+            strategy.setRemark(remark.trim());
         }
+
+        return strategy;
     }
 
     /**
@@ -357,4 +435,56 @@ public class ExcelImportUtil {
             return 1;
         }
     }
+
+    /**
+     * 行收集器：把 SAX 回调的单元格按列号放入数组，行结束时回调（跳过表头行）
+     */
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final BiConsumer<Integer, String[]> rowConsumer;
+
+        private String[] cells;
+
+        private int currentColumn;
+
+        RowCollector(BiConsumer<Integer, String[]> rowConsumer) {
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells = new String[COLUMN_COUNT];
+            currentColumn = -1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (rowNum > 0) {
+                rowConsumer.accept(rowNum, cells);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // 单元格引用缺失时按顺序推算列号
+            currentColumn = cellReference != null ? new CellReference(cellReference).getCol() : currentColumn + 1;
+            if (currentColumn < COLUMN_COUNT) {
+                cells[currentColumn] = formattedValue;
+            }
+        }
+    }
+
+    /**
+     * 单元格格式化：日期单元格统一格式化为 yyyy/MM/dd HH:mm，其他按单元格格式显示
+     */
+    private static class ImportDataFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return new SimpleDateFormat(DATE_PATTERN).format(DateUtil.getJavaDate(value, use1904Windowing));
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+        }
+    }
 }
@@ -0,0 +1,163 @@
+package com.base.weather.service;
+
+import com.base.weather.entity.WeatherStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分散采集调度：按模拟时间每分钟同步一次并分发到期调度项，跨越多个周期后每个调度项仍然每个周期触发一次
+ */
+public class CollectSchedulerTest {
+
+    private static final int LOCATIONS = 200;
+
+    private static final long STEP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final long JITTER_MILLIS = TimeUnit.SECONDS.toMillis(300);
+
+    private static final long START_MILLIS = LocalDateTime.of(2026, 1, 5, 0, 0)
+            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    private final List<WeatherStrategy> strategies = new ArrayList<>();
+
+    /**
+     * 策略ID|采集类型 -> 每次采集的模拟时间
+     */
+    private final Map<String, List<Long>> fires = new HashMap<>();
+
+    private CollectScheduler scheduler;
+
+    private long now;
+
+    @BeforeEach
+    public void setUp() {
+        StrategyRegistry strategyRegistry = mock(StrategyRegistry.class);
+        when(strategyRegistry.getAll()).thenAnswer(invocation -> new ArrayList<>(strategies));
+        when(strategyRegistry.get(any())).thenAnswer(invocation -> strategies.stream()
+                .filter(strategy -> strategy.getId().equals(invocation.getArgument(0)))
+                .findFirst().orElse(null));
+
+        WeatherDataService weatherDataService = mock(WeatherDataService.class);
+        when(weatherDataService.collectWeatherData(any(), any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0), "REALTIME");
+            return new ArrayList<>();
+        });
+        when(weatherDataService.collectForecastDataByTimeRange(any(), any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0), "FORECAST");
+            return new ArrayList<>();
+        });
+
+        WeatherCollectExecutor collectExecutor = mock(WeatherCollectExecutor.class);
+        when(collectExecutor.submit(any())).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        });
+
+        CollectCluster collectCluster = mock(CollectCluster.class);
+        when(collectCluster.owns(any())).thenReturn(true);
+
+        scheduler = new CollectScheduler();
+        ReflectionTestUtils.setField(scheduler, "forecastUrgentIntervalMinutes", 360L);
+        ReflectionTestUtils.setField(scheduler, "forecastNormalIntervalMinutes", 720L);
+        ReflectionTestUtils.setField(scheduler, "realtimeIntervalMinutes", 1440L);
+        ReflectionTestUtils.setField(scheduler, "providerRefreshMinutes", 60L);
+        ReflectionTestUtils.setField(scheduler, "jitterSeconds", 300L);
+        ReflectionTestUtils.setField(scheduler, "forecastLeadDays", 7L);
+        ReflectionTestUtils.setField(scheduler, "strategyRegistry", strategyRegistry);
+        ReflectionTestUtils.setField(scheduler, "weatherDataService", weatherDataService);
+        ReflectionTestUtils.setField(scheduler, "collectExecutor", collectExecutor);
+        ReflectionTestUtils.setField(scheduler, "collectCluster", collectCluster);
+        ReflectionTestUtils.setField(scheduler, "collectMetrics", mock(CollectMetrics.class));
+    }
+
+    @Test
+    public void everyLocationFiresOncePerInterval() {
+        for (int i = 0; i < LOCATIONS; i++) {
+            strategies.add(strategy("scheduler-test-" + i, 30 + i * 0.01, 120 + i * 0.01, i % 2));
+        }
+
+        long days = 4;
+        run(START_MILLIS, START_MILLIS + TimeUnit.DAYS.toMillis(days));
+
+        for (WeatherStrategy strategy : strategies) {
+            long forecastMinutes = strategy.getTargetPriority() == 0 ? 360 : 720;
+            assertFiresOncePerInterval(strategy.getId() + "|FORECAST", forecastMinutes, days);
+            assertFiresOncePerInterval(strategy.getId() + "|REALTIME", 1440, days);
+        }
+    }
+
+    @Test
+    public void priorityChangeReschedulesWithNewInterval() {
+        WeatherStrategy strategy = strategy("scheduler-test-change", 31.23, 121.47, 1);
+        strategies.add(strategy);
+
+        long changeMillis = START_MILLIS + TimeUnit.DAYS.toMillis(1);
+        run(START_MILLIS, changeMillis);
+        List<Long> times = fires.get(strategy.getId() + "|FORECAST");
+        int normalFires = times.size();
+        assertTrue(normalFires >= 1 && normalFires <= 3, "普通优先级一天内采集次数: " + normalFires);
+
+        strategy.setTargetPriority(0);
+        run(changeMillis, changeMillis + TimeUnit.DAYS.toMillis(2));
+        List<Long> afterChange = times.subList(normalFires, times.size());
+        assertTrue(afterChange.size() >= 7 && afterChange.size() <= 9, "紧急优先级两天内采集次数: " + afterChange.size());
+        assertGaps(afterChange, TimeUnit.MINUTES.toMillis(360));
+    }
+
+    /**
+     * 每分钟同步一次，再分发到期的调度项
+     */
+    private void run(long fromMillis, long toMillis) {
+        for (now = fromMillis; now < toMillis; now += STEP_MILLIS) {
+            scheduler.sync(now);
+            scheduler.dispatchDue(now);
+        }
+    }
+
+    private void assertFiresOncePerInterval(String key, long intervalMinutes, long days) {
+        List<Long> times = fires.getOrDefault(key, new ArrayList<>());
+        long expected = TimeUnit.DAYS.toMinutes(days) / intervalMinutes;
+        assertTrue(Math.abs(times.size() - expected) <= 1, key + " 采集次数: " + times.size() + "，期望: " + expected);
+        assertGaps(times, TimeUnit.MINUTES.toMillis(intervalMinutes));
+    }
+
+    /**
+     * 相邻两次采集的间隔为一个周期，偏差不超过抖动和模拟步长
+     */
+    private static void assertGaps(List<Long> times, long intervalMillis) {
+        for (int i = 1; i < times.size(); i++) {
+            long gap = times.get(i) - times.get(i - 1);
+            assertTrue(Math.abs(gap - intervalMillis) <= JITTER_MILLIS + STEP_MILLIS,
+                    "采集间隔 " + gap + " ms，周期 " + intervalMillis + " ms");
+        }
+    }
+
+    private void record(WeatherStrategy strategy, String kind) {
+        fires.computeIfAbsent(strategy.getId() + "|" + kind, k -> new ArrayList<>()).add(now);
+    }
+
+    private static WeatherStrategy strategy(String id, double latitude, double longitude, int priority) {
+        WeatherStrategy strategy = new WeatherStrategy();
+        strategy.setId(id);
+        strategy.setTargetLatitude(latitude);
+        strategy.setTargetLongitude(longitude);
+        strategy.setTargetPriority(priority);
+        strategy.setCollectStart("2026-01-01 00:00:00");
+        strategy.setCollectEnd("2026-01-31 00:00:00");
+        return strategy;
+    }
+}
@@ -0,0 +1,136 @@
+package com.base.weather.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.entity.WeatherData;
+import com.base.weather.entity.dto.UpsertResult;
+import com.base.weather.mapper.WeatherDataMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 天气数据批量写入：多行 INSERT ON CONFLICT 与 COPY 的插入/更新/未变化统计和写入结果
+ * <p>
+ * 需要连接真实数据库（已建 weather_data 表），默认不执行，使用 -Dweather.db-test=true 开启；
+ * 写入性能对比见 weather-bench 模块的 WeatherDataPersistBenchmark
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "weather.db-test", matches = "true")
+public class WeatherDataWriterTest {
+
+    private static final String STRATEGY_PREFIX = "writer-test-";
+
+    private static final int HOURS = 24;
+
+    @Autowired
+    private WeatherDataWriter weatherDataWriter;
+
+    @Autowired
+    private WeatherDataMapper weatherDataMapper;
+
+    @AfterEach
+    void cleanUp() {
+        weatherDataMapper.delete(new LambdaQueryWrapper<WeatherData>()
+                .likeRight(WeatherData::getStrategyId, STRATEGY_PREFIX));
+    }
+
+    @Test
+    void copyUpsertCountsInsertedThenUnchanged() {
+        List<WeatherData> rows = buildRows(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+
+        assertResult(weatherDataWriter.copyUpsert(rows), rows.size(), 0, 0);
+        // 相同数据再次写入：全部未变化
+        assertResult(weatherDataWriter.copyUpsert(rows), 0, 0, rows.size());
+    }
+
+    @Test
+    void insertUpsertCountsOnlyChangedRowsAsUpdated() {
+        List<WeatherData> rows = buildRows(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+        assertResult(weatherDataWriter.insertUpsert(rows), rows.size(), 0, 0);
+
+        int changed = 0;
+        for (int i = 0; i < rows.size(); i += 10) {
+            rows.get(i).setIndicatorValue("changed-" + i);
+            changed++;
+        }
+        assertResult(weatherDataWriter.insertUpsert(rows), 0, changed, rows.size() - changed);
+    }
+
+    @Test
+    void insertAndCopyWriteSameContents() {
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        weatherDataWriter.insertUpsert(buildRows(start));
+        List<String> inserted = readBack();
+        cleanUp();
+
+        weatherDataWriter.copyUpsert(buildRows(start));
+        List<String> copied = readBack();
+
+        assertEquals(HOURS * IndicatorEnum.values().length * 2, inserted.size());
+        assertEquals(inserted, copied);
+    }
+
+    private static void assertResult(UpsertResult result, int inserted, int updated, int unchanged) {
+        assertEquals(inserted, result.getInsertedCount(), "inserted");
+        assertEquals(updated, result.getUpdatedCount(), "updated");
+        assertEquals(unchanged, result.getUnchangedCount(), "unchanged");
+    }
+
+    /**
+     * 读取测试策略的数据，按唯一键排序后转为可比较的字符串（不含ID和创建时间）
+     */
+    private List<String> readBack() {
+        List<WeatherData> stored = weatherDataMapper.selectList(new LambdaQueryWrapper<WeatherData>()
+                .likeRight(WeatherData::getStrategyId, STRATEGY_PREFIX));
+        stored.sort(Comparator.comparing(WeatherData::getStrategyId)
+                .thenComparing(WeatherData::getCollectTime)
+                .thenComparing(WeatherData::getIndicatorName));
+        List<String> result = new ArrayList<>(stored.size());
+        for (WeatherData data : stored) {
+            result.add(String.join("|", data.getStrategyId(), String.valueOf(data.getCollectTime()),
+                    data.getIndicatorName(), data.getIndicatorValue(), String.valueOf(data.getIndicatorNum()),
+                    String.valueOf(data.getIndicatorCode()), data.getIndicatorUnit(), data.getCityName(),
+                    String.valueOf(data.getLatitude()), String.valueOf(data.getLongitude())));
+        }
+        return result;
+    }
+
+    /**
+     * 构造测试数据：两个策略，每个策略 24 小时 × 全部指标
+     */
+    private static List<WeatherData> buildRows(LocalDateTime start) {
+        IndicatorEnum[] indicators = IndicatorEnum.values();
+        LocalDateTime createTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<WeatherData> rows = new ArrayList<>();
+        for (int s = 0; s < 2; s++) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                for (IndicatorEnum indicator : indicators) {
+                    WeatherData data = new WeatherData();
+                    data.setStrategyId(STRATEGY_PREFIX + s);
+                    data.setCityName("北京");
+                    data.setLatitude(39.92);
+                    data.setLongitude(116.41);
+                    data.setCollectTime(start.plusHours(hour));
+                    data.setIndicatorName(indicator.name());
+                    data.setIndicatorValue(String.valueOf((hour * 7 + indicator.ordinal()) % 100));
+                    data.setIndicatorUnit("℃");
+                    data.setCreateTime(createTime);
+                    data.setDelFlag(0);
+                    rows.add(data);
+                }
+            }
+        }
+        return rows;
+    }
+}
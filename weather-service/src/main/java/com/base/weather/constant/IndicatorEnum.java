@@ -59,6 +59,15 @@ public enum IndicatorEnum {
         this.unit = unit;
     }
 
+    /**
+     * 宽表（weather_data_wide）中对应的列名
+     *
+     * @return 列名，例如：perceived_temperature
+     */
+    public String getColumnName() {
+        return name().toLowerCase();
+    }
+
     /**
      * 获取所有枚举的 name 和 description 列表，按 apiEnum 分组
      *
@@ -0,0 +1,51 @@
+package com.base.weather.constant;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * 历史数据查询时间粒度枚举
+ */
+@Getter
+public enum ResolutionEnum {
+
+    HOUR("hour", "小时", Duration.ofHours(1)),
+
+    DAY("day", "天", Duration.ofDays(1)),
+
+    WEEK("week", "周", Duration.ofDays(7)),
+
+    ;
+
+    /**
+     * 粒度编码（即 PostgreSQL date_trunc 的时间单位）
+     */
+    private final String code;
+    private final String description;
+    private final Duration duration;
+
+    ResolutionEnum(String code, String description, Duration duration) {
+        this.code = code;
+        this.description = description;
+        this.duration = duration;
+    }
+
+    /**
+     * 根据编码获取枚举（忽略大小写）
+     *
+     * @param code 粒度编码，例如：day
+     * @return 对应的枚举，如果不存在则返回 null
+     */
+    public static ResolutionEnum getByCode(String code) {
+        if (code == null || code.isEmpty()) {
+            return null;
+        }
+        for (ResolutionEnum resolution : values()) {
+            if (resolution.code.equalsIgnoreCase(code)) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+}
@@ -63,6 +63,18 @@ public class WeatherData {
     @TableField("indicator_value")
     private String indicatorValue;
 
+    /**
+     * 指标数值（由指标值解析；风向为风向角度）
+     */
+    @TableField("indicator_num")
+    private Double indicatorNum;
+
+    /**
+     * 分类指标编码（目前用于风向，见 IndicatorValueUtils）
+     */
+    @TableField("indicator_code")
+    private Integer indicatorCode;
+
     /**
      * 指标单位
      */
@@ -29,6 +29,11 @@ public class BatchImportResult {
      */
     private int skipCount;
 
+    /**
+     * 异步预报采集任务ID（没有需要立即采集的策略时为空）
+     */
+    private String collectJobId;
+
     public BatchImportResult() {
     }
 
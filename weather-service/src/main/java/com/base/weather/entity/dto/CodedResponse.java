@@ -0,0 +1,14 @@
+package com.base.weather.entity.dto;
+
+/**
+ * 带业务状态码的和风天气响应（v7 接口在响应体中返回 code，200 表示成功）
+ */
+public interface CodedResponse {
+
+    /**
+     * 业务状态码，200表示成功，204表示请求成功但查询的地区暂无数据，其余与 HTTP 状态码含义一致（如 404、429、500）
+     *
+     * @return 状态码
+     */
+    String getCode();
+}
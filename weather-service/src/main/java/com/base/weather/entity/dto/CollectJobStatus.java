@@ -0,0 +1,82 @@
+package com.base.weather.entity.dto;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 异步采集任务状态
+ */
+@Data
+public class CollectJobStatus {
+
+    /**
+     * 排队中（等待事务提交或等待执行）
+     */
+    public static final String STATUS_QUEUED = "QUEUED";
+
+    /**
+     * 执行中
+     */
+    public static final String STATUS_RUNNING = "RUNNING";
+
+    /**
+     * 已完成
+     */
+    public static final String STATUS_FINISHED = "FINISHED";
+
+    /**
+     * 已取消（提交任务的事务回滚）
+     */
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    /**
+     * 任务ID
+     */
+    private String jobId;
+
+    /**
+     * 任务来源（add、batchAdd、update、import）
+     */
+    private String source;
+
+    /**
+     * 任务状态
+     */
+    private String status;
+
+    /**
+     * 提交的策略数量
+     */
+    private int totalCount;
+
+    /**
+     * 采集成功的数量
+     */
+    private int successCount;
+
+    /**
+     * 采集失败的数量
+     */
+    private int failCount;
+
+    /**
+     * 已在队列中等待采集而合并的数量
+     */
+    private int deduplicatedCount;
+
+    /**
+     * 执行时策略已删除或已取消而跳过的数量
+     */
+    private int skippedCount;
+
+    /**
+     * 提交时间
+     */
+    private Date createTime;
+
+    /**
+     * 完成时间
+     */
+    private Date finishTime;
+}
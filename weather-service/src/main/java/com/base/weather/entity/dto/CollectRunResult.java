@@ -0,0 +1,46 @@
+package com.base.weather.entity.dto;
+
+import lombok.Data;
+
+/**
+ * 单次采集任务执行结果
+ */
+@Data
+public class CollectRunResult {
+
+    /**
+     * 提交执行的策略数量
+     */
+    private int totalCount;
+
+    /**
+     * 采集成功的数量
+     */
+    private int successCount;
+
+    /**
+     * 采集失败的数量
+     */
+    private int failCount;
+
+    /**
+     * 超过本次任务截止时间未执行完成的数量
+     */
+    private int timeoutCount;
+
+    /**
+     * 任务耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    public CollectRunResult() {
+    }
+
+    public CollectRunResult(int totalCount, int successCount, int failCount, int timeoutCount, long elapsedMillis) {
+        this.totalCount = totalCount;
+        this.successCount = successCount;
+        this.failCount = failCount;
+        this.timeoutCount = timeoutCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -10,7 +10,7 @@ import java.util.List;
  * @author system
  */
 @Data
-public class GeoCityResponse {
+public class GeoCityResponse implements CodedResponse {
     
     /**
      * 状态码，200表示成功
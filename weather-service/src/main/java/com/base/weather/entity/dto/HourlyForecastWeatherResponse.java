@@ -8,7 +8,7 @@ import java.util.List;
  * 对应和风天气 HOURLY_FORECAST_WEATHER API 的响应数据
  */
 @Data
-public class HourlyForecastWeatherResponse {
+public class HourlyForecastWeatherResponse implements CodedResponse {
 
     /**
      * 状态码，200表示成功
@@ -11,7 +11,7 @@ import java.util.List;
  * @author system
  */
 @Data
-public class RealTimeWeatherResponse {
+public class RealTimeWeatherResponse implements CodedResponse {
 
     /**
      * 状态码，200表示成功
@@ -0,0 +1,36 @@
+package com.base.weather.entity.dto;
+
+import lombok.Data;
+
+/**
+ * 天气数据批量写入结果
+ */
+@Data
+public class UpsertResult {
+
+    /**
+     * 新插入的行数
+     */
+    private int insertedCount;
+
+    /**
+     * 值发生变化而更新的行数
+     */
+    private int updatedCount;
+
+    /**
+     * 值未变化而未修改的行数
+     */
+    private int unchangedCount;
+
+    /**
+     * 累加另一批次的写入结果
+     *
+     * @param other 另一批次的写入结果
+     */
+    public void add(UpsertResult other) {
+        this.insertedCount += other.insertedCount;
+        this.updatedCount += other.updatedCount;
+        this.unchangedCount += other.unchangedCount;
+    }
+}
@@ -0,0 +1,39 @@
+package com.base.weather.entity.req;
+
+import com.base.common.entity.base.BaseRequest;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 多策略天气数据批量查询请求
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class WeatherDataBatchQueryReq extends BaseRequest {
+
+    /**
+     * 策略ID列表（必填）
+     */
+    private List<String> strategyIds;
+
+    /**
+     * 指标名称列表（可选，如：Temperature, PM2p5等），为空时查询所有指标
+     */
+    private List<String> indicatorNames;
+
+    /**
+     * 开始时间（可选）
+     */
+    @JsonFormat(pattern = "yyyy-M-d HH:mm:ss", timezone = "Asia/Shanghai")
+    private Date startTime;
+
+    /**
+     * 结束时间（可选）
+     */
+    @JsonFormat(pattern = "yyyy-M-d HH:mm:ss", timezone = "Asia/Shanghai")
+    private Date endTime;
+}
@@ -0,0 +1,44 @@
+package com.base.weather.entity.req;
+
+import com.base.common.entity.base.BaseRequest;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 天气数据导出请求
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class WeatherDataExportReq extends BaseRequest {
+
+    /**
+     * 策略ID列表（必填）
+     */
+    private List<String> strategyIds;
+
+    /**
+     * 指标名称（可选，如：Temperature, PM2p5等）
+     */
+    private String indicatorName;
+
+    /**
+     * 开始时间（可选）
+     */
+    @JsonFormat(pattern = "yyyy-M-d HH:mm:ss", timezone = "Asia/Shanghai")
+    private Date startTime;
+
+    /**
+     * 结束时间（可选）
+     */
+    @JsonFormat(pattern = "yyyy-M-d HH:mm:ss", timezone = "Asia/Shanghai")
+    private Date endTime;
+
+    /**
+     * 导出格式：csv（默认）、ndjson（每行一个 JSON 对象）
+     */
+    private String format;
+}
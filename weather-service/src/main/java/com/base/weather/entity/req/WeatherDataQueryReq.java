@@ -45,4 +45,14 @@ public class WeatherDataQueryReq extends BaseRequest {
      * 指标值（可选，用于精确查询）
      */
     private String indicatorValue;
+
+    /**
+     * 时间粒度（可选）：hour、day、week、auto（根据时间范围自动选择），为空时返回原始数据
+     */
+    private String resolution;
+
+    /**
+     * 最大返回点数（可选），超过时按 LTTB 算法降采样，保留曲线形状
+     */
+    private Integer maxPoints;
 }
@@ -0,0 +1,72 @@
+package com.base.weather.entity.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 天气数据汇总展示类
+ * 每个时间桶、每个指标一条，包含最小值、最大值、平均值和最后一个值
+ */
+@Data
+public class WeatherDataRollupVo {
+    /**
+     * 天气策略ID（关联weather_strategy表）
+     */
+    private String strategyId;
+
+    /**
+     * 时间粒度（hour、day、week）
+     */
+    private String resolution;
+
+    /**
+     * 时间桶开始时间
+     */
+    private LocalDateTime bucketTime;
+
+    /**
+     * 指标名称（IndicatorEnum 的 name）
+     */
+    private String indicatorName;
+
+    /**
+     * 城市名称
+     */
+    private String cityName;
+
+    /**
+     * 纬度
+     */
+    private Double latitude;
+
+    /**
+     * 经度
+     */
+    private Double longitude;
+
+    /**
+     * 最小值（分类指标为空）
+     */
+    private Double minValue;
+
+    /**
+     * 最大值（分类指标为空）
+     */
+    private Double maxValue;
+
+    /**
+     * 平均值（分类指标为空）
+     */
+    private Double avgValue;
+
+    /**
+     * 时间桶内最后一个值（原始字符串值）
+     */
+    private String lastValue;
+
+    /**
+     * 时间桶内的数据条数
+     */
+    private Integer sampleCount;
+}
@@ -0,0 +1,46 @@
+package com.base.weather.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 采集节点Mapper（集群心跳）
+ */
+@Mapper
+public interface CollectNodeMapper {
+
+    /**
+     * 写入节点心跳（不存在则注册）
+     *
+     * @param nodeId 节点ID
+     * @param host   主机名
+     * @return 影响行数
+     */
+    int heartbeat(@Param("nodeId") String nodeId, @Param("host") String host);
+
+    /**
+     * 查询存活节点（按节点ID排序）
+     *
+     * @param timeoutSeconds 心跳超时时长（秒），超过该时长未写入心跳的节点视为下线
+     * @return 节点ID列表
+     */
+    List<String> listLiveNodes(@Param("timeoutSeconds") long timeoutSeconds);
+
+    /**
+     * 删除节点（正常下线）
+     *
+     * @param nodeId 节点ID
+     * @return 影响行数
+     */
+    int deleteNode(@Param("nodeId") String nodeId);
+
+    /**
+     * 删除长时间没有心跳的节点记录
+     *
+     * @param retentionSeconds 保留时长（秒）
+     * @return 影响行数
+     */
+    int deleteStaleNodes(@Param("retentionSeconds") long retentionSeconds);
+}
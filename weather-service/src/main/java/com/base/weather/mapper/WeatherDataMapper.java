@@ -2,11 +2,13 @@ package com.base.weather.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.base.weather.entity.WeatherData;
+import com.base.weather.entity.dto.UpsertResult;
 import com.base.weather.entity.vo.WeatherDataVo;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
-import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -43,19 +45,49 @@ public interface WeatherDataMapper extends BaseMapper<WeatherData> {
                                                             @Param("endTime") Date endTime);
 
     /**
-     * 物理删除旧的预报数据（同一策略、同一时间范围、同一批指标）
+     * 批量查询多个策略的历史天气数据（一次查询）
+     *
+     * @param strategyIds    策略ID数组
+     * @param indicatorNames 指标名称数组（可选，为空时查询所有指标）
+     * @param startTime      开始时间（可选）
+     * @param endTime        结束时间（可选）
+     * @return 天气数据VO列表，按策略ID升序、采集时间倒序排列
+     */
+    List<WeatherDataVo> getHistoryByStrategyIds(@Param("strategyIds") String[] strategyIds,
+                                                 @Param("indicatorNames") String[] indicatorNames,
+                                                 @Param("startTime") Date startTime,
+                                                 @Param("endTime") Date endTime);
+
+    /**
+     * 以游标方式查询多个策略的历史天气数据（用于导出，需在事务内读取）
+     *
+     * @param strategyIds   策略ID列表
+     * @param indicatorName 指标名称（可选）
+     * @param startTime     开始时间（可选）
+     * @param endTime       结束时间（可选）
+     * @return 天气数据VO游标，按策略ID、采集时间升序排列
+     */
+    Cursor<WeatherDataVo> exportHistory(@Param("strategyIds") Collection<String> strategyIds,
+                                        @Param("indicatorName") String indicatorName,
+                                        @Param("startTime") Date startTime,
+                                        @Param("endTime") Date endTime);
+
+    /**
+     * 批量插入或更新天气数据（按 strategy_id + collect_time + indicator_name 唯一）
+     * <p>
+     * 已存在且指标值、单位、删除标识都未变化的行不做任何修改，也不会出现在返回结果中
+     *
+     * @param list 天气数据列表（同一批次内唯一键不能重复）
+     * @return 被插入或更新的行，true 表示新插入，false 表示更新
+     */
+    List<Boolean> upsertBatch(@Param("list") List<WeatherData> list);
+
+    /**
+     * 将临时表 weather_data_stage 中的数据插入或更新到 weather_data
      * <p>
-     * 说明：预报数据与实时采集共用 weather_data 表，为避免误删实时数据，
-     * 这里仅对"本次预报采集涉及的指标集合"且"collect_time 在策略时间范围内"的数据做物理删除。
+     * 临时表由 COPY 批量写入，需与本语句在同一连接（同一事务）中执行
      *
-     * @param strategyId      策略ID
-     * @param startTime       开始时间（包含）
-     * @param endTime         结束时间（包含）
-     * @param indicatorNames  指标名称集合（IndicatorEnum.name）
-     * @return 影响行数
+     * @return 新增和更新的行数（未变化的行数由调用方计算）
      */
-    int deleteByStrategyAndTimeRangeAndIndicators(@Param("strategyId") String strategyId,
-                                                  @Param("startTime") LocalDateTime startTime,
-                                                  @Param("endTime") LocalDateTime endTime,
-                                                  @Param("indicatorNames") List<String> indicatorNames);
+    UpsertResult upsertFromStage();
 }
@@ -0,0 +1,54 @@
+package com.base.weather.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * weather_data 分区管理Mapper
+ * <p>
+ * 分区表名和边界由 WeatherDataPartitionManager 按固定格式生成，不接受外部输入
+ */
+@Mapper
+public interface WeatherDataPartitionMapper {
+
+    /**
+     * weather_data 是否为分区表
+     *
+     * @return 是否为分区表
+     */
+    boolean isPartitioned();
+
+    /**
+     * 查询 weather_data 当前挂载的所有分区表名
+     *
+     * @return 分区表名列表
+     */
+    List<String> listPartitions();
+
+    /**
+     * 创建分区
+     *
+     * @param partitionName 分区表名
+     * @param fromTime      分区下界（包含），格式：yyyy-MM-dd HH:mm:ss
+     * @param toTime        分区上界（不包含），格式：yyyy-MM-dd HH:mm:ss
+     */
+    void createPartition(@Param("partitionName") String partitionName,
+                         @Param("fromTime") String fromTime,
+                         @Param("toTime") String toTime);
+
+    /**
+     * 从 weather_data 卸载分区（分区表保留，可归档后删除）
+     *
+     * @param partitionName 分区表名
+     */
+    void detachPartition(@Param("partitionName") String partitionName);
+
+    /**
+     * 删除分区
+     *
+     * @param partitionName 分区表名
+     */
+    void dropPartition(@Param("partitionName") String partitionName);
+}
@@ -0,0 +1,47 @@
+package com.base.weather.mapper;
+
+import com.base.weather.entity.vo.WeatherDataRollupVo;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 天气数据汇总表Mapper（weather_data_rollup，每个策略、时间粒度、时间桶、指标一行）
+ */
+@Mapper
+public interface WeatherDataRollupMapper {
+
+    /**
+     * 根据 weather_data 重新计算指定策略、时间范围所在时间桶的汇总数据，只更新发生变化的行
+     *
+     * @param strategyIds 策略ID列表
+     * @param resolution  时间粒度编码（hour、day、week）
+     * @param startTime   开始时间（所在时间桶整体重新计算）
+     * @param endTime     结束时间（所在时间桶整体重新计算）
+     * @return 插入或更新的行数
+     */
+    int refreshFromWeatherData(@Param("strategyIds") Collection<String> strategyIds,
+                               @Param("resolution") String resolution,
+                               @Param("startTime") LocalDateTime startTime,
+                               @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 查询汇总数据
+     *
+     * @param strategyId    策略ID
+     * @param resolution    时间粒度编码（hour、day、week）
+     * @param indicatorName 指标名称（可选）
+     * @param startTime     开始时间（可选，按时间桶开始时间比较）
+     * @param endTime       结束时间（可选，按时间桶开始时间比较）
+     * @return 汇总数据列表，按时间桶倒序排列
+     */
+    List<WeatherDataRollupVo> getRollup(@Param("strategyId") String strategyId,
+                                        @Param("resolution") String resolution,
+                                        @Param("indicatorName") String indicatorName,
+                                        @Param("startTime") Date startTime,
+                                        @Param("endTime") Date endTime);
+}
@@ -0,0 +1,70 @@
+package com.base.weather.mapper;
+
+import com.base.weather.entity.vo.WeatherDataVo;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 天气数据宽表Mapper（weather_data_wide，每个策略每个采集时间一行，每个指标一列）
+ */
+@Mapper
+public interface WeatherDataWideMapper {
+
+    /**
+     * 根据 weather_data 重新计算指定策略、时间范围内的宽表数据，只更新发生变化的行
+     *
+     * @param strategyIds 策略ID列表
+     * @param startTime   开始时间（包含）
+     * @param endTime     结束时间（包含）
+     * @return 插入或更新的行数
+     */
+    int refreshFromWeatherData(@Param("strategyIds") Collection<String> strategyIds,
+                               @Param("startTime") LocalDateTime startTime,
+                               @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 根据策略ID查询历史天气数据
+     *
+     * @param strategyId      策略ID
+     * @param indicatorColumn 指标列名（为空时查询所有指标，不为空时只查询该指标有值的行），必须来自 IndicatorEnum
+     * @param startTime       开始时间
+     * @param endTime         结束时间
+     * @return 天气数据VO列表，按采集时间倒序排列
+     */
+    List<WeatherDataVo> getHistoryByStrategyId(@Param("strategyId") String strategyId,
+                                                @Param("indicatorColumn") String indicatorColumn,
+                                                @Param("startTime") Date startTime,
+                                                @Param("endTime") Date endTime);
+
+    /**
+     * 批量查询多个策略的历史天气数据（一次查询，返回所有指标列）
+     *
+     * @param strategyIds 策略ID数组
+     * @param startTime   开始时间（可选）
+     * @param endTime     结束时间（可选）
+     * @return 天气数据VO列表，按策略ID升序、采集时间倒序排列
+     */
+    List<WeatherDataVo> getHistoryByStrategyIds(@Param("strategyIds") String[] strategyIds,
+                                                 @Param("startTime") Date startTime,
+                                                 @Param("endTime") Date endTime);
+
+    /**
+     * 以游标方式查询多个策略的历史天气数据（用于导出，需在事务内读取）
+     *
+     * @param strategyIds     策略ID列表
+     * @param indicatorColumn 指标列名（可选），必须来自 IndicatorEnum
+     * @param startTime       开始时间（可选）
+     * @param endTime         结束时间（可选）
+     * @return 天气数据VO游标，按策略ID、采集时间升序排列
+     */
+    Cursor<WeatherDataVo> exportHistory(@Param("strategyIds") Collection<String> strategyIds,
+                                        @Param("indicatorColumn") String indicatorColumn,
+                                        @Param("startTime") Date startTime,
+                                        @Param("endTime") Date endTime);
+}
@@ -8,6 +8,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -32,4 +33,27 @@ public interface WeatherStrategyMapper extends BaseMapper<WeatherStrategy> {
      * @return 存在的数量
      */
     int countByDemandName(@Param("demandName") String demandName);
+
+    /**
+     * 批量查询已存在的需求名称（排除已删除的记录）
+     *
+     * @param demandNames 需求名称数组
+     * @return 数据库中已存在的需求名称
+     */
+    List<String> selectExistingDemandNames(@Param("demandNames") String[] demandNames);
+
+    /**
+     * 查询需要采集的策略（未删除，且不是采集完成、已取消状态）
+     *
+     * @return 策略列表
+     */
+    List<WeatherStrategy> selectActiveStrategies();
+
+    /**
+     * 查询指定时间之后新增或修改的策略（包含已删除的记录）
+     *
+     * @param since 起始时间（包含）
+     * @return 策略列表
+     */
+    List<WeatherStrategy> selectChangedSince(@Param("since") Date since);
 }
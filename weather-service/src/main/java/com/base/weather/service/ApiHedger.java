@@ -0,0 +1,366 @@
+package com.base.weather.service;
+
+import com.base.weather.constant.ApiEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 和风天气接口对冲请求（降低尾延迟）
+ * <p>
+ * 对配置的接口（默认实时天气、实时空气质量），首次请求在最近延迟的指定分位数内仍未返回时，
+ * 再发送一次相同的请求，取先成功返回的结果：
+ * 1. 每种 API 记录最近若干次成功请求的耗时，样本数不足时不对冲
+ * 2. 对冲请求数受对冲预算限制：每次请求向预算存入 max-ratio 个令牌，每次对冲消耗 1 个，
+ * 对冲请求最多占请求总量的 max-ratio
+ * 3. 对冲请求通过调用方提供的许可（容错层的隔离舱许可和限流令牌）发送，只尝试获取不等待，
+ * 获取不到时放弃对冲，继续等待首次请求；延迟样本只统计 HTTP 请求本身
+ * 4. 请求在独立的有界线程池中执行，线程池已满时直接在调用线程中执行（不对冲）
+ * <p>
+ * 默认不启用（collect.hedge.enabled=false）
+ */
+@Slf4j
+@Component
+public class ApiHedger {
+
+    /**
+     * 单次请求
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * 对冲请求许可：发送对冲请求前不等待地获取，对冲请求结束后归还
+     */
+    public interface Gate {
+
+        /**
+         * @return 是否获取到许可
+         */
+        boolean tryAcquire();
+
+        /**
+         * 归还许可
+         */
+        void release();
+    }
+
+    /**
+     * 是否启用对冲请求
+     */
+    @Value("${collect.hedge.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 启用对冲的 API（ApiEnum 名称，逗号分隔）
+     */
+    @Value("${collect.hedge.apis:REAL_TIME_WEATHER,REAL_TIME_AIR_QUALITY}")
+    private String[] apis;
+
+    /**
+     * 触发对冲的延迟分位数（0-1），首次请求超过最近延迟的该分位数仍未返回时发送对冲请求
+     */
+    @Value("${collect.hedge.percentile:0.95}")
+    private double percentile;
+
+    /**
+     * 对冲等待的最短时间（毫秒），避免延迟很低时频繁对冲
+     */
+    @Value("${collect.hedge.min-delay-ms:50}")
+    private long minDelayMillis;
+
+    /**
+     * 对冲请求占请求总量的最大比例
+     */
+    @Value("${collect.hedge.max-ratio:0.05}")
+    private double maxRatio;
+
+    /**
+     * 延迟统计窗口（最近成功请求次数）
+     */
+    @Value("${collect.hedge.window-size:200}")
+    private int windowSize;
+
+    /**
+     * 延迟样本数达到多少后才开始对冲
+     */
+    @Value("${collect.hedge.min-samples:20}")
+    private int minSamples;
+
+    /**
+     * 对冲线程池最大线程数
+     */
+    @Value("${collect.hedge.max-threads:16}")
+    private int maxThreads;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Set<ApiEnum> hedgedApis = EnumSet.noneOf(ApiEnum.class);
+
+    private final Map<ApiEnum, LatencyTracker> trackers = new EnumMap<>(ApiEnum.class);
+
+    private final Map<ApiEnum, HedgeBudget> budgets = new EnumMap<>(ApiEnum.class);
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        for (String api : apis) {
+            try {
+                hedgedApis.add(ApiEnum.valueOf(api.trim()));
+            } catch (IllegalArgumentException e) {
+                log.warn("对冲请求配置的 API 不存在，已忽略: {}", api);
+            }
+        }
+        for (ApiEnum apiEnum : hedgedApis) {
+            LatencyTracker tracker = new LatencyTracker(Math.max(1, windowSize));
+            trackers.put(apiEnum, tracker);
+            budgets.put(apiEnum, new HedgeBudget());
+            if (meterRegistry != null) {
+                Gauge.builder("weather.api.hedge.delay", tracker, t -> t.percentile(percentile))
+                        .description("触发对冲的延迟阈值（毫秒，样本不足时为-1）")
+                        .tag("api", apiEnum.name())
+                        .register(meterRegistry);
+            }
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "weather-hedge-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(0, Math.max(2, maxThreads), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory);
+        log.info("和风天气接口对冲请求初始化完成，启用: {}, API: {}, 分位数: {}, 最大对冲比例: {}",
+                enabled, hedgedApis, percentile, maxRatio);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行请求，必要时发送对冲请求并取先成功返回的结果
+     *
+     * @param apiEnum API 类型
+     * @param call    单次请求（首次请求和对冲请求各调用一次）
+     * @param gate    对冲请求许可（首次请求的许可由调用方在调用前获取）
+     * @return 请求结果
+     * @throws IOException 首次请求和对冲请求均失败
+     */
+    public <T> T execute(ApiEnum apiEnum, Call<T> call, Gate gate) throws IOException {
+        LatencyTracker tracker = trackers.get(apiEnum);
+        if (!enabled || tracker == null) {
+            return call.call();
+        }
+        HedgeBudget budget = budgets.get(apiEnum);
+        budget.deposit();
+        long delayMillis = tracker.percentile(percentile);
+        if (delayMillis < 0) {
+            // 样本不足：不对冲，只记录延迟
+            return timed(tracker, call).call();
+        }
+        delayMillis = Math.max(minDelayMillis, delayMillis);
+
+        ExecutorCompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        Future<T> primary;
+        try {
+            primary = completionService.submit(() -> timed(tracker, call).call());
+        } catch (RejectedExecutionException e) {
+            return timed(tracker, call).call();
+        }
+        Future<T> hedge = null;
+        try {
+            Future<T> done = completionService.poll(delayMillis, TimeUnit.MILLISECONDS);
+            if (done == null && budget.tryWithdraw()) {
+                hedge = submitHedge(apiEnum, completionService, tracker, call, gate, budget);
+                if (hedge != null) {
+                    log.debug("{}请求超过 {} ms 未返回，发送对冲请求", apiEnum.getDescription(), delayMillis);
+                }
+            }
+            int pending = hedge != null ? 2 : 1;
+            ExecutionException lastError = null;
+            while (pending > 0) {
+                if (done == null) {
+                    done = completionService.take();
+                }
+                pending--;
+                try {
+                    T result = done.get();
+                    if (hedge != null && done == hedge) {
+                        increment("weather.api.hedge.won", "对冲请求先返回的次数", apiEnum);
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    // 两次请求都失败时抛出先返回的异常
+                    if (lastError == null) {
+                        lastError = e;
+                    }
+                }
+                done = null;
+            }
+            throw unwrap(lastError);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待接口响应时被中断", e);
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 获取许可后提交对冲请求，获取不到许可或线程池已满时不对冲并退回对冲预算
+     *
+     * @return 对冲请求，未发送时返回 null
+     */
+    private <T> Future<T> submitHedge(ApiEnum apiEnum, ExecutorCompletionService<T> completionService,
+                                      LatencyTracker tracker, Call<T> call, Gate gate, HedgeBudget budget) {
+        if (!gate.tryAcquire()) {
+            budget.refund();
+            log.debug("{}没有空闲的并发许可或限流令牌，不发送对冲请求", apiEnum.getDescription());
+            return null;
+        }
+        try {
+            Future<T> hedge = completionService.submit(() -> {
+                try {
+                    return timed(tracker, call).call();
+                } finally {
+                    gate.release();
+                }
+            });
+            increment("weather.api.hedge", "发送的对冲请求数", apiEnum);
+            return hedge;
+        } catch (RejectedExecutionException e) {
+            gate.release();
+            budget.refund();
+            log.debug("对冲线程池已满，{}不发送对冲请求", apiEnum.getDescription());
+            return null;
+        }
+    }
+
+    private static <T> Call<T> timed(LatencyTracker tracker, Call<T> call) {
+        return () -> {
+            long startNanos = System.nanoTime();
+            T result = call.call();
+            tracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            return result;
+        };
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        return new IOException(cause);
+    }
+
+    private void increment(String name, String description, ApiEnum apiEnum) {
+        if (meterRegistry != null) {
+            Counter.builder(name)
+                    .description(description)
+                    .tag("api", apiEnum.name())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * 最近成功请求的延迟（环形窗口）
+     */
+    private class LatencyTracker {
+
+        private final long[] samples;
+
+        private int size;
+
+        private int next;
+
+        LatencyTracker(int windowSize) {
+            this.samples = new long[windowSize];
+        }
+
+        synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            if (size < samples.length) {
+                size++;
+            }
+        }
+
+        /**
+         * @return 延迟分位数（毫秒），样本不足时返回 -1
+         */
+        synchronized long percentile(double p) {
+            if (size < Math.min(minSamples, samples.length) || size == 0) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(Math.min(1.0, Math.max(0.0, p)) * size) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+
+    /**
+     * 对冲预算：每次请求存入令牌，每次对冲消耗令牌
+     */
+    private class HedgeBudget {
+
+        private double balance;
+
+        synchronized void deposit() {
+            // 最多积累少量令牌，避免长期无慢请求后集中对冲
+            balance = Math.min(Math.max(1.0, maxRatio * 20), balance + maxRatio);
+        }
+
+        synchronized boolean tryWithdraw() {
+            if (balance < 1.0) {
+                return false;
+            }
+            balance -= 1.0;
+            return true;
+        }
+
+        /**
+         * 退回未使用的对冲令牌
+         */
+        synchronized void refund() {
+            balance += 1.0;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.base.weather.service;
+
+import com.base.weather.constant.ApiEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 和风天气接口限流器
+ * <p>
+ * 所有 APIService 调用前先获取许可：
+ * 1. 每种 API 类型一个令牌桶，限制每秒请求数（允许短时间内突发不超过一秒的额度），
+ * 等待时间超过上限的请求直接拒绝
+ * 2. 每日额度：当日请求数达到上限后拒绝；剩余额度低于预留值时，只允许紧急（优先级0）策略继续请求
+ * 3. 暴露剩余额度、限流等待时间和拒绝次数指标
+ */
+@Slf4j
+@Component
+public class ApiRateLimiter {
+
+    /**
+     * 是否启用限流
+     */
+    @Value("${collect.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每种 API 默认每秒请求数，可通过 collect.rate-limit.api.{API名称}.permits-per-second 单独配置
+     */
+    @Value("${collect.rate-limit.permits-per-second:20}")
+    private double defaultPermitsPerSecond;
+
+    /**
+     * 获取许可的最长等待时间（毫秒）
+     */
+    @Value("${collect.rate-limit.max-wait-ms:30000}")
+    private long maxWaitMillis;
+
+    /**
+     * 每日请求额度，小于等于0表示不限制
+     */
+    @Value("${collect.rate-limit.daily-quota:0}")
+    private long dailyQuota;
+
+    /**
+     * 为紧急策略预留的每日额度
+     */
+    @Value("${collect.rate-limit.urgent-reserve:0}")
+    private long urgentReserve;
+
+    @Resource
+    private Environment environment;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Map<ApiEnum, TokenBucket> buckets = new EnumMap<>(ApiEnum.class);
+
+    private final Map<ApiEnum, Timer> waitTimers = new EnumMap<>(ApiEnum.class);
+
+    private LocalDate quotaDate = LocalDate.now();
+
+    private long usedToday;
+
+    @PostConstruct
+    public void init() {
+        for (ApiEnum apiEnum : ApiEnum.values()) {
+            double permitsPerSecond = environment.getProperty(
+                    "collect.rate-limit.api." + apiEnum.name() + ".permits-per-second",
+                    Double.class, defaultPermitsPerSecond);
+            buckets.put(apiEnum, new TokenBucket(permitsPerSecond));
+            if (meterRegistry != null) {
+                waitTimers.put(apiEnum, Timer.builder("weather.api.throttle.wait")
+                        .description("获取限流许可的等待时间")
+                        .tag("api", apiEnum.name())
+                        .register(meterRegistry));
+            }
+        }
+        if (meterRegistry != null) {
+            Gauge.builder("weather.api.quota.remaining", this, ApiRateLimiter::getRemainingQuota)
+                    .description("当日剩余请求额度（不限制时为-1）")
+                    .register(meterRegistry);
+        }
+        log.info("和风天气接口限流器初始化完成，启用: {}, 默认每秒请求数: {}, 每日额度: {}, 紧急预留: {}",
+                enabled, defaultPermitsPerSecond, dailyQuota, urgentReserve);
+    }
+
+    /**
+     * 获取一次请求许可，必要时等待
+     *
+     * @param apiEnum API 类型
+     * @throws IllegalStateException 每日额度不足或等待时间超过上限
+     */
+    public void acquire(ApiEnum apiEnum) {
+        if (!enabled) {
+            return;
+        }
+        int priority = CollectPriorityHolder.get();
+        TokenBucket bucket = buckets.get(apiEnum);
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        if (bucket.estimateWaitNanos() > maxWaitNanos) {
+            reject(apiEnum, "wait", "限流等待时间超过上限");
+        }
+        if (!tryConsumeQuota(priority)) {
+            reject(apiEnum, "quota", "每日请求额度不足");
+        }
+
+        long waitNanos = bucket.reserve();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待限流许可时被中断", e);
+            }
+        }
+        Timer timer = waitTimers.get(apiEnum);
+        if (timer != null) {
+            timer.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 不等待地获取一次请求许可（用于对冲请求等可以放弃的请求），不计入拒绝次数
+     *
+     * @param apiEnum API 类型
+     * @return 是否获取成功，令牌桶中没有可用令牌或每日额度不足时返回 false
+     */
+    public boolean tryAcquire(ApiEnum apiEnum) {
+        if (!enabled) {
+            return true;
+        }
+        return buckets.get(apiEnum).tryReserve() && tryConsumeQuota(CollectPriorityHolder.get());
+    }
+
+    /**
+     * @return 当日剩余请求额度，不限制时返回 -1
+     */
+    public synchronized long getRemainingQuota() {
+        if (dailyQuota <= 0) {
+            return -1;
+        }
+        resetQuotaIfNewDay();
+        return Math.max(0, dailyQuota - usedToday);
+    }
+
+    private synchronized boolean tryConsumeQuota(int priority) {
+        if (dailyQuota <= 0) {
+            return true;
+        }
+        resetQuotaIfNewDay();
+        long remaining = dailyQuota - usedToday;
+        // 剩余额度只够预留部分时，普通策略不再请求
+        long required = priority == CollectPriorityHolder.PRIORITY_URGENT ? 1 : urgentReserve + 1;
+        if (remaining < required) {
+            return false;
+        }
+        usedToday++;
+        return true;
+    }
+
+    private void resetQuotaIfNewDay() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(quotaDate)) {
+            quotaDate = today;
+            usedToday = 0;
+        }
+    }
+
+    private void reject(ApiEnum apiEnum, String reason, String message) {
+        if (meterRegistry != null) {
+            Counter.builder("weather.api.throttle.rejected")
+                    .description("被限流器拒绝的请求数")
+                    .tag("api", apiEnum.name())
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+        }
+        log.warn("{}请求被限流，原因: {}, 优先级: {}", apiEnum.getDescription(), message, CollectPriorityHolder.get());
+        throw new IllegalStateException(message + "，API: " + apiEnum.getDescription());
+    }
+
+    /**
+     * 令牌桶：按固定速率生成令牌，最多积累一秒的令牌用于突发请求
+     */
+    private static class TokenBucket {
+
+        private final double intervalNanos;
+
+        private final double maxStored;
+
+        private double stored;
+
+        private long nextFreeNanos = System.nanoTime();
+
+        TokenBucket(double permitsPerSecond) {
+            double rate = Math.max(permitsPerSecond, 0.001);
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            this.maxStored = Math.max(1.0, rate);
+            this.stored = maxStored;
+        }
+
+        /**
+         * 预估获取下一个令牌需要等待的时间（纳秒）
+         */
+        synchronized long estimateWaitNanos() {
+            long now = System.nanoTime();
+            refill(now);
+            return stored >= 1.0 ? 0 : Math.max(0, nextFreeNanos - now);
+        }
+
+        /**
+         * 预定一个令牌，返回需要等待的时间（纳秒）
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            refill(now);
+            long waitNanos = Math.max(0, nextFreeNanos - now);
+            double fromStored = Math.min(1.0, stored);
+            stored -= fromStored;
+            nextFreeNanos += (long) ((1.0 - fromStored) * intervalNanos);
+            return waitNanos;
+        }
+
+        /**
+         * 有可用令牌时立即取走一个，否则不预定
+         */
+        synchronized boolean tryReserve() {
+            refill(System.nanoTime());
+            if (stored < 1.0) {
+                return false;
+            }
+            stored -= 1.0;
+            return true;
+        }
+
+        private void refill(long now) {
+            if (now > nextFreeNanos) {
+                stored = Math.min(maxStored, stored + (now - nextFreeNanos) / intervalNanos);
+                nextFreeNanos = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package com.base.weather.service;
+
+import com.base.common.exception.HttpStatusException;
+import com.base.weather.constant.ApiEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 和风天气接口容错层
+ * <p>
+ * 每种 API 类型相互隔离，一个接口变慢或故障不影响其他接口：
+ * 1. 超时：每种 API 单独配置连接/读取超时，替代 30 秒 + 30 秒的默认值
+ * 2. 限流：每次尝试（含重试）先通过熔断检查，再获取限流许可，限流等待不占用隔离舱许可，也不计入调用耗时
+ * 3. 隔离舱：每种 API 一个信号量限制并发请求数，获取不到许可的请求等待一段时间后拒绝，避免慢接口占满采集线程
+ * 4. 熔断器：按最近 N 次调用的失败率或慢调用比例熔断，熔断期间直接拒绝；熔断时长过后放行少量试探请求，
+ * 全部成功则恢复，任意失败则重新熔断。调用耗时只统计 HTTP 请求本身
+ * 5. 重试：网络异常、HTTP（或和风业务状态码）5xx 和 429 按指数退避 + 随机抖动重试，重试次数受重试预算限制：
+ * 每次首次请求向预算存入 retry-budget-ratio 个令牌，每次重试消耗 1 个，预算最多积累 retry-budget-max 个，
+ * 避免故障时重试放大请求量
+ * 6. 启用对冲的 API 由 {@link ApiHedger} 发送对冲请求，对冲请求同样占用隔离舱许可和限流令牌，获取不到时不对冲
+ * 7. 熔断状态、隔离舱可用许可、重试预算通过指标暴露
+ * <p>
+ * 失败分类：网络异常、5xx、429 计入熔断失败并重试；响应解析失败计入熔断失败但不重试（重试结果相同）；
+ * 其他 4xx（如 404 未找到、401 认证失败）说明接口本身可用，不计入失败也不重试。
+ * 限流拒绝、等待被中断等不计入熔断统计，也不重试
+ */
+@Slf4j
+@Component
+public class ApiResilience {
+
+    /**
+     * 熔断器状态：关闭（正常）
+     */
+    public static final int STATE_CLOSED = 0;
+
+    /**
+     * 熔断器状态：半开（试探）
+     */
+    public static final int STATE_HALF_OPEN = 1;
+
+    /**
+     * 熔断器状态：打开（熔断中）
+     */
+    public static final int STATE_OPEN = 2;
+
+    /**
+     * 单次请求
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call(int connectTimeoutMillis, int readTimeoutMillis) throws IOException;
+    }
+
+    /**
+     * 是否启用容错层（不启用时只应用超时配置）
+     */
+    @Value("${collect.resilience.enabled:true}")
+    private boolean enabled;
+
+    @Value("${collect.resilience.connect-timeout-ms:5000}")
+    private int defaultConnectTimeoutMillis;
+
+    @Value("${collect.resilience.read-timeout-ms:15000}")
+    private int defaultReadTimeoutMillis;
+
+    /**
+     * 每种 API 默认最大并发请求数，可通过 collect.resilience.api.{API名称}.max-concurrent 单独配置
+     */
+    @Value("${collect.resilience.max-concurrent:8}")
+    private int defaultMaxConcurrent;
+
+    /**
+     * 获取隔离舱许可的最长等待时间（毫秒）
+     */
+    @Value("${collect.resilience.bulkhead-wait-ms:10000}")
+    private long bulkheadWaitMillis;
+
+    /**
+     * 熔断统计窗口（最近调用次数）
+     */
+    @Value("${collect.resilience.window-size:20}")
+    private int windowSize;
+
+    /**
+     * 窗口内至少有多少次调用才计算失败率
+     */
+    @Value("${collect.resilience.minimum-calls:10}")
+    private int minimumCalls;
+
+    /**
+     * 失败率阈值（0-1）
+     */
+    @Value("${collect.resilience.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    /**
+     * 慢调用阈值（毫秒）
+     */
+    @Value("${collect.resilience.slow-call-ms:8000}")
+    private long slowCallMillis;
+
+    /**
+     * 慢调用比例阈值（0-1）
+     */
+    @Value("${collect.resilience.slow-call-rate-threshold:0.8}")
+    private double slowCallRateThreshold;
+
+    /**
+     * 熔断时长（毫秒）
+     */
+    @Value("${collect.resilience.open-duration-ms:30000}")
+    private long openDurationMillis;
+
+    /**
+     * 半开状态放行的试探请求数
+     */
+    @Value("${collect.resilience.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    /**
+     * 最大尝试次数（含首次请求）
+     */
+    @Value("${collect.resilience.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * 重试退避基数（毫秒），第 n 次重试最长等待 base × 2^(n-1)
+     */
+    @Value("${collect.resilience.backoff-base-ms:200}")
+    private long backoffBaseMillis;
+
+    /**
+     * 重试退避上限（毫秒）
+     */
+    @Value("${collect.resilience.backoff-max-ms:5000}")
+    private long backoffMaxMillis;
+
+    /**
+     * 每次首次请求存入重试预算的令牌数（即重试请求占正常请求的最大比例）
+     */
+    @Value("${collect.resilience.retry-budget-ratio:0.2}")
+    private double retryBudgetRatio;
+
+    /**
+     * 重试预算的初始令牌数和最低保底令牌数（请求量很小时也允许少量重试）
+     */
+    @Value("${collect.resilience.retry-budget-min:10}")
+    private double retryBudgetMin;
+
+    /**
+     * 重试预算最多积累的令牌数，避免长期空闲后故障时集中重试
+     */
+    @Value("${collect.resilience.retry-budget-max:20}")
+    private double retryBudgetMax;
+
+    @Resource
+    private Environment environment;
+
+    @Resource
+    private ApiRateLimiter apiRateLimiter;
+
+    @Resource
+    private ApiHedger apiHedger;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Map<ApiEnum, Endpoint> endpoints = new EnumMap<>(ApiEnum.class);
+
+    @PostConstruct
+    public void init() {
+        for (ApiEnum apiEnum : ApiEnum.values()) {
+            String prefix = "collect.resilience.api." + apiEnum.name() + ".";
+            Endpoint endpoint = new Endpoint(apiEnum,
+                    environment.getProperty(prefix + "connect-timeout-ms", Integer.class, defaultConnectTimeoutMillis),
+                    environment.getProperty(prefix + "read-timeout-ms", Integer.class, defaultReadTimeoutMillis),
+                    environment.getProperty(prefix + "max-concurrent", Integer.class, defaultMaxConcurrent),
+                    new CircuitBreaker(Math.max(1, windowSize), Math.max(1, halfOpenCalls)),
+                    new RetryBudget());
+            endpoints.put(apiEnum, endpoint);
+            if (meterRegistry != null) {
+                Gauge.builder("weather.api.circuit.state", endpoint.breaker, CircuitBreaker::getState)
+                        .description("熔断器状态（0-关闭，1-半开，2-打开）")
+                        .tag("api", apiEnum.name())
+                        .register(meterRegistry);
+                Gauge.builder("weather.api.bulkhead.available", endpoint.bulkhead, Semaphore::availablePermits)
+                        .description("隔离舱剩余并发许可")
+                        .tag("api", apiEnum.name())
+                        .register(meterRegistry);
+                Gauge.builder("weather.api.retry.budget", endpoint.retryBudget, RetryBudget::getBalance)
+                        .description("剩余重试预算")
+                        .tag("api", apiEnum.name())
+                        .register(meterRegistry);
+            }
+        }
+        log.info("和风天气接口容错层初始化完成，启用: {}, 默认超时: {}/{} ms, 默认并发: {}, 最大尝试次数: {}",
+                enabled, defaultConnectTimeoutMillis, defaultReadTimeoutMillis, defaultMaxConcurrent, maxAttempts);
+    }
+
+    /**
+     * 经过限流器、隔离舱、熔断器、重试和对冲执行请求
+     *
+     * @param apiEnum API 类型
+     * @param call    单次 HTTP 请求（参数为该 API 的连接/读取超时），不含限流等待
+     * @return 请求结果
+     * @throws IOException           重试后仍然失败
+     * @throws IllegalStateException 熔断中、被限流或隔离舱已满
+     */
+    public <T> T execute(ApiEnum apiEnum, Call<T> call) throws IOException {
+        Endpoint endpoint = endpoints.get(apiEnum);
+        if (!enabled) {
+            apiRateLimiter.acquire(apiEnum);
+            return callHedged(endpoint, call);
+        }
+        endpoint.retryBudget.deposit();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeOnce(endpoint, call);
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || !isRetryable(e) || !endpoint.retryBudget.tryWithdraw()) {
+                    throw e;
+                }
+                long backoffMillis = backoffMillis(attempt);
+                increment("weather.api.retry", "重试次数", apiEnum);
+                log.warn("{}请求失败，{} ms 后第 {} 次重试: {}", apiEnum.getDescription(), backoffMillis, attempt, e.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoffMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 熔断器状态
+     *
+     * @param apiEnum API 类型
+     * @return {@link #STATE_CLOSED}、{@link #STATE_HALF_OPEN} 或 {@link #STATE_OPEN}
+     */
+    public int getState(ApiEnum apiEnum) {
+        return endpoints.get(apiEnum).breaker.getState();
+    }
+
+    private <T> T executeOnce(Endpoint endpoint, Call<T> call) throws IOException {
+        ApiEnum apiEnum = endpoint.apiEnum;
+        if (!endpoint.breaker.tryAcquire(openDurationMillis)) {
+            increment("weather.api.circuit.rejected", "熔断拒绝的请求数", apiEnum);
+            throw new IllegalStateException("接口熔断中，API: " + apiEnum.getDescription());
+        }
+        // 限流等待在获取隔离舱许可之前，不占用并发许可
+        try {
+            apiRateLimiter.acquire(apiEnum);
+        } catch (RuntimeException e) {
+            endpoint.breaker.release();
+            throw e;
+        }
+        boolean permitted;
+        try {
+            permitted = endpoint.bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            endpoint.breaker.release();
+            throw new IllegalStateException("等待隔离舱许可时被中断", e);
+        }
+        if (!permitted) {
+            endpoint.breaker.release();
+            increment("weather.api.bulkhead.rejected", "隔离舱已满拒绝的请求数", apiEnum);
+            throw new IllegalStateException("接口并发请求已满，API: " + apiEnum.getDescription());
+        }
+        long startNanos = System.nanoTime();
+        try {
+            T result = callHedged(endpoint, call);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            onResult(endpoint, false, elapsedMillis >= slowCallMillis);
+            return result;
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // 等待被中断，不代表接口故障
+                endpoint.breaker.release();
+            } else {
+                onResult(endpoint, isFailure(e), false);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            endpoint.breaker.release();
+            throw e;
+        } finally {
+            endpoint.bulkhead.release();
+        }
+    }
+
+    private <T> T callHedged(Endpoint endpoint, Call<T> call) throws IOException {
+        return apiHedger.execute(endpoint.apiEnum,
+                () -> call.call(endpoint.connectTimeoutMillis, endpoint.readTimeoutMillis), hedgeGate(endpoint));
+    }
+
+    /**
+     * 对冲请求许可：不等待地获取隔离舱许可（容错层启用时）和限流令牌
+     */
+    private ApiHedger.Gate hedgeGate(Endpoint endpoint) {
+        return new ApiHedger.Gate() {
+            @Override
+            public boolean tryAcquire() {
+                if (enabled && !endpoint.bulkhead.tryAcquire()) {
+                    return false;
+                }
+                if (!apiRateLimiter.tryAcquire(endpoint.apiEnum)) {
+                    release();
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public void release() {
+                if (enabled) {
+                    endpoint.bulkhead.release();
+                }
+            }
+        };
+    }
+
+    private void onResult(Endpoint endpoint, boolean failure, boolean slow) {
+        int before = endpoint.breaker.getState();
+        int after = endpoint.breaker.record(failure, slow, minimumCalls, failureRateThreshold, slowCallRateThreshold);
+        if (before != after) {
+            if (after == STATE_OPEN) {
+                log.warn("{}接口熔断，{} ms 内拒绝请求", endpoint.apiEnum.getDescription(), openDurationMillis);
+            } else if (after == STATE_CLOSED) {
+                log.info("{}接口熔断恢复", endpoint.apiEnum.getDescription());
+            }
+        }
+    }
+
+    /**
+     * 是否计入熔断失败：HTTP 状态码异常只有 5xx 和 429 计入，其余异常（网络异常、解析失败）都计入
+     */
+    private static boolean isFailure(IOException e) {
+        if (e instanceof HttpStatusException statusException) {
+            return isRetryableStatus(statusException.getStatusCode());
+        }
+        return true;
+    }
+
+    /**
+     * 是否重试：5xx、429 和网络异常（异常链中有 IOException）重试，解析失败等不重试
+     */
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof HttpStatusException statusException) {
+            return isRetryableStatus(statusException.getStatusCode());
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRetryableStatus(int statusCode) {
+        return statusCode >= 500 || statusCode == 429;
+    }
+
+    /**
+     * 指数退避 + 完全随机抖动：[0, min(上限, 基数 × 2^(n-1))]
+     */
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 20));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void increment(String name, String description, ApiEnum apiEnum) {
+        if (meterRegistry != null) {
+            Counter.builder(name)
+                    .description(description)
+                    .tag("api", apiEnum.name())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * 单个 API 的容错配置和状态
+     */
+    private static class Endpoint {
+
+        private final ApiEnum apiEnum;
+
+        private final int connectTimeoutMillis;
+
+        private final int readTimeoutMillis;
+
+        private final Semaphore bulkhead;
+
+        private final CircuitBreaker breaker;
+
+        private final RetryBudget retryBudget;
+
+        Endpoint(ApiEnum apiEnum, int connectTimeoutMillis, int readTimeoutMillis, int maxConcurrent,
+                 CircuitBreaker breaker, RetryBudget retryBudget) {
+            this.apiEnum = apiEnum;
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            this.readTimeoutMillis = readTimeoutMillis;
+            this.bulkhead = new Semaphore(Math.max(1, maxConcurrent), true);
+            this.breaker = breaker;
+            this.retryBudget = retryBudget;
+        }
+    }
+
+    /**
+     * 熔断器：基于最近 N 次调用结果的环形窗口
+     */
+    private static class CircuitBreaker {
+
+        private final boolean[] failures;
+
+        private final boolean[] slows;
+
+        private final int halfOpenCalls;
+
+        private int size;
+
+        private int next;
+
+        private int failureCount;
+
+        private int slowCount;
+
+        private int state = STATE_CLOSED;
+
+        private long openedAtMillis;
+
+        /**
+         * 半开状态已放行的试探请求数
+         */
+        private int trialCalls;
+
+        /**
+         * 半开状态已成功的试探请求数
+         */
+        private int trialSuccesses;
+
+        CircuitBreaker(int windowSize, int halfOpenCalls) {
+            this.failures = new boolean[windowSize];
+            this.slows = new boolean[windowSize];
+            this.halfOpenCalls = halfOpenCalls;
+        }
+
+        synchronized int getState() {
+            return state;
+        }
+
+        /**
+         * 是否放行请求（熔断时长过后转为半开并放行有限的试探请求）
+         */
+        synchronized boolean tryAcquire(long openDurationMillis) {
+            if (state == STATE_OPEN) {
+                if (System.currentTimeMillis() - openedAtMillis < openDurationMillis) {
+                    return false;
+                }
+                state = STATE_HALF_OPEN;
+                trialCalls = 0;
+                trialSuccesses = 0;
+            }
+            if (state == STATE_HALF_OPEN) {
+                if (trialCalls >= halfOpenCalls) {
+                    return false;
+                }
+                trialCalls++;
+            }
+            return true;
+        }
+
+        /**
+         * 放行的请求未产生可统计的结果时归还试探名额
+         */
+        synchronized void release() {
+            if (state == STATE_HALF_OPEN && trialCalls > 0) {
+                trialCalls--;
+            }
+        }
+
+        /**
+         * 记录调用结果并返回新的状态
+         */
+        synchronized int record(boolean failure, boolean slow, int minimumCalls,
+                                double failureRateThreshold, double slowCallRateThreshold) {
+            if (state == STATE_HALF_OPEN) {
+                if (failure || slow) {
+                    open();
+                } else if (++trialSuccesses >= halfOpenCalls) {
+                    reset();
+                }
+                return state;
+            }
+            if (state == STATE_OPEN) {
+                return state;
+            }
+            if (size == failures.length) {
+                failureCount -= failures[next] ? 1 : 0;
+                slowCount -= slows[next] ? 1 : 0;
+            } else {
+                size++;
+            }
+            failures[next] = failure;
+            slows[next] = slow;
+            failureCount += failure ? 1 : 0;
+            slowCount += slow ? 1 : 0;
+            next = (next + 1) % failures.length;
+
+            if (size >= Math.min(minimumCalls, failures.length)
+                    && ((double) failureCount / size >= failureRateThreshold
+                    || (double) slowCount / size >= slowCallRateThreshold)) {
+                open();
+            }
+            return state;
+        }
+
+        private void open() {
+            state = STATE_OPEN;
+            openedAtMillis = System.currentTimeMillis();
+        }
+
+        private void reset() {
+            state = STATE_CLOSED;
+            size = 0;
+            next = 0;
+            failureCount = 0;
+            slowCount = 0;
+        }
+    }
+
+    /**
+     * 重试预算：首次请求存入令牌，重试消耗令牌
+     */
+    private class RetryBudget {
+
+        private double balance = retryBudgetMin;
+
+        synchronized void deposit() {
+            balance = Math.min(Math.max(retryBudgetMin, retryBudgetMax), balance + retryBudgetRatio);
+        }
+
+        synchronized boolean tryWithdraw() {
+            if (balance < 1.0) {
+                return false;
+            }
+            balance -= 1.0;
+            return true;
+        }
+
+        synchronized double getBalance() {
+            return balance;
+        }
+    }
+}
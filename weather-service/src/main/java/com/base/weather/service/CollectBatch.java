@@ -0,0 +1,80 @@
+package com.base.weather.service;
+
+import com.base.weather.constant.ApiEnum;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 采集批次
+ * <p>
+ * 在一次采集（通常是同一位置分组内的若干策略）中缓存已解析的 API 响应：
+ * 同一 API 类型 + 同一位置只调用一次上游接口，其余策略直接复用响应结果。
+ * 并发调用同一个键时，只有第一个线程真正发起请求，其他线程等待其结果。
+ */
+public class CollectBatch {
+
+    /**
+     * 响应加载器
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    private final Map<String, CompletableFuture<Object>> responses = new ConcurrentHashMap<>();
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    private final AtomicInteger sharedCount = new AtomicInteger();
+
+    /**
+     * 获取响应，本批次内首次请求时调用加载器，之后直接复用
+     *
+     * @param apiEnum     API 类型
+     * @param locationKey 位置键（需已规范化）
+     * @param loader      响应加载器
+     * @return 响应对象（加载器返回 null 时也返回 null）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fetch(ApiEnum apiEnum, String locationKey, Loader<T> loader) {
+        String key = apiEnum.name() + "|" + locationKey;
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = responses.putIfAbsent(key, created);
+        if (existing == null) {
+            loadCount.incrementAndGet();
+            try {
+                T response = loader.load();
+                created.complete(response);
+                return response;
+            } catch (Exception e) {
+                created.completeExceptionally(e);
+                throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e.getMessage(), e);
+            }
+        }
+        sharedCount.incrementAndGet();
+        try {
+            return (T) existing.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * @return 实际调用上游接口的次数
+     */
+    public int getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * @return 复用已有响应的次数
+     */
+    public int getSharedCount() {
+        return sharedCount.get();
+    }
+}
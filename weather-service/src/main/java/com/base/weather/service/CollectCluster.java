@@ -0,0 +1,175 @@
+package com.base.weather.service;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.mapper.CollectNodeMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 采集集群（多节点分片采集）
+ * <p>
+ * 多个节点同时运行定时采集时，每个节点只采集属于自己的策略，而不是每个节点都采集全部策略：
+ * 1. 各节点定时向 collect_node 表写入心跳（使用数据库时间），心跳超时的节点视为下线
+ * 2. 策略按位置分组键在存活节点间做最高随机权重哈希（rendezvous hashing），同一位置的策略落在同一节点，
+ * 仍可共用一次上游请求；节点上下线时只有该节点的分片会迁移
+ * 3. 节点正常关闭时删除自己的心跳记录，其他节点在下次心跳时立即接管；异常下线的节点在心跳超时后被接管
+ * 4. 心跳写入失败时沿用最近一次的存活节点列表（宁可重复采集，不遗漏）
+ * <p>
+ * 未启用（collect.cluster.enabled=false）时当前节点拥有全部策略
+ */
+@Slf4j
+@Component
+public class CollectCluster {
+
+    /**
+     * 是否启用集群分片（需先执行 sql/upgrade/008_collect_node.sql）
+     */
+    @Value("${collect.cluster.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 节点心跳超时时长（秒），应为心跳间隔的数倍
+     */
+    @Value("${collect.cluster.node-timeout-seconds:30}")
+    private long nodeTimeoutSeconds;
+
+    /**
+     * 下线节点记录的保留时长（秒），超过后删除
+     */
+    @Value("${collect.cluster.node-retention-seconds:86400}")
+    private long nodeRetentionSeconds;
+
+    @Resource
+    private CollectNodeMapper collectNodeMapper;
+
+    /**
+     * 当前节点ID：主机名 + 随机后缀（同一主机多个实例、重启后均不相同）
+     */
+    private final String nodeId = hostName() + "-" + IdWorker.get32UUID().substring(0, 8);
+
+    /**
+     * 存活节点（按节点ID排序，包含当前节点）
+     */
+    private volatile List<String> liveNodes = Collections.singletonList(nodeId);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            log.info("采集集群分片已启用，当前节点: {}", nodeId);
+            heartbeat();
+        }
+    }
+
+    /**
+     * 定时写入心跳并刷新存活节点
+     */
+    @Scheduled(fixedDelayString = "${collect.cluster.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            collectNodeMapper.heartbeat(nodeId, hostName());
+            List<String> nodes = new ArrayList<>(collectNodeMapper.listLiveNodes(nodeTimeoutSeconds));
+            if (!nodes.contains(nodeId)) {
+                nodes.add(nodeId);
+                Collections.sort(nodes);
+            }
+            if (!nodes.equals(liveNodes)) {
+                log.info("采集集群存活节点变化: {} -> {}", liveNodes, nodes);
+                liveNodes = Collections.unmodifiableList(nodes);
+            }
+            collectNodeMapper.deleteStaleNodes(Math.max(nodeRetentionSeconds, nodeTimeoutSeconds));
+        } catch (Exception e) {
+            log.warn("采集集群心跳失败，沿用当前存活节点: {}", liveNodes, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            collectNodeMapper.deleteNode(nodeId);
+            log.info("采集集群节点 {} 已下线", nodeId);
+        } catch (Exception e) {
+            log.warn("采集集群节点 {} 下线失败，将在心跳超时后被其他节点接管", nodeId, e);
+        }
+    }
+
+    /**
+     * 当前节点是否负责该策略
+     *
+     * @param strategy 策略
+     * @return 未启用集群分片时始终返回 true
+     */
+    public boolean owns(WeatherStrategy strategy) {
+        return !enabled || nodeId.equals(ownerOf(CollectPlanner.locationKey(strategy)));
+    }
+
+    /**
+     * 过滤出当前节点负责的策略
+     *
+     * @param strategies 策略列表
+     * @return 当前节点负责的策略（未启用集群分片时原样返回）
+     */
+    public List<WeatherStrategy> filterOwned(List<WeatherStrategy> strategies) {
+        if (!enabled || strategies == null) {
+            return strategies;
+        }
+        List<WeatherStrategy> owned = new ArrayList<>();
+        for (WeatherStrategy strategy : strategies) {
+            if (owns(strategy)) {
+                owned.add(strategy);
+            }
+        }
+        log.info("采集集群分片：节点 {}（共 {} 个存活节点）负责 {}/{} 个策略", nodeId, liveNodes.size(),
+                owned.size(), strategies.size());
+        return owned;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<String> getLiveNodes() {
+        return liveNodes;
+    }
+
+    /**
+     * 最高随机权重哈希：得分最高的节点负责该键
+     */
+    private String ownerOf(String key) {
+        String owner = null;
+        long maxScore = Long.MIN_VALUE;
+        for (String node : liveNodes) {
+            long score = CollectPlanner.stableHash(node + "|" + key);
+            if (owner == null || score > maxScore) {
+                owner = node;
+                maxScore = score;
+            }
+        }
+        return owner;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
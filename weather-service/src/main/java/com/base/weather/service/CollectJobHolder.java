@@ -0,0 +1,38 @@
+package com.base.weather.service;
+
+/**
+ * 异步采集任务上下文
+ * <p>
+ * 策略新增/更新时提交的异步采集任务ID绑定到当前请求线程，供接口层返回给调用方
+ */
+public class CollectJobHolder {
+
+    private static final ThreadLocal<String> JOB_ID = new ThreadLocal<>();
+
+    /**
+     * 绑定当前线程提交的采集任务ID
+     *
+     * @param jobId 任务ID
+     */
+    public static void set(String jobId) {
+        JOB_ID.set(jobId);
+    }
+
+    /**
+     * 清除当前线程绑定的采集任务ID（调用可能提交采集任务的方法之前调用，避免读取到线程上次遗留的任务ID）
+     */
+    public static void clear() {
+        JOB_ID.remove();
+    }
+
+    /**
+     * 获取并清除当前线程提交的采集任务ID
+     *
+     * @return 任务ID，没有提交采集任务时返回 null
+     */
+    public static String take() {
+        String jobId = JOB_ID.get();
+        JOB_ID.remove();
+        return jobId;
+    }
+}
@@ -0,0 +1,278 @@
+package com.base.weather.service;
+
+import com.base.common.util.HttpUtils;
+import com.base.weather.constant.ApiEnum;
+import com.base.weather.entity.WeatherData;
+import com.base.weather.entity.dto.CollectRunResult;
+import com.base.weather.entity.dto.UpsertResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 采集链路指标
+ * <p>
+ * 统一记录采集链路各环节的指标，标签只使用枚举类取值（API、指标名、采集层级等），避免高基数：
+ * 1. 上游接口：请求耗时（按 API、状态码、结果，响应体中有业务状态码时按业务状态码）、响应字节数、JSON 解析耗时
+ * 2. 数据提取：每次写入的各指标行数
+ * 3. 数据写入：upsert 耗时（按写入方式）和插入/更新/未变化行数
+ * 4. 采集任务：每次任务耗时、各层级成功/失败/超时策略数，以及注册表中各优先级的策略数
+ * <p>
+ * 不存在 MeterRegistry 时所有方法为空操作
+ */
+@Component
+public class CollectMetrics {
+
+    /**
+     * 采集层级：实时天气
+     */
+    public static final String TIER_REALTIME = "realtime";
+
+    /**
+     * 采集层级：紧急优先级预报
+     */
+    public static final String TIER_FORECAST_URGENT = "forecast_urgent";
+
+    /**
+     * 采集层级：普通优先级预报
+     */
+    public static final String TIER_FORECAST_NORMAL = "forecast_normal";
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Lazy
+    private StrategyRegistry strategyRegistry;
+
+    private final Map<ApiEnum, ApiMeters> apiMeters = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        for (ApiEnum apiEnum : ApiEnum.values()) {
+            apiMeters.put(apiEnum, new ApiMeters(apiEnum));
+        }
+        for (int priority : new int[]{CollectPriorityHolder.PRIORITY_URGENT, CollectPriorityHolder.PRIORITY_NORMAL}) {
+            Gauge.builder("weather.strategy.active", strategyRegistry, registry -> registry.getByPriority(priority).size())
+                    .description("注册表中可采集的策略数")
+                    .tag("priority", String.valueOf(priority))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 上游接口单次请求的观察者，每次请求（含重试、对冲）各创建一个
+     *
+     * @param apiEnum API 类型
+     * @return 请求观察者，不存在 MeterRegistry 时返回 null
+     */
+    public ApiRequestObserver apiObserver(ApiEnum apiEnum) {
+        ApiMeters meters = apiMeters.get(apiEnum);
+        return meters != null ? new ApiRequestObserver(meters) : null;
+    }
+
+    /**
+     * 按层级获取预报采集的层级标签
+     *
+     * @param priority 优先级（0-紧急，其他-普通）
+     * @return 层级标签
+     */
+    public static String forecastTier(Integer priority) {
+        return priority != null && priority == CollectPriorityHolder.PRIORITY_URGENT ? TIER_FORECAST_URGENT : TIER_FORECAST_NORMAL;
+    }
+
+    /**
+     * 记录一次写入提取到的各指标行数
+     *
+     * @param dataList 写入的天气数据（去重前）
+     */
+    public void recordExtracted(List<WeatherData> dataList) {
+        if (meterRegistry == null || dataList == null || dataList.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (WeatherData data : dataList) {
+            counts.merge(data.getIndicatorName() != null ? data.getIndicatorName() : "unknown", 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            Counter.builder("weather.collect.rows")
+                    .description("提取的天气数据行数")
+                    .tag("indicator", entry.getKey())
+                    .register(meterRegistry)
+                    .increment(entry.getValue());
+        }
+    }
+
+    /**
+     * 记录一次 upsert 写入
+     *
+     * @param mode         写入方式（insert、copy）
+     * @param elapsedNanos 耗时（纳秒，不含宽表和汇总表刷新）
+     * @param result       写入结果
+     */
+    public void recordUpsert(String mode, long elapsedNanos, UpsertResult result) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.builder("weather.db.upsert")
+                .description("天气数据 upsert 耗时")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        incrementRows("inserted", result.getInsertedCount());
+        incrementRows("updated", result.getUpdatedCount());
+        incrementRows("unchanged", result.getUnchangedCount());
+    }
+
+    /**
+     * 记录一次定时采集任务
+     *
+     * @param tier   采集层级
+     * @param result 任务执行结果
+     */
+    public void recordRun(String tier, CollectRunResult result) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.builder("weather.collect.run")
+                .description("采集任务耗时")
+                .tag("tier", tier)
+                .register(meterRegistry)
+                .record(result.getElapsedMillis(), TimeUnit.MILLISECONDS);
+        incrementStrategies(tier, "success", result.getSuccessCount());
+        incrementStrategies(tier, "fail", result.getFailCount());
+        incrementStrategies(tier, "timeout", result.getTimeoutCount());
+    }
+
+    /**
+     * 记录单个策略的采集结果（分散调度模式下没有整体任务）
+     *
+     * @param tier    采集层级
+     * @param success 是否成功
+     */
+    public void recordStrategy(String tier, boolean success) {
+        incrementStrategies(tier, success ? "success" : "fail", 1);
+    }
+
+    private void incrementRows(String result, int count) {
+        if (count > 0) {
+            Counter.builder("weather.db.rows")
+                    .description("天气数据写入行数")
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+
+    private void incrementStrategies(String tier, String result, int count) {
+        if (meterRegistry != null && count > 0) {
+            Counter.builder("weather.collect.strategies")
+                    .description("采集的策略数")
+                    .tag("tier", tier)
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+
+    /**
+     * 上游接口单次请求的观察者
+     * <p>
+     * HTTP 请求成功时先记录响应字节数和解析耗时，请求耗时等检查响应体中的业务状态码后由 {@link #onChecked} 记录：
+     * 业务状态码异常（HTTP 200 但响应体返回错误码）按业务状态码和 error 记录，不计为成功
+     */
+    public static final class ApiRequestObserver implements HttpUtils.RequestObserver {
+
+        private final ApiMeters meters;
+
+        private int statusCode;
+
+        private long elapsedNanos = -1;
+
+        private ApiRequestObserver(ApiMeters meters) {
+            this.meters = meters;
+        }
+
+        @Override
+        public void onComplete(int statusCode, long bytes, long responseNanos, long parseNanos) {
+            this.statusCode = statusCode;
+            this.elapsedNanos = responseNanos + parseNanos;
+            meters.responseBytes.record(bytes);
+            meters.parseTimer.record(parseNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void onError(int statusCode, long elapsedNanos, Exception error) {
+            meters.requestTimer(statusCode > 0 ? String.valueOf(statusCode) : "none", "error")
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * 检查业务状态码后记录请求耗时
+         *
+         * @param businessCode 响应体中的业务状态码，响应没有业务状态码时为 null（按 HTTP 状态码记录）
+         * @param success      业务状态码是否正常
+         */
+        public void onChecked(String businessCode, boolean success) {
+            if (elapsedNanos < 0) {
+                return;
+            }
+            String status;
+            if (businessCode == null) {
+                status = String.valueOf(statusCode);
+            } else {
+                // 业务状态码为三位数字，其他取值统一记录，避免高基数
+                status = businessCode.matches("\\d{3}") ? businessCode : "invalid";
+            }
+            meters.requestTimer(status, success ? "success" : "error").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 单个 API 的指标（状态码按具体值打标签，取值有限）
+     */
+    private class ApiMeters {
+
+        private final ApiEnum apiEnum;
+
+        private final DistributionSummary responseBytes;
+
+        private final Timer parseTimer;
+
+        ApiMeters(ApiEnum apiEnum) {
+            this.apiEnum = apiEnum;
+            this.responseBytes = DistributionSummary.builder("weather.api.response.bytes")
+                    .description("上游接口响应体字节数（已解压）")
+                    .baseUnit("bytes")
+                    .tag("api", apiEnum.name())
+                    .register(meterRegistry);
+            this.parseTimer = Timer.builder("weather.api.parse")
+                    .description("上游接口响应解析耗时")
+                    .tag("api", apiEnum.name())
+                    .register(meterRegistry);
+        }
+
+        private Timer requestTimer(String status, String outcome) {
+            return Timer.builder("weather.api.request")
+                    .description("上游接口请求耗时")
+                    .tag("api", apiEnum.name())
+                    .tag("status", status)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.base.weather.service;
+
+import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.util.LocationUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 采集计划
+ * <p>
+ * 将待采集的策略按规范化后的位置分组，同一分组内的策略共用一个 {@link CollectBatch}，
+ * 从而每个位置、每种 API 类型只调用一次上游接口
+ */
+public class CollectPlanner {
+
+    /**
+     * 按位置分组
+     * <p>
+     * 有经纬度的策略按规范化经纬度分组；只有城市名称的按城市分组；都没有的单独成组（采集时会被跳过）
+     *
+     * @param strategies 待采集策略
+     * @return 位置分组（保持原有顺序）
+     */
+    public static Collection<List<WeatherStrategy>> groupByLocation(List<WeatherStrategy> strategies) {
+        Map<String, List<WeatherStrategy>> groups = new LinkedHashMap<>();
+        if (strategies == null) {
+            return groups.values();
+        }
+        for (WeatherStrategy strategy : strategies) {
+            groups.computeIfAbsent(locationKey(strategy), k -> new ArrayList<>()).add(strategy);
+        }
+        return groups.values();
+    }
+
+    /**
+     * 策略的位置分组键：规范化经纬度或城市，都没有时使用策略ID
+     *
+     * @param strategy 策略
+     * @return 位置分组键
+     */
+    public static String locationKey(WeatherStrategy strategy) {
+        String key = LocationUtils.locationKey(strategy.getTargetLatitude(), strategy.getTargetLongitude(),
+                strategy.getCityName());
+        return key != null ? key : "strategy:" + strategy.getId();
+    }
+
+    /**
+     * 稳定的64位哈希（FNV-1a 后再做一次混合），不依赖 JVM 实例，各节点、重启前后结果一致
+     *
+     * @param value 字符串
+     * @return 哈希值
+     */
+    public static long stableHash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // splitmix64 混合，改善相近字符串的分布
+        hash ^= hash >>> 30;
+        hash *= 0xbf58476d1ce4e5b9L;
+        hash ^= hash >>> 27;
+        hash *= 0x94d049bb133111ebL;
+        hash ^= hash >>> 31;
+        return hash;
+    }
+}
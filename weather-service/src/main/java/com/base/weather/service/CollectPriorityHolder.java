@@ -0,0 +1,58 @@
+package com.base.weather.service;
+
+/**
+ * 采集优先级上下文
+ * <p>
+ * 采集某个策略期间，将策略优先级绑定到当前线程，供限流器在额度紧张时区分紧急和普通请求
+ */
+public class CollectPriorityHolder {
+
+    /**
+     * 紧急优先级
+     */
+    public static final int PRIORITY_URGENT = 0;
+
+    /**
+     * 普通优先级
+     */
+    public static final int PRIORITY_NORMAL = 1;
+
+    private static final ThreadLocal<Integer> PRIORITY = new ThreadLocal<>();
+
+    /**
+     * 绑定优先级
+     *
+     * @param priority 策略优先级（0-紧急，1-普通），为 null 时按普通处理
+     * @return 绑定前的优先级，用于 {@link #restore(Integer)}
+     */
+    public static Integer set(Integer priority) {
+        Integer previous = PRIORITY.get();
+        PRIORITY.set(priority != null ? priority : PRIORITY_NORMAL);
+        return previous;
+    }
+
+    /**
+     * 恢复绑定前的优先级
+     *
+     * @param previous {@link #set(Integer)} 的返回值
+     */
+    public static void restore(Integer previous) {
+        if (previous == null) {
+            PRIORITY.remove();
+        } else {
+            PRIORITY.set(previous);
+        }
+    }
+
+    /**
+     * 获取当前线程的优先级
+     * <p>
+     * 未绑定策略的调用（如接口中手动触发的查询）视为紧急
+     *
+     * @return 优先级
+     */
+    public static int get() {
+        Integer priority = PRIORITY.get();
+        return priority != null ? priority : PRIORITY_URGENT;
+    }
+}
@@ -0,0 +1,443 @@
+package com.base.weather.service;
+
+import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.util.DateTimeUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按策略分散调度的采集调度器（collect.scheduler.mode=spread 时启用，替代 {@link WeatherCollectTasks} 的固定 cron）
+ * <p>
+ * 固定 cron 会让同一档位的所有策略在同一时刻触发，集中冲击上游接口。本调度器为每个策略、每种采集类型计算下次到期时间，
+ * 放入按到期时间排序的延迟队列，到期后再提交到采集执行器：
+ * 1. 采集周期由优先级决定（紧急/普通预报、实时），且不短于上游数据的刷新周期
+ * 2. 到期时间在周期内的相位由位置哈希决定，不同位置均匀分布在整个周期内，重启后保持不变；
+ * 同一位置的策略相位相同，同时到期并共用一个 {@link CollectBatch}，仍然只调用一次上游接口
+ * 3. 每个周期再叠加按位置和周期计算的抖动，避免相位恰好相同的位置持续同时触发
+ * 4. 预报采集在采集开始时间前 forecast-lead-days 天开始；实时采集只在采集期内的日期进行；超过采集结束时间不再调度
+ * 5. 策略来自 {@link StrategyRegistry}，到期时重新读取，已删除、取消、完成的策略直接丢弃；新增的策略由定时同步补充
+ * 6. 启用集群分片时，到期的策略只由 {@link CollectCluster} 判定负责该分片的节点采集
+ */
+@Slf4j
+@Component
+public class CollectScheduler {
+
+    public static final String MODE_SPREAD = "spread";
+
+    /**
+     * 调度模式：cron（按固定 cron 集中采集）、spread（本调度器按策略分散采集）
+     */
+    @Value("${collect.scheduler.mode:cron}")
+    private String mode;
+
+    /**
+     * 紧急优先级预报采集周期（分钟）
+     */
+    @Value("${collect.scheduler.forecast-urgent-interval-minutes:360}")
+    private long forecastUrgentIntervalMinutes;
+
+    /**
+     * 普通优先级预报采集周期（分钟）
+     */
+    @Value("${collect.scheduler.forecast-normal-interval-minutes:720}")
+    private long forecastNormalIntervalMinutes;
+
+    /**
+     * 实时天气采集周期（分钟）
+     */
+    @Value("${collect.scheduler.realtime-interval-minutes:1440}")
+    private long realtimeIntervalMinutes;
+
+    /**
+     * 上游数据刷新周期（分钟），采集周期不短于该值
+     */
+    @Value("${collect.scheduler.provider-refresh-minutes:60}")
+    private long providerRefreshMinutes;
+
+    /**
+     * 每个周期叠加的最大抖动（秒）
+     */
+    @Value("${collect.scheduler.jitter-seconds:300}")
+    private long jitterSeconds;
+
+    /**
+     * 预报采集提前于采集开始时间的天数（预报数据只覆盖未来若干天）
+     */
+    @Value("${collect.scheduler.forecast-lead-days:7}")
+    private long forecastLeadDays;
+
+    /**
+     * 与策略注册表同步（补充新增策略、处理到期策略）的间隔（毫秒）
+     */
+    @Value("${collect.scheduler.sync-interval-ms:60000}")
+    private long syncIntervalMillis;
+
+    @Autowired
+    private StrategyRegistry strategyRegistry;
+
+    @Autowired
+    private WeatherDataService weatherDataService;
+
+    @Autowired
+    private WeatherCollectExecutor collectExecutor;
+
+    @Autowired
+    private CollectCluster collectCluster;
+
+    @Autowired
+    private CollectMetrics collectMetrics;
+
+    private final DelayQueue<DueItem> queue = new DelayQueue<>();
+
+    /**
+     * 已在队列中的调度项：策略ID + 采集类型 -> 调度项
+     */
+    private final Map<String, DueItem> scheduled = new ConcurrentHashMap<>();
+
+    private Thread dispatcher;
+
+    private volatile boolean running;
+
+    /**
+     * 采集类型
+     */
+    private enum Kind {
+        REALTIME("实时天气"),
+        FORECAST("预报");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "weather-collect-scheduler");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("分散采集调度器已启动，预报周期: 紧急 {} 分钟 / 普通 {} 分钟，实时周期: {} 分钟，抖动: {} 秒",
+                forecastUrgentIntervalMinutes, forecastNormalIntervalMinutes, realtimeIntervalMinutes, jitterSeconds);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return MODE_SPREAD.equalsIgnoreCase(mode);
+    }
+
+    private void dispatchLoop() {
+        long nextSyncMillis = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now >= nextSyncMillis) {
+                    sync(now);
+                    nextSyncMillis = now + Math.max(1000L, syncIntervalMillis);
+                }
+                DueItem first = queue.poll(Math.max(1L, nextSyncMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // 同一时刻到期的调度项一起取出，按位置分组后提交
+                List<DueItem> dueItems = new ArrayList<>();
+                dueItems.add(first);
+                queue.drainTo(dueItems);
+                dispatch(dueItems, System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("分散采集调度异常", e);
+            }
+        }
+    }
+
+    /**
+     * 与策略注册表同步：处理到期策略；为尚未调度的策略加入队列，
+     * 策略修改（优先级、位置、采集时间）导致调度参数变化的重新调度（旧调度项到期时丢弃）
+     * <p>
+     * 只比较调度参数（周期、位置、采集窗口），不比较到期时间：按当前时间重新计算的到期时间可能落在下一个周期，
+     * 若据此重新调度，会让已排队但尚未到期的调度项不断后移而永远不触发
+     *
+     * @param now 当前时间（毫秒时间戳）
+     */
+    void sync(long now) {
+        strategyRegistry.completeExpired();
+        int changed = 0;
+        for (WeatherStrategy strategy : strategyRegistry.getAll()) {
+            for (Kind kind : Kind.values()) {
+                DueItem existing = scheduled.get(key(strategy.getId(), kind));
+                Plan plan = plan(strategy, kind);
+                boolean changedPlan = existing == null
+                        ? plan != null && nextDueMillis(plan, now) >= 0
+                        : plan == null || !plan.signature.equals(existing.signature);
+                if (changedPlan) {
+                    schedule(strategy.getId(), kind, plan, now);
+                    changed++;
+                }
+            }
+        }
+        if (changed > 0) {
+            log.info("分散采集调度器新增或调整调度项: {}，队列长度: {}", changed, queue.size());
+        }
+    }
+
+    /**
+     * 按晚于指定时间的下次到期时间加入队列，替换同一策略同一类型的旧调度项；不需要调度或已超过采集结束时间时只移除旧调度项
+     */
+    private void schedule(String strategyId, Kind kind, Plan plan, long afterMillis) {
+        long dueMillis = plan != null ? nextDueMillis(plan, afterMillis) : -1;
+        if (dueMillis < 0) {
+            scheduled.remove(key(strategyId, kind));
+            return;
+        }
+        DueItem item = new DueItem(strategyId, kind, dueMillis, plan.signature);
+        scheduled.put(item.key(), item);
+        queue.add(item);
+    }
+
+    /**
+     * 取出并分发到期时间不晚于指定时间的调度项（按指定时间推进调度，不依赖系统时钟）
+     *
+     * @param now 当前时间（毫秒时间戳）
+     */
+    void dispatchDue(long now) {
+        List<DueItem> dueItems = new ArrayList<>();
+        for (DueItem item : queue) {
+            if (item.dueMillis <= now) {
+                dueItems.add(item);
+            }
+        }
+        queue.removeAll(dueItems);
+        dispatch(dueItems, now);
+    }
+
+    private void dispatch(List<DueItem> dueItems, long now) {
+        LocalDate today = Instant.ofEpochMilli(now).atZone(ZoneId.systemDefault()).toLocalDate();
+        // 采集类型 + 位置 -> 策略
+        Map<String, List<WeatherStrategy>> groups = new LinkedHashMap<>();
+        Map<String, Kind> groupKinds = new LinkedHashMap<>();
+        for (DueItem item : dueItems) {
+            // 到期时重新读取，已删除、取消、完成的策略不再调度
+            WeatherStrategy strategy = strategyRegistry.get(item.strategyId);
+            if (scheduled.get(item.key()) != item) {
+                // 已被重新调度的旧调度项
+                continue;
+            }
+            if (strategy == null) {
+                scheduled.remove(item.key(), item);
+                continue;
+            }
+            // 多节点时所有节点按相同的到期时间调度，只有负责该分片的节点采集
+            if (isCollectable(strategy, item.kind, today) && collectCluster.owns(strategy)) {
+                String groupKey = item.kind + "|" + CollectPlanner.locationKey(strategy);
+                groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(strategy);
+                groupKinds.put(groupKey, item.kind);
+            }
+            schedule(strategy.getId(), item.kind, plan(strategy, item.kind), Math.max(now, item.dueMillis));
+        }
+        for (Map.Entry<String, List<WeatherStrategy>> group : groups.entrySet()) {
+            Kind kind = groupKinds.get(group.getKey());
+            List<WeatherStrategy> strategies = group.getValue();
+            collectExecutor.submit(() -> collect(kind, strategies));
+        }
+    }
+
+    private void collect(Kind kind, List<WeatherStrategy> strategies) {
+        CollectBatch batch = new CollectBatch();
+        for (WeatherStrategy strategy : strategies) {
+            String tier = kind == Kind.REALTIME ? CollectMetrics.TIER_REALTIME
+                    : CollectMetrics.forecastTier(strategy.getTargetPriority());
+            try {
+                if (kind == Kind.REALTIME) {
+                    weatherDataService.collectWeatherData(strategy, batch);
+                } else {
+                    weatherDataService.collectForecastDataByTimeRange(strategy, batch);
+                }
+                log.debug("策略 {} {}数据分散采集完成", strategy.getId(), kind.description);
+                collectMetrics.recordStrategy(tier, true);
+            } catch (Exception e) {
+                collectMetrics.recordStrategy(tier, false);
+                log.error("策略 {} ({})分散采集异常", strategy.getId(), kind.description, e);
+            }
+        }
+    }
+
+    /**
+     * 到期时是否采集：预报采集需要配置采集开始/结束时间；实时采集只在采集期内的日期进行
+     */
+    private static boolean isCollectable(WeatherStrategy strategy, Kind kind, LocalDate today) {
+        if (kind == Kind.FORECAST) {
+            return StringUtils.hasText(strategy.getCollectStart()) && StringUtils.hasText(strategy.getCollectEnd());
+        }
+        LocalDateTime start = DateTimeUtils.parseDateTime(strategy.getCollectStart());
+        LocalDateTime end = DateTimeUtils.parseDateTime(strategy.getCollectEnd());
+        return (start == null || !start.toLocalDate().isAfter(today))
+                && (end == null || !end.toLocalDate().isBefore(today));
+    }
+
+    /**
+     * 计算策略某种采集类型的调度参数：采集周期、位置、采集窗口
+     *
+     * @return 调度参数，不需要该类型采集时返回 null
+     */
+    private Plan plan(WeatherStrategy strategy, Kind kind) {
+        LocalDateTime start = DateTimeUtils.parseDateTime(strategy.getCollectStart());
+        LocalDateTime end = DateTimeUtils.parseDateTime(strategy.getCollectEnd());
+        long windowStart;
+        long windowEnd;
+        if (kind == Kind.FORECAST) {
+            if (!StringUtils.hasText(strategy.getCollectStart()) || !StringUtils.hasText(strategy.getCollectEnd())) {
+                return null;
+            }
+            windowStart = start != null ? toMillis(start.minusDays(forecastLeadDays)) : Long.MIN_VALUE;
+            windowEnd = end != null ? toMillis(end) : Long.MAX_VALUE;
+        } else {
+            windowStart = start != null ? toMillis(start.toLocalDate().atStartOfDay()) : Long.MIN_VALUE;
+            windowEnd = end != null ? toMillis(end.toLocalDate().plusDays(1).atStartOfDay()) : Long.MAX_VALUE;
+        }
+        long intervalMillis = TimeUnit.MINUTES.toMillis(Math.max(intervalMinutes(strategy, kind), Math.max(1L, providerRefreshMinutes)));
+        return new Plan(kind, CollectPlanner.locationKey(strategy), intervalMillis, windowStart, windowEnd);
+    }
+
+    /**
+     * 计算晚于指定时间的下次到期时间
+     * <p>
+     * 到期时间 = 相位 + k × 周期 + 抖动，相位由位置哈希决定；早于采集窗口时推迟到窗口开始后的第一个周期。
+     * 抖动按周期计算，当前周期的基准时间已过但叠加抖动后的到期时间未到时，仍然取当前周期
+     *
+     * @return 到期时间（毫秒时间戳），超过采集结束时间时返回 -1
+     */
+    private long nextDueMillis(Plan plan, long afterMillis) {
+        long intervalMillis = plan.intervalMillis;
+        long phase = Math.floorMod(CollectPlanner.stableHash(plan.kind + "|" + plan.locationKey), intervalMillis);
+        long from = Math.max(afterMillis, plan.windowStart);
+        long cycle = Math.floorDiv(from - phase, intervalMillis);
+        long dueMillis = phase + cycle * intervalMillis + jitterMillis(plan.locationKey, cycle, intervalMillis);
+        if (dueMillis <= from) {
+            // 当前周期已到期，取下一个周期
+            cycle++;
+            dueMillis = phase + cycle * intervalMillis + jitterMillis(plan.locationKey, cycle, intervalMillis);
+        }
+        return dueMillis < plan.windowEnd ? dueMillis : -1;
+    }
+
+    private long intervalMinutes(WeatherStrategy strategy, Kind kind) {
+        if (kind == Kind.REALTIME) {
+            return realtimeIntervalMinutes;
+        }
+        Integer priority = strategy.getTargetPriority();
+        return priority != null && priority == 0 ? forecastUrgentIntervalMinutes : forecastNormalIntervalMinutes;
+    }
+
+    /**
+     * 按位置和周期计算的抖动，同一位置同一周期的抖动相同（保证同一位置的策略同时到期）；不超过周期的一半
+     */
+    private long jitterMillis(String locationKey, long cycle, long intervalMillis) {
+        long maxJitter = Math.min(TimeUnit.SECONDS.toMillis(Math.max(0L, jitterSeconds)), intervalMillis / 2);
+        if (maxJitter <= 0) {
+            return 0;
+        }
+        return Math.floorMod(CollectPlanner.stableHash(locationKey + "#" + cycle), maxJitter);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String key(String strategyId, Kind kind) {
+        return strategyId + "|" + kind;
+    }
+
+    /**
+     * 调度参数：采集类型 + 位置 + 采集周期 + 采集窗口，签名相同时到期时间的计算方式不变
+     */
+    private static final class Plan {
+
+        private final Kind kind;
+
+        private final String locationKey;
+
+        private final long intervalMillis;
+
+        private final long windowStart;
+
+        private final long windowEnd;
+
+        private final String signature;
+
+        Plan(Kind kind, String locationKey, long intervalMillis, long windowStart, long windowEnd) {
+            this.kind = kind;
+            this.locationKey = locationKey;
+            this.intervalMillis = intervalMillis;
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            this.signature = intervalMillis + "|" + locationKey + "|" + windowStart + "|" + windowEnd;
+        }
+    }
+
+    /**
+     * 调度项：策略ID + 采集类型 + 到期时间 + 计算到期时间所用调度参数的签名
+     */
+    private static final class DueItem implements Delayed {
+
+        private final String strategyId;
+
+        private final Kind kind;
+
+        private final long dueMillis;
+
+        private final String signature;
+
+        DueItem(String strategyId, Kind kind, long dueMillis, String signature) {
+            this.strategyId = strategyId;
+            this.kind = kind;
+            this.dueMillis = dueMillis;
+            this.signature = signature;
+        }
+
+        String key() {
+            return CollectScheduler.key(strategyId, kind);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueMillis, ((DueItem) other).dueMillis);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.base.weather.service;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.base.common.constant.DelFlagConst;
+import com.base.weather.constant.CollectStatusEnum;
+import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.entity.dto.CollectJobStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预报数据异步采集队列
+ * <p>
+ * 策略新增、更新、导入后需要立即采集的预报数据不在请求线程中同步采集，而是提交到本队列：
+ * 1. 在事务中提交时，事务提交后才开始采集（回滚则取消），避免采集期间长时间占用事务
+ * 2. 采集在采集执行器的线程池中执行，与定时采集共用全局并发上限
+ * 3. 同一策略已在队列中等待采集时不重复排队
+ * 4. 每次提交生成一个任务ID，可查询任务进度
+ */
+@Slf4j
+@Component
+public class ForecastCollectQueue {
+
+    /**
+     * 已完成任务状态的保留时长（分钟）
+     */
+    @Value("${collect.queue.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    @Autowired
+    private WeatherCollectExecutor weatherCollectExecutor;
+
+    @Autowired
+    @Lazy
+    private WeatherDataService weatherDataService;
+
+    @Autowired
+    @Lazy
+    private WeatherStrategyService weatherStrategyService;
+
+    /**
+     * 任务ID -> 任务
+     */
+    private final Map<String, CollectJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 正在排队（尚未开始采集）的策略ID -> 任务ID
+     */
+    private final Map<String, String> queuedStrategies = new ConcurrentHashMap<>();
+
+    /**
+     * 提交预报采集任务
+     * <p>
+     * 当前线程存在事务时，事务提交后再开始采集；否则立即排队。任务ID同时绑定到 {@link CollectJobHolder}
+     *
+     * @param strategies 需要采集的策略
+     * @param source     任务来源（用于日志和状态查询）
+     * @return 任务ID，没有需要采集的策略时返回 null
+     */
+    public String submit(Collection<WeatherStrategy> strategies, String source) {
+        if (strategies == null || strategies.isEmpty()) {
+            return null;
+        }
+        removeExpiredJobs();
+        List<String> strategyIds = new ArrayList<>(strategies.size());
+        for (WeatherStrategy strategy : strategies) {
+            if (strategy != null && strategy.getId() != null) {
+                strategyIds.add(strategy.getId());
+            }
+        }
+        if (strategyIds.isEmpty()) {
+            return null;
+        }
+        CollectJob job = new CollectJob(IdWorker.get32UUID(), source, strategyIds.size());
+        jobs.put(job.jobId, job);
+        CollectJobHolder.set(job.jobId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        dispatch(job, strategyIds);
+                    } else {
+                        job.cancel();
+                        log.info("采集任务 {}（{}）所在事务未提交，已取消", job.jobId, source);
+                    }
+                }
+            });
+        } else {
+            dispatch(job, strategyIds);
+        }
+        return job.jobId;
+    }
+
+    /**
+     * 查询任务状态
+     *
+     * @param jobId 任务ID
+     * @return 任务状态，不存在或已过期时返回 null
+     */
+    public CollectJobStatus getStatus(String jobId) {
+        CollectJob job = jobId != null ? jobs.get(jobId) : null;
+        return job != null ? job.snapshot() : null;
+    }
+
+    private void dispatch(CollectJob job, List<String> strategyIds) {
+        log.info("采集任务 {}（{}）开始排队，策略数: {}", job.jobId, job.source, strategyIds.size());
+        for (String strategyId : strategyIds) {
+            // 同一策略已在排队中：本次不再重复采集
+            if (queuedStrategies.putIfAbsent(strategyId, job.jobId) != null) {
+                job.deduplicated();
+                continue;
+            }
+            try {
+                weatherCollectExecutor.submit(() -> collect(job, strategyId));
+            } catch (Exception e) {
+                queuedStrategies.remove(strategyId, job.jobId);
+                job.failed();
+                log.error("策略 {} 提交异步采集失败", strategyId, e);
+            }
+        }
+    }
+
+    private void collect(CollectJob job, String strategyId) {
+        // 开始采集后允许同一策略再次排队（例如采集期间策略又被更新）
+        queuedStrategies.remove(strategyId, job.jobId);
+        job.running();
+        try {
+            // 执行时重新读取策略，使用排队期间的最新配置
+            WeatherStrategy strategy = weatherStrategyService.getById(strategyId);
+            if (strategy == null || Objects.equals(DelFlagConst.DELETED_INT, strategy.getDelFlag())
+                    || String.valueOf(CollectStatusEnum.CANCELLED.getCode()).equals(strategy.getCollectStatus())) {
+                log.info("策略 {} 已删除或已取消，跳过异步采集（任务 {}）", strategyId, job.jobId);
+                job.skipped();
+                return;
+            }
+            // 排队任务按策略优先级限流，未绑定时限流器按紧急处理
+            Integer previousPriority = CollectPriorityHolder.set(strategy.getTargetPriority());
+            try {
+                weatherDataService.collectForecastDataByTimeRange(strategy);
+            } finally {
+                CollectPriorityHolder.restore(previousPriority);
+            }
+            job.succeeded();
+        } catch (Exception e) {
+            job.failed();
+            log.error("策略 {} 异步采集预报数据失败（任务 {}）", strategyId, job.jobId, e);
+        }
+    }
+
+    private void removeExpiredJobs() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.isExpired(expireBefore));
+    }
+
+    /**
+     * 异步采集任务（计数线程安全）
+     */
+    private static class CollectJob {
+
+        private final String jobId;
+
+        private final String source;
+
+        private final int totalCount;
+
+        private final Date createTime = new Date();
+
+        private String status = CollectJobStatus.STATUS_QUEUED;
+
+        private int successCount;
+
+        private int failCount;
+
+        private int deduplicatedCount;
+
+        private int skippedCount;
+
+        private Date finishTime;
+
+        CollectJob(String jobId, String source, int totalCount) {
+            this.jobId = jobId;
+            this.source = source;
+            this.totalCount = totalCount;
+        }
+
+        synchronized void running() {
+            if (CollectJobStatus.STATUS_QUEUED.equals(status)) {
+                status = CollectJobStatus.STATUS_RUNNING;
+            }
+        }
+
+        synchronized void succeeded() {
+            successCount++;
+            checkFinished();
+        }
+
+        synchronized void failed() {
+            failCount++;
+            checkFinished();
+        }
+
+        synchronized void deduplicated() {
+            deduplicatedCount++;
+            checkFinished();
+        }
+
+        synchronized void skipped() {
+            skippedCount++;
+            checkFinished();
+        }
+
+        synchronized void cancel() {
+            status = CollectJobStatus.STATUS_CANCELLED;
+            finishTime = new Date();
+        }
+
+        synchronized boolean isExpired(long expireBefore) {
+            return finishTime != null && finishTime.getTime() < expireBefore;
+        }
+
+        private void checkFinished() {
+            if (successCount + failCount + deduplicatedCount + skippedCount >= totalCount) {
+                status = CollectJobStatus.STATUS_FINISHED;
+                finishTime = new Date();
+            }
+        }
+
+        synchronized CollectJobStatus snapshot() {
+            CollectJobStatus snapshot = new CollectJobStatus();
+            snapshot.setJobId(jobId);
+            snapshot.setSource(source);
+            snapshot.setStatus(status);
+            snapshot.setTotalCount(totalCount);
+            snapshot.setSuccessCount(successCount);
+            snapshot.setFailCount(failCount);
+            snapshot.setDeduplicatedCount(deduplicatedCount);
+            snapshot.setSkippedCount(skippedCount);
+            snapshot.setCreateTime(createTime);
+            snapshot.setFinishTime(finishTime);
+            return snapshot;
+        }
+    }
+}
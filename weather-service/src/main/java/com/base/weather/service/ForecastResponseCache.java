@@ -0,0 +1,230 @@
+package com.base.weather.service;
+
+import com.base.weather.constant.ApiEnum;
+import com.base.weather.entity.dto.HourlyAirQualityResponse;
+import com.base.weather.entity.dto.HourlyForecastWeatherResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预报响应缓存
+ * <p>
+ * 逐小时天气预报和空气质量小时预报按（网格化经纬度、API 类型）缓存，跨采集任务共享：
+ * 1. 经纬度按网格步长对齐，附近站点共用同一网格的预报
+ * 2. 缓存的预报小时数大于等于请求的小时数时直接复用（168h 的响应同样可以满足 24h、72h 的请求）
+ * 3. 缓存在数据源下一次更新前有效（根据响应的更新时间和数据源更新间隔计算）
+ * 4. 同一网格、同一 API、同一小时数的并发请求只调用一次上游接口
+ */
+@Slf4j
+@Component
+public class ForecastResponseCache {
+
+    /**
+     * 预报加载器，入参为对齐网格后的经纬度
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(Double latitude, Double longitude) throws Exception;
+    }
+
+    /**
+     * 网格步长（度）
+     */
+    @Value("${collect.forecast-cache.grid-step:0.01}")
+    private BigDecimal gridStep;
+
+    /**
+     * 逐小时天气预报的数据源更新间隔（分钟）
+     */
+    @Value("${collect.forecast-cache.weather-update-minutes:60}")
+    private long weatherUpdateMinutes;
+
+    /**
+     * 空气质量小时预报的数据源更新间隔（分钟）
+     */
+    @Value("${collect.forecast-cache.air-update-minutes:60}")
+    private long airUpdateMinutes;
+
+    /**
+     * 最短缓存时长（分钟），避免更新时间已过但数据源尚未发布新数据时反复请求
+     */
+    @Value("${collect.forecast-cache.min-ttl-minutes:5}")
+    private long minTtlMinutes;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder("weather.forecast.cache.hits", hitCount, AtomicLong::get)
+                .description("预报响应缓存命中次数")
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.forecast.cache.misses", missCount, AtomicLong::get)
+                .description("预报响应缓存未命中次数")
+                .register(meterRegistry);
+        Gauge.builder("weather.forecast.cache.size", entries, Map::size)
+                .description("预报响应缓存条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取预报响应，缓存中没有满足条件的响应时调用加载器
+     *
+     * @param apiEnum      API 类型
+     * @param latitude     纬度
+     * @param longitude    经度
+     * @param horizonHours 需要的预报小时数
+     * @param loader       加载器（使用对齐网格后的经纬度请求上游接口）
+     * @return 预报响应
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ApiEnum apiEnum, Double latitude, Double longitude, int horizonHours, Loader<T> loader) {
+        Double gridLatitude = snap(latitude);
+        Double gridLongitude = snap(longitude);
+        String key = apiEnum.name() + "|" + gridLongitude + "," + gridLatitude;
+
+        CacheEntry entry = entries.get(key);
+        if (entry != null && entry.horizonHours >= horizonHours && entry.expireAt > System.currentTimeMillis()) {
+            hitCount.incrementAndGet();
+            return (T) entry.response;
+        }
+
+        String flightKey = key + "|" + horizonHours;
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, created);
+        if (existing != null) {
+            hitCount.incrementAndGet();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause.getMessage(), cause);
+            }
+        }
+
+        missCount.incrementAndGet();
+        try {
+            T response = loader.load(gridLatitude, gridLongitude);
+            store(key, apiEnum, horizonHours, response);
+            created.complete(response);
+            return response;
+        } catch (Exception e) {
+            created.completeExceptionally(e);
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e.getMessage(), e);
+        } finally {
+            inFlight.remove(flightKey, created);
+        }
+    }
+
+    /**
+     * 定期清理已过期的条目
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000L)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expireAt <= now);
+    }
+
+    private void store(String key, ApiEnum apiEnum, int horizonHours, Object response) {
+        if (!isCacheable(response)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expireAt = computeExpireAt(apiEnum, response, now);
+        CacheEntry newEntry = new CacheEntry(response, horizonHours, expireAt);
+        // 未过期的更长小时数响应不被较短的响应覆盖
+        entries.merge(key, newEntry, (old, candidate) ->
+                old.expireAt > now && old.horizonHours > candidate.horizonHours ? old : candidate);
+    }
+
+    private long computeExpireAt(ApiEnum apiEnum, Object response, long now) {
+        long minExpireAt = now + TimeUnit.MINUTES.toMillis(minTtlMinutes);
+        if (apiEnum == ApiEnum.HOURLY_FORECAST_WEATHER) {
+            long updateAt = parseUpdateTime(((HourlyForecastWeatherResponse) response).getUpdateTime(), now);
+            return Math.max(minExpireAt, updateAt + TimeUnit.MINUTES.toMillis(weatherUpdateMinutes));
+        }
+        return Math.max(minExpireAt, now + TimeUnit.MINUTES.toMillis(airUpdateMinutes));
+    }
+
+    private static boolean isCacheable(Object response) {
+        if (response instanceof HourlyForecastWeatherResponse) {
+            HourlyForecastWeatherResponse weather = (HourlyForecastWeatherResponse) response;
+            return "200".equals(weather.getCode()) && weather.getHourly() != null;
+        }
+        if (response instanceof HourlyAirQualityResponse) {
+            return ((HourlyAirQualityResponse) response).getHours() != null;
+        }
+        return false;
+    }
+
+    /**
+     * 解析和风天气的更新时间（例如：2021-02-16T13:35+08:00），解析失败时使用当前时间
+     */
+    private static long parseUpdateTime(String updateTime, long now) {
+        if (!StringUtils.hasText(updateTime)) {
+            return now;
+        }
+        try {
+            long updateAt = OffsetDateTime.parse(updateTime).toInstant().toEpochMilli();
+            return Math.min(updateAt, now);
+        } catch (Exception e) {
+            log.debug("预报更新时间解析失败: {}", updateTime);
+            return now;
+        }
+    }
+
+    /**
+     * 经纬度按网格步长对齐
+     */
+    private Double snap(Double coordinate) {
+        if (coordinate == null) {
+            return null;
+        }
+        BigDecimal cells = BigDecimal.valueOf(coordinate).divide(gridStep, 0, RoundingMode.HALF_UP);
+        return cells.multiply(gridStep).stripTrailingZeros().doubleValue();
+    }
+
+    private static class CacheEntry {
+
+        private final Object response;
+
+        private final int horizonHours;
+
+        private final long expireAt;
+
+        CacheEntry(Object response, int horizonHours, long expireAt) {
+            this.response = response;
+            this.horizonHours = horizonHours;
+            this.expireAt = expireAt;
+        }
+    }
+}
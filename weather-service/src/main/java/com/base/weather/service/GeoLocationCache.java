@@ -0,0 +1,273 @@
+package com.base.weather.service;
+
+import com.alibaba.fastjson.JSON;
+import com.base.weather.entity.dto.GeoCityResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 城市位置查询缓存
+ * <p>
+ * 城市经纬度几乎不会变化，对 GEO_CITY 查询结果做有界缓存：
+ * 1. 按最近最少使用淘汰，超过容量时淘汰最久未访问的城市
+ * 2. 按时间过期，确认查不到的城市名称（加载器返回 null 或空列表）同样缓存（过期时间更短），避免反复查询；
+ * 加载器抛出异常（如限流、服务端错误）时不缓存
+ * 3. 配置持久化文件时，定期及停机时将未过期的条目写入该文件，启动时加载，避免冷启动时大量消耗查询额度；
+ * 默认不持久化
+ */
+@Slf4j
+@Component
+public class GeoLocationCache {
+
+    /**
+     * 城市位置加载器
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<GeoCityResponse.Location> load() throws IOException;
+    }
+
+    /**
+     * 最大缓存城市数
+     */
+    @Value("${collect.geo-cache.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * 查询成功结果的缓存时长（小时）
+     */
+    @Value("${collect.geo-cache.ttl-hours:720}")
+    private long ttlHours;
+
+    /**
+     * 查询不到的城市名称的缓存时长（小时）
+     */
+    @Value("${collect.geo-cache.negative-ttl-hours:6}")
+    private long negativeTtlHours;
+
+    /**
+     * 持久化文件路径（建议使用绝对路径，相对路径基于进程工作目录），为空时不持久化
+     */
+    @Value("${collect.geo-cache.file:}")
+    private String persistFile;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * 访问顺序的 LinkedHashMap，超过容量时淘汰最久未访问的条目（访问需持有 this 锁）
+     */
+    private Map<String, CacheEntry> entries;
+
+    @PostConstruct
+    public void init() {
+        int capacity = Math.max(1, maxSize);
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > capacity) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        load();
+        registerMetrics();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        save();
+    }
+
+    /**
+     * 获取城市位置，缓存未命中时调用加载器并缓存结果
+     *
+     * @param cityName 城市名称
+     * @param loader   加载器，返回 null 或空列表表示确认查询不到，其他失败应抛出异常
+     * @return 城市位置列表，查询不到时返回 null
+     * @throws IOException 加载器异常（异常结果不缓存）
+     */
+    public List<GeoCityResponse.Location> get(String cityName, Loader loader) throws IOException {
+        String key = normalizeKey(cityName);
+        if (key == null) {
+            return loader.load();
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.getExpireAt() > now) {
+                    hitCount.incrementAndGet();
+                    return entry.getLocations();
+                }
+                entries.remove(key);
+                evictionCount.incrementAndGet();
+            }
+        }
+        missCount.incrementAndGet();
+        List<GeoCityResponse.Location> locations = loader.load();
+        boolean found = locations != null && !locations.isEmpty();
+        long ttlMillis = TimeUnit.HOURS.toMillis(found ? ttlHours : negativeTtlHours);
+        CacheEntry entry = new CacheEntry();
+        entry.setName(key);
+        entry.setLocations(found ? Collections.unmodifiableList(new ArrayList<>(locations)) : null);
+        entry.setExpireAt(System.currentTimeMillis() + ttlMillis);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+        return entry.getLocations();
+    }
+
+    /**
+     * 定期将未过期的条目写入持久化文件
+     */
+    @Scheduled(fixedDelayString = "${collect.geo-cache.persist-interval-ms:600000}",
+            initialDelayString = "${collect.geo-cache.persist-interval-ms:600000}")
+    public void persist() {
+        save();
+    }
+
+    /**
+     * @return 当前缓存条目数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void load() {
+        if (!StringUtils.hasText(persistFile)) {
+            return;
+        }
+        Path path = Paths.get(persistFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            List<CacheEntry> persisted = JSON.parseArray(content, CacheEntry.class);
+            long now = System.currentTimeMillis();
+            int loaded = 0;
+            synchronized (this) {
+                for (CacheEntry entry : persisted) {
+                    if (entry.getName() != null && entry.getExpireAt() > now) {
+                        entries.put(entry.getName(), entry);
+                        loaded++;
+                    }
+                }
+            }
+            log.info("城市位置缓存加载完成，文件: {}, 加载条目: {}", persistFile, loaded);
+        } catch (Exception e) {
+            log.warn("城市位置缓存加载失败，文件: {}", persistFile, e);
+        }
+    }
+
+    private void save() {
+        if (!StringUtils.hasText(persistFile) || entries == null) {
+            return;
+        }
+        List<CacheEntry> snapshot = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                CacheEntry entry = iterator.next();
+                if (entry.getExpireAt() > now) {
+                    snapshot.add(entry);
+                }
+            }
+        }
+        try {
+            Path path = Paths.get(persistFile).toAbsolutePath();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            // 先写临时文件再替换，避免写入中途停机导致文件损坏
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tmp, JSON.toJSONString(snapshot).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            log.info("城市位置缓存已保存，文件: {}, 条目数: {}", persistFile, snapshot.size());
+        } catch (Exception e) {
+            log.warn("城市位置缓存保存失败，文件: {}", persistFile, e);
+        }
+    }
+
+    private void registerMetrics() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder("weather.geo.cache.hits", hitCount, AtomicLong::get)
+                .description("城市位置缓存命中次数")
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.geo.cache.misses", missCount, AtomicLong::get)
+                .description("城市位置缓存未命中次数")
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.geo.cache.evictions", evictionCount, AtomicLong::get)
+                .description("城市位置缓存淘汰次数（超出容量或过期）")
+                .register(meterRegistry);
+        Gauge.builder("weather.geo.cache.size", this, GeoLocationCache::size)
+                .description("城市位置缓存条目数")
+                .register(meterRegistry);
+    }
+
+    private static String normalizeKey(String cityName) {
+        if (!StringUtils.hasText(cityName)) {
+            return null;
+        }
+        return cityName.trim().toLowerCase();
+    }
+
+    /**
+     * 缓存条目（同时作为持久化格式）
+     */
+    @Data
+    public static class CacheEntry {
+
+        /**
+         * 规范化后的城市名称
+         */
+        private String name;
+
+        /**
+         * 城市位置列表，查询不到时为 null
+         */
+        private List<GeoCityResponse.Location> locations;
+
+        /**
+         * 过期时间（毫秒时间戳）
+         */
+        private long expireAt;
+    }
+}
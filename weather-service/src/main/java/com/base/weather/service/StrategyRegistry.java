@@ -0,0 +1,478 @@
+package com.base.weather.service;
+
+import com.base.common.constant.DelFlagConst;
+import com.base.weather.constant.CollectStatusEnum;
+import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.mapper.WeatherStrategyMapper;
+import com.base.weather.util.DateTimeUtils;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 策略注册表
+ * <p>
+ * 在内存中维护需要采集的策略（未删除，且不是采集完成、已取消状态），采集开始/结束时间预先解析，
+ * 并按优先级、采集状态、采集开始时间、采集结束时间建立索引，定时任务只访问到期的策略，不再每次全表查询：
+ * 1. 启动时全量加载，之后每隔 collect.registry.full-refresh-minutes 分钟全量重建一次
+ * 2. 策略新增、修改、取消、删除时由业务代码通知（事务提交后生效）
+ * 3. 定时按 COALESCE(update_time, create_time) 增量查询其他节点或直接修改数据库产生的变更
+ * <p>
+ * 策略和索引保存在一个快照中：全量重建时在新快照中构建完成后整体替换，读取方不会看到空的或部分加载的注册表；
+ * 增量变更（加锁）直接应用到当前快照
+ * <p>
+ * 返回的策略对象为注册表内部实例，调用方只读使用
+ */
+@Slf4j
+@Component
+public class StrategyRegistry {
+
+    /**
+     * 未设置优先级的策略按普通优先级处理
+     */
+    private static final int DEFAULT_PRIORITY = 1;
+
+    private static final Comparator<Entry> BY_START = Comparator
+            .comparing((Entry entry) -> entry.collectStart, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(entry -> entry.strategy.getId());
+
+    private static final Comparator<Entry> BY_END = Comparator
+            .comparing((Entry entry) -> entry.collectEnd)
+            .thenComparing(entry -> entry.strategy.getId());
+
+    /**
+     * 增量刷新时向前多查询的时长（毫秒），容忍各节点时钟偏差和长事务延迟提交
+     */
+    @Value("${collect.registry.refresh-overlap-ms:120000}")
+    private long refreshOverlapMillis;
+
+    /**
+     * 全量重建间隔（分钟），用于兜底修正增量刷新无法感知的变更（例如物理删除）
+     */
+    @Value("${collect.registry.full-refresh-minutes:60}")
+    private long fullRefreshMinutes;
+
+    @Resource
+    private WeatherStrategyMapper weatherStrategyMapper;
+
+    /**
+     * 当前快照（全量重建时整体替换）
+     */
+    private volatile Snapshot snapshot = new Snapshot();
+
+    /**
+     * 增量刷新水位：已同步到该时间为止的变更
+     */
+    private volatile Date watermark;
+
+    private volatile long lastFullLoadMillis;
+
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            ensureLoaded();
+        } catch (Exception e) {
+            log.error("策略注册表加载失败，将在首次使用时重试", e);
+        }
+    }
+
+    /**
+     * 定时增量刷新（到达全量重建间隔时全量重建）
+     */
+    @Scheduled(fixedDelayString = "${collect.registry.refresh-interval-ms:30000}")
+    public void refresh() {
+        try {
+            if (!loaded || System.currentTimeMillis() - lastFullLoadMillis >= TimeUnit.MINUTES.toMillis(fullRefreshMinutes)) {
+                reload();
+            } else {
+                refreshChanged();
+            }
+        } catch (Exception e) {
+            log.error("策略注册表刷新失败", e);
+        }
+    }
+
+    /**
+     * 全量重建
+     */
+    public synchronized void reload() {
+        // 先记录水位再查询，查询期间发生的变更由下次增量刷新补上
+        Date loadStart = new Date();
+        List<WeatherStrategy> strategies = weatherStrategyMapper.selectActiveStrategies();
+        Snapshot next = new Snapshot();
+        for (WeatherStrategy strategy : strategies) {
+            next.put(strategy);
+        }
+        snapshot = next;
+        watermark = loadStart;
+        lastFullLoadMillis = loadStart.getTime();
+        loaded = true;
+        log.info("策略注册表全量加载完成，需要采集的策略数: {}", next.entries.size());
+    }
+
+    /**
+     * 查询策略
+     *
+     * @param id 策略ID
+     * @return 策略，不存在或不需要采集时返回 null
+     */
+    public WeatherStrategy get(String id) {
+        ensureLoaded();
+        Entry entry = id != null ? snapshot.entries.get(id) : null;
+        return entry != null ? entry.strategy : null;
+    }
+
+    /**
+     * 查询全部需要采集的策略
+     *
+     * @return 策略列表
+     */
+    public List<WeatherStrategy> getAll() {
+        ensureLoaded();
+        Snapshot current = snapshot;
+        List<WeatherStrategy> result = new ArrayList<>(current.entries.size());
+        for (Entry entry : current.entries.values()) {
+            result.add(entry.strategy);
+        }
+        return result;
+    }
+
+    /**
+     * 查询指定优先级的策略
+     *
+     * @param priority 优先级（0-紧急，1-普通，未设置优先级的策略视为普通）
+     * @return 策略列表
+     */
+    public List<WeatherStrategy> getByPriority(int priority) {
+        ensureLoaded();
+        Snapshot current = snapshot;
+        return current.resolve(current.byPriority.getOrDefault(priority, Collections.emptySet()));
+    }
+
+    /**
+     * 查询指定采集状态的策略
+     *
+     * @param collectStatus 采集状态码
+     * @return 策略列表
+     */
+    public List<WeatherStrategy> getByStatus(String collectStatus) {
+        ensureLoaded();
+        Snapshot current = snapshot;
+        return current.resolve(current.byStatus.getOrDefault(collectStatus, Collections.emptySet()));
+    }
+
+    /**
+     * 查询在指定日期处于采集期内的策略（开始日期不晚于该日期，且结束日期不早于该日期）
+     * <p>
+     * 开始/结束时间未配置或无法解析时不做限制
+     *
+     * @param date 日期
+     * @return 策略列表
+     */
+    public List<WeatherStrategy> getInPeriod(LocalDate date) {
+        ensureLoaded();
+        LocalDateTime nextDay = date.plusDays(1).atStartOfDay();
+        List<WeatherStrategy> result = new ArrayList<>();
+        // 只遍历开始时间早于次日零点的策略
+        for (Entry entry : snapshot.startIndex) {
+            if (entry.collectStart != null && !entry.collectStart.isBefore(nextDay)) {
+                break;
+            }
+            if (entry.collectEnd == null || !entry.collectEnd.toLocalDate().isBefore(date)) {
+                result.add(entry.strategy);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询采集结束时间早于指定时间的策略（需要更新为采集完成）
+     *
+     * @param now 当前时间
+     * @return 策略列表
+     */
+    public List<WeatherStrategy> getExpired(LocalDateTime now) {
+        ensureLoaded();
+        List<WeatherStrategy> result = new ArrayList<>();
+        for (Entry entry : snapshot.endIndex) {
+            if (!entry.collectEnd.isBefore(now)) {
+                break;
+            }
+            result.add(entry.strategy);
+        }
+        return result;
+    }
+
+    /**
+     * 结束时间到期检查：采集结束时间早于当前时间的策略状态更新为采集完成，并移出注册表
+     *
+     * @return 更新为采集完成的策略数
+     */
+    public int completeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int completed = 0;
+        for (WeatherStrategy strategy : getExpired(now)) {
+            try {
+                WeatherStrategy update = new WeatherStrategy();
+                update.setId(strategy.getId());
+                update.setCollectStatus(String.valueOf(CollectStatusEnum.SUCCESS.getCode()));
+                update.setUpdateTime(new Date());
+                weatherStrategyMapper.updateById(update);
+                onRemoved(strategy.getId());
+                completed++;
+                log.info("策略 {} 已到期(collectEnd: {} < now: {})，状态更新为采集完成", strategy.getId(),
+                        strategy.getCollectEnd(), now);
+            } catch (Exception e) {
+                log.warn("策略 {} 到期状态更新失败，将在下次任务重试", strategy.getId(), e);
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * 策略已保存（新增或修改后的完整实体），当前线程存在事务时在事务提交后生效
+     *
+     * @param strategies 策略
+     */
+    public void onSaved(Collection<WeatherStrategy> strategies) {
+        if (strategies == null || strategies.isEmpty()) {
+            return;
+        }
+        List<WeatherStrategy> saved = new ArrayList<>(strategies);
+        afterCommit(() -> {
+            synchronized (this) {
+                for (WeatherStrategy strategy : saved) {
+                    apply(strategy);
+                }
+            }
+        });
+    }
+
+    /**
+     * 策略已修改（只更新了部分字段），重新从数据库读取，当前线程存在事务时在事务提交后生效
+     *
+     * @param id 策略ID
+     */
+    public void onChanged(String id) {
+        if (id == null) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                WeatherStrategy strategy = weatherStrategyMapper.selectById(id);
+                if (strategy == null) {
+                    snapshot.remove(id);
+                } else {
+                    apply(strategy);
+                }
+            }
+        });
+    }
+
+    /**
+     * 策略已取消、删除或采集完成，不再需要采集，当前线程存在事务时在事务提交后生效
+     *
+     * @param id 策略ID
+     */
+    public void onRemoved(String id) {
+        if (id == null) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                snapshot.remove(id);
+            }
+        });
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    /**
+     * 增量刷新：应用水位之后新增或修改的策略
+     */
+    private synchronized void refreshChanged() {
+        Date queryStart = new Date();
+        Date since = new Date(watermark.getTime() - refreshOverlapMillis);
+        List<WeatherStrategy> changed = weatherStrategyMapper.selectChangedSince(since);
+        for (WeatherStrategy strategy : changed) {
+            apply(strategy);
+        }
+        watermark = queryStart;
+        if (!changed.isEmpty()) {
+            log.debug("策略注册表增量刷新，变更策略数: {}，需要采集的策略数: {}", changed.size(), snapshot.entries.size());
+        }
+    }
+
+    /**
+     * 将策略变更应用到当前快照（调用方持有锁）
+     */
+    private void apply(WeatherStrategy strategy) {
+        if (isActive(strategy)) {
+            snapshot.put(strategy);
+        } else {
+            snapshot.remove(strategy.getId());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 是否需要采集：未删除，且不是采集完成、已取消状态
+     */
+    private static boolean isActive(WeatherStrategy strategy) {
+        if (strategy == null || strategy.getId() == null || strategy.getDelFlag() == DelFlagConst.DELETED_INT) {
+            return false;
+        }
+        String status = strategy.getCollectStatus();
+        return !String.valueOf(CollectStatusEnum.CANCELLED.getCode()).equals(status)
+                && !String.valueOf(CollectStatusEnum.SUCCESS.getCode()).equals(status);
+    }
+
+    private static String statusKey(WeatherStrategy strategy) {
+        return StringUtils.hasText(strategy.getCollectStatus()) ? strategy.getCollectStatus() : "";
+    }
+
+    /**
+     * 注册表快照：策略及各索引（写入由调用方加锁，读取无锁）
+     */
+    private static final class Snapshot {
+
+        /**
+         * 策略ID -> 策略
+         */
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        /**
+         * 优先级 -> 策略ID
+         */
+        private final Map<Integer, Set<String>> byPriority = new ConcurrentHashMap<>();
+
+        /**
+         * 采集状态 -> 策略ID
+         */
+        private final Map<String, Set<String>> byStatus = new ConcurrentHashMap<>();
+
+        /**
+         * 按采集开始时间排序（未配置开始时间的排在最前）
+         */
+        private final NavigableSet<Entry> startIndex = new ConcurrentSkipListSet<>(BY_START);
+
+        /**
+         * 按采集结束时间排序（只包含结束时间可解析的策略）
+         */
+        private final NavigableSet<Entry> endIndex = new ConcurrentSkipListSet<>(BY_END);
+
+        void put(WeatherStrategy strategy) {
+            Entry entry = new Entry(strategy);
+            // 先替换主表，按ID读取的调用方始终能读到策略
+            Entry previous = entries.put(strategy.getId(), entry);
+            if (previous != null) {
+                unindex(previous);
+            }
+            byPriority.computeIfAbsent(entry.priority, key -> ConcurrentHashMap.newKeySet()).add(strategy.getId());
+            byStatus.computeIfAbsent(statusKey(strategy), key -> ConcurrentHashMap.newKeySet()).add(strategy.getId());
+            startIndex.add(entry);
+            if (entry.collectEnd != null) {
+                endIndex.add(entry);
+            }
+        }
+
+        void remove(String id) {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                unindex(entry);
+            }
+        }
+
+        private void unindex(Entry entry) {
+            String id = entry.strategy.getId();
+            Set<String> priorityIds = byPriority.get(entry.priority);
+            if (priorityIds != null) {
+                priorityIds.remove(id);
+            }
+            Set<String> statusIds = byStatus.get(statusKey(entry.strategy));
+            if (statusIds != null) {
+                statusIds.remove(id);
+            }
+            startIndex.remove(entry);
+            if (entry.collectEnd != null) {
+                endIndex.remove(entry);
+            }
+        }
+
+        List<WeatherStrategy> resolve(Set<String> ids) {
+            List<WeatherStrategy> result = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    result.add(entry.strategy);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 注册表条目：策略及预先解析的优先级、采集开始/结束时间
+     */
+    private static final class Entry {
+
+        private final WeatherStrategy strategy;
+
+        private final int priority;
+
+        private final LocalDateTime collectStart;
+
+        private final LocalDateTime collectEnd;
+
+        Entry(WeatherStrategy strategy) {
+            this.strategy = strategy;
+            this.priority = strategy.getTargetPriority() != null ? strategy.getTargetPriority() : DEFAULT_PRIORITY;
+            this.collectStart = DateTimeUtils.parseDateTime(strategy.getCollectStart());
+            this.collectEnd = DateTimeUtils.parseDateTime(strategy.getCollectEnd());
+        }
+    }
+}
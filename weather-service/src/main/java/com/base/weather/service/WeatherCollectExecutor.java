@@ -0,0 +1,244 @@
+package com.base.weather.service;
+
+import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.entity.dto.CollectRunResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 天气采集执行器
+ * <p>
+ * 将按策略的采集动作并发执行：
+ * 1. 所有采集任务共用一个固定大小的线程池，线程数即全局最大并发采集数
+ * 2. 每次任务有截止时间，超过截止时间仍未开始执行的策略会被取消并计入超时，
+ * 正在执行的策略会被中断
+ * 3. 支持按分组执行：同一分组（如同一位置）的策略在同一线程内顺序执行并共享分组上下文
+ * 4. 返回与原串行循环一致的成功/失败计数（另外增加超时计数）
+ */
+@Slf4j
+@Component
+public class WeatherCollectExecutor {
+
+    /**
+     * 全局最大并发采集数（线程池大小）
+     */
+    @Value("${collect.executor.max-concurrency:16}")
+    private int maxConcurrency;
+
+    /**
+     * 单次采集任务的默认截止时长（分钟）
+     */
+    @Value("${collect.executor.run-timeout-minutes:300}")
+    private long runTimeoutMinutes;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = Math.max(1, maxConcurrency);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "weather-collect-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        log.info("天气采集执行器初始化完成，最大并发: {}, 默认截止时长: {} 分钟", poolSize, runTimeoutMinutes);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交单个异步采集任务（与定时采集共用线程池和全局并发上限），不等待执行结果
+     *
+     * @param task 采集任务
+     * @return 任务 Future
+     * @throws java.util.concurrent.RejectedExecutionException 执行器已关闭
+     */
+    public Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * 使用默认截止时长并发执行采集
+     *
+     * @param runName    任务名称（用于日志）
+     * @param strategies 需要采集的策略列表
+     * @param action     单个策略的采集动作，抛出异常视为失败
+     * @return 执行结果
+     */
+    public CollectRunResult execute(String runName, List<WeatherStrategy> strategies, Consumer<WeatherStrategy> action) {
+        return execute(runName, strategies, action, Duration.ofMinutes(runTimeoutMinutes));
+    }
+
+    /**
+     * 并发执行采集，并在截止时间到达时取消尚未完成的策略
+     *
+     * @param runName    任务名称（用于日志）
+     * @param strategies 需要采集的策略列表
+     * @param action     单个策略的采集动作，抛出异常视为失败
+     * @param timeout    本次任务的截止时长
+     * @return 执行结果
+     */
+    public CollectRunResult execute(String runName, List<WeatherStrategy> strategies,
+                                    Consumer<WeatherStrategy> action, Duration timeout) {
+        List<List<WeatherStrategy>> groups = new ArrayList<>();
+        if (strategies != null) {
+            for (WeatherStrategy strategy : strategies) {
+                groups.add(Collections.singletonList(strategy));
+            }
+        }
+        return executeGroups(runName, groups, () -> null, (strategy, context) -> action.accept(strategy), timeout);
+    }
+
+    /**
+     * 使用默认截止时长按分组并发执行采集
+     *
+     * @param runName        任务名称（用于日志）
+     * @param groups         策略分组（同一分组在同一线程内顺序执行）
+     * @param contextFactory 分组上下文工厂，每个分组创建一次，组内策略共享
+     * @param action         单个策略的采集动作，抛出异常视为失败
+     * @return 执行结果
+     */
+    public <C> CollectRunResult executeGroups(String runName, Collection<List<WeatherStrategy>> groups,
+                                              Supplier<C> contextFactory, BiConsumer<WeatherStrategy, C> action) {
+        return executeGroups(runName, groups, contextFactory, action, Duration.ofMinutes(runTimeoutMinutes));
+    }
+
+    /**
+     * 按分组并发执行采集
+     * <p>
+     * 不同分组并发执行，同一分组内的策略在同一线程内顺序执行并共享分组上下文；
+     * 截止时间到达后，尚未开始的分组整体计入超时，执行中的分组中断当前策略，当前策略和剩余策略计入超时。
+     * 每个策略的结果只由一方记录：分组内按顺序认领，截止处理一次性认领全部未记录结果的策略，
+     * 被认领后工作线程不再记录，返回结果中总数始终等于成功、失败、超时数之和
+     *
+     * @param runName        任务名称（用于日志）
+     * @param groups         策略分组
+     * @param contextFactory 分组上下文工厂，每个分组创建一次，组内策略共享
+     * @param action         单个策略的采集动作，抛出异常视为失败
+     * @param timeout        本次任务的截止时长
+     * @return 执行结果
+     */
+    public <C> CollectRunResult executeGroups(String runName, Collection<List<WeatherStrategy>> groups,
+                                              Supplier<C> contextFactory, BiConsumer<WeatherStrategy, C> action,
+                                              Duration timeout) {
+        long startNanos = System.nanoTime();
+        if (groups == null || groups.isEmpty()) {
+            return new CollectRunResult(0, 0, 0, 0, 0L);
+        }
+        long deadlineNanos = startNanos + timeout.toNanos();
+
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger failCount = new AtomicInteger();
+        AtomicInteger timeoutCount = new AtomicInteger();
+        int totalCount = 0;
+
+        List<Future<?>> futures = new ArrayList<>(groups.size());
+        // 每个分组已记录结果（或被截止处理认领）的策略数，等于分组大小时该分组不再记录任何结果
+        List<AtomicInteger> settledCounts = new ArrayList<>(groups.size());
+        List<Integer> groupSizes = new ArrayList<>(groups.size());
+        for (List<WeatherStrategy> group : groups) {
+            totalCount += group.size();
+            int groupSize = group.size();
+            AtomicInteger settled = new AtomicInteger();
+            settledCounts.add(settled);
+            groupSizes.add(groupSize);
+            futures.add(executor.submit(() -> {
+                // 已被截止处理认领的分组不再执行
+                if (settled.get() >= groupSize) {
+                    return;
+                }
+                C context = contextFactory.get();
+                for (int i = 0; i < groupSize; i++) {
+                    // 已被截止处理认领，或已超过截止时间、被中断的，剩余策略不再执行
+                    if (settled.get() != i) {
+                        return;
+                    }
+                    if (System.nanoTime() - deadlineNanos > 0 || Thread.currentThread().isInterrupted()) {
+                        timeoutCount.addAndGet(groupSize - settled.getAndSet(groupSize));
+                        return;
+                    }
+                    WeatherStrategy strategy = group.get(i);
+                    boolean success;
+                    try {
+                        action.accept(strategy, context);
+                        success = true;
+                    } catch (Exception e) {
+                        success = false;
+                        log.error("策略 {} ({})采集异常", strategy.getId(), runName, e);
+                    }
+                    // 执行期间被截止处理认领的策略已计入超时，不再记录
+                    if (settled.compareAndSet(i, i + 1)) {
+                        (success ? successCount : failCount).incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        // 等待全部完成，超过截止时间后取消剩余任务
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<?> future = futures.get(i);
+            long remaining = deadlineNanos - System.nanoTime();
+            if (!interrupted && remaining > 0) {
+                try {
+                    future.get(remaining, TimeUnit.NANOSECONDS);
+                    continue;
+                } catch (TimeoutException e) {
+                    // 到达截止时间，进入取消处理
+                } catch (CancellationException | ExecutionException e) {
+                    log.warn("{}采集任务异常结束", runName, e);
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                    log.warn("{}采集任务等待被中断，取消剩余策略", runName);
+                }
+            }
+            if (future.isDone()) {
+                continue;
+            }
+            // 认领全部未记录结果的策略并计入超时（尚未开始的分组整组计入，执行中的分组包括当前策略），
+            // 然后取消任务，执行中的分组中断等待中的请求
+            int groupSize = groupSizes.get(i);
+            timeoutCount.addAndGet(groupSize - settledCounts.get(i).getAndSet(groupSize));
+            future.cancel(true);
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (timeoutCount.get() > 0) {
+            log.warn("{}采集任务超过截止时间 {}，{} 个策略未完成", runName, timeout, timeoutCount.get());
+        }
+        return new CollectRunResult(totalCount, successCount.get(), failCount.get(),
+                timeoutCount.get(), elapsedMillis);
+    }
+}
@@ -0,0 +1,152 @@
+package com.base.weather.service;
+
+import com.alibaba.fastjson.JSON;
+import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.entity.req.WeatherDataExportReq;
+import com.base.weather.entity.vo.WeatherDataVo;
+import com.base.weather.mapper.WeatherDataMapper;
+import com.base.weather.mapper.WeatherDataWideMapper;
+import com.base.weather.util.WeatherDataVoUtils;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 天气数据导出器
+ * <p>
+ * 通过数据库游标逐行读取历史数据并直接写入输出流（CSV 或 NDJSON），
+ * 内存占用与导出的数据量无关。游标需要在事务内读取（PostgreSQL 只在非自动提交模式下按 fetchSize 分批获取）
+ */
+@Slf4j
+@Component
+public class WeatherDataExporter {
+
+    public static final String FORMAT_CSV = "csv";
+
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 每写入多少行刷新一次输出流，让客户端尽早收到数据
+     */
+    @Value("${collect.export.flush-rows:1000}")
+    private int flushRows;
+
+    /**
+     * 是否从宽表 weather_data_wide 导出
+     */
+    @Value("${collect.wide-table.read-enabled:false}")
+    private boolean wideTableReadEnabled;
+
+    @Resource
+    private WeatherDataMapper weatherDataMapper;
+
+    @Resource
+    private WeatherDataWideMapper weatherDataWideMapper;
+
+    /**
+     * 导出天气数据到输出流（不关闭输出流）
+     *
+     * @param exportReq 导出请求，包含策略ID列表、指标名称、时间范围和导出格式
+     * @param out       输出流
+     * @return 导出的行数
+     * @throws IOException 写入输出流失败（例如客户端断开连接）
+     */
+    @Transactional(readOnly = true)
+    public long export(WeatherDataExportReq exportReq, OutputStream out) throws IOException {
+        IndicatorEnum indicator = IndicatorEnum.getByName(exportReq.getIndicatorName());
+        if (StringUtils.hasText(exportReq.getIndicatorName()) && indicator == null) {
+            throw new IllegalArgumentException("未知的指标名称: " + exportReq.getIndicatorName());
+        }
+        boolean ndjson = FORMAT_NDJSON.equalsIgnoreCase(exportReq.getFormat());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long rows = 0;
+        try (Cursor<WeatherDataVo> cursor = openCursor(exportReq, indicator)) {
+            if (!ndjson) {
+                writeCsvHeader(writer);
+            }
+            for (WeatherDataVo vo : cursor) {
+                if (ndjson) {
+                    writer.write(JSON.toJSONString(vo));
+                    writer.write('\n');
+                } else {
+                    writeCsvRow(writer, vo);
+                }
+                rows++;
+                if (flushRows > 0 && rows % flushRows == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        log.info("导出天气数据完成，策略数: {}, 格式: {}, 行数: {}",
+                exportReq.getStrategyIds().size(), ndjson ? FORMAT_NDJSON : FORMAT_CSV, rows);
+        return rows;
+    }
+
+    private Cursor<WeatherDataVo> openCursor(WeatherDataExportReq exportReq, IndicatorEnum indicator) {
+        if (wideTableReadEnabled) {
+            return weatherDataWideMapper.exportHistory(exportReq.getStrategyIds(),
+                    indicator != null ? indicator.getColumnName() : null,
+                    exportReq.getStartTime(), exportReq.getEndTime());
+        }
+        return weatherDataMapper.exportHistory(exportReq.getStrategyIds(),
+                indicator != null ? indicator.name() : null,
+                exportReq.getStartTime(), exportReq.getEndTime());
+    }
+
+    private static void writeCsvHeader(Writer writer) throws IOException {
+        writer.write("strategyId,cityName,latitude,longitude,collectTime");
+        for (IndicatorEnum indicator : IndicatorEnum.values()) {
+            writer.write(',');
+            writer.write(indicator.name());
+        }
+        writer.write('\n');
+    }
+
+    private static void writeCsvRow(Writer writer, WeatherDataVo vo) throws IOException {
+        writeCsvField(writer, vo.getStrategyId());
+        writer.write(',');
+        writeCsvField(writer, vo.getCityName());
+        writer.write(',');
+        writeCsvField(writer, vo.getLatitude() != null ? vo.getLatitude().toString() : null);
+        writer.write(',');
+        writeCsvField(writer, vo.getLongitude() != null ? vo.getLongitude().toString() : null);
+        writer.write(',');
+        writeCsvField(writer, vo.getCollectTime() != null ? vo.getCollectTime().format(TIME_FORMAT) : null);
+        for (IndicatorEnum indicator : IndicatorEnum.values()) {
+            writer.write(',');
+            writeCsvField(writer, WeatherDataVoUtils.getIndicatorValue(vo, indicator));
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * 写入 CSV 字段，包含逗号、引号或换行时加引号并转义
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.base.weather.service;
+
+import com.base.weather.mapper.WeatherDataPartitionMapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * weather_data 分区管理
+ * <p>
+ * weather_data 按 collect_time 范围分区（按月或按周），本组件在启动时和每天定时：
+ * 1. 预先创建当前及未来若干个分区，避免数据落入默认分区
+ * 2. 卸载或删除超过保留期的分区
+ * 分区粒度与已有的当前或未来分区不一致时（如迁移脚本已建好按月分区后配置 interval=week），
+ * 新旧分区范围重叠，拒绝创建分区并记录错误，需先按新粒度重建分区。
+ * 表尚未迁移为分区表（见 sql/upgrade/003_weather_data_partition.sql）时不做任何处理
+ */
+@Slf4j
+@Component
+public class WeatherDataPartitionManager {
+
+    private static final String PARTITION_PREFIX = "weather_data_";
+
+    private static final Pattern MONTH_PARTITION = Pattern.compile("^weather_data_p(\\d{6})$");
+
+    private static final Pattern WEEK_PARTITION = Pattern.compile("^weather_data_w(\\d{8})$");
+
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final DateTimeFormatter DAY_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd 00:00:00");
+
+    /**
+     * 是否启用分区管理
+     */
+    @Value("${collect.partition.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 分区粒度：month（按月）、week（按周，周一开始），须与迁移脚本创建的分区一致
+     */
+    @Value("${collect.partition.interval:month}")
+    private String interval;
+
+    /**
+     * 预先创建的未来分区数量（不含当前分区）
+     */
+    @Value("${collect.partition.premake:3}")
+    private int premake;
+
+    /**
+     * 保留的历史分区数量（不含当前分区），小于等于0表示永久保留
+     */
+    @Value("${collect.partition.retention:0}")
+    private int retention;
+
+    /**
+     * 过期分区处理方式：detach（卸载，保留表用于归档）、drop（删除）
+     */
+    @Value("${collect.partition.expire-action:detach}")
+    private String expireAction;
+
+    @Resource
+    private WeatherDataPartitionMapper weatherDataPartitionMapper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintain();
+    }
+
+    /**
+     * 每天维护一次分区
+     */
+    @Scheduled(cron = "${collect.partition.cron:0 30 0 * * ?}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!weatherDataPartitionMapper.isPartitioned()) {
+                log.warn("weather_data 不是分区表，跳过分区维护，请先执行分区迁移脚本");
+                return;
+            }
+            boolean weekly = "week".equalsIgnoreCase(interval);
+            LocalDate today = LocalDate.now();
+            Set<String> existing = new HashSet<>(weatherDataPartitionMapper.listPartitions());
+            String conflict = findConflictingPartition(today, weekly, existing);
+            if (conflict != null) {
+                log.error("weather_data 已有{}分区 {} 覆盖当前或未来时间段，与配置的分区粒度 {} 重叠，跳过创建分区；"
+                                + "请先按配置的粒度重建分区（迁移脚本默认按月创建），或将 collect.partition.interval 改回",
+                        weekly ? "按月" : "按周", conflict, interval);
+            } else {
+                createFuturePartitions(today, weekly, existing);
+            }
+            if (retention > 0) {
+                expirePartitions(today, weekly, existing);
+            }
+        } catch (Exception e) {
+            log.error("weather_data 分区维护失败", e);
+        }
+    }
+
+    private void createFuturePartitions(LocalDate today, boolean weekly, Set<String> existing) {
+        LocalDate start = periodStart(today, weekly);
+        for (int i = 0; i <= premake; i++) {
+            LocalDate end = nextPeriod(start, weekly);
+            String name = partitionName(start, weekly);
+            if (!existing.contains(name)) {
+                try {
+                    weatherDataPartitionMapper.createPartition(name, start.format(BOUND_FORMAT), end.format(BOUND_FORMAT));
+                    log.info("创建 weather_data 分区: {} [{}, {})", name, start, end);
+                } catch (Exception e) {
+                    // 默认分区中已有该范围的数据时无法创建，需要人工迁移
+                    log.error("创建 weather_data 分区 {} 失败", name, e);
+                }
+            }
+            start = end;
+        }
+    }
+
+    private void expirePartitions(LocalDate today, boolean weekly, Set<String> existing) {
+        // 早于该时间结束的分区视为过期
+        LocalDate expireBefore = periodStart(today, weekly);
+        for (int i = 0; i < retention; i++) {
+            expireBefore = weekly ? expireBefore.minusWeeks(1) : expireBefore.minusMonths(1);
+        }
+        for (String name : existing) {
+            LocalDate start = parsePartitionStart(name);
+            if (start == null) {
+                continue;
+            }
+            boolean partitionWeekly = WEEK_PARTITION.matcher(name).matches();
+            if (nextPeriod(start, partitionWeekly).isAfter(expireBefore)) {
+                continue;
+            }
+            try {
+                if ("drop".equalsIgnoreCase(expireAction)) {
+                    weatherDataPartitionMapper.dropPartition(name);
+                    log.info("删除过期 weather_data 分区: {}", name);
+                } else {
+                    weatherDataPartitionMapper.detachPartition(name);
+                    log.info("卸载过期 weather_data 分区: {}（表保留，可归档后删除）", name);
+                }
+            } catch (Exception e) {
+                log.error("处理过期 weather_data 分区 {} 失败", name, e);
+            }
+        }
+    }
+
+    /**
+     * 查找与配置粒度不一致、且覆盖当前或未来时间段的分区（创建新分区时范围会重叠）
+     *
+     * @return 冲突的分区名，没有时返回 null
+     */
+    private static String findConflictingPartition(LocalDate today, boolean weekly, Set<String> existing) {
+        LocalDate currentStart = periodStart(today, weekly);
+        for (String name : existing) {
+            LocalDate start = parsePartitionStart(name);
+            if (start == null) {
+                continue;
+            }
+            boolean partitionWeekly = WEEK_PARTITION.matcher(name).matches();
+            if (partitionWeekly != weekly && nextPeriod(start, partitionWeekly).isAfter(currentStart)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static LocalDate periodStart(LocalDate date, boolean weekly) {
+        return weekly ? date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : date.withDayOfMonth(1);
+    }
+
+    private static LocalDate nextPeriod(LocalDate start, boolean weekly) {
+        return weekly ? start.plusWeeks(1) : start.plusMonths(1);
+    }
+
+    private static String partitionName(LocalDate start, boolean weekly) {
+        return weekly ? PARTITION_PREFIX + "w" + start.format(DAY_SUFFIX) : PARTITION_PREFIX + "p" + start.format(MONTH_SUFFIX);
+    }
+
+    /**
+     * 解析分区起始日期，非本组件命名的分区（如默认分区）返回 null
+     */
+    private static LocalDate parsePartitionStart(String name) {
+        Matcher month = MONTH_PARTITION.matcher(name);
+        if (month.matches()) {
+            return LocalDate.parse(month.group(1) + "01", DAY_SUFFIX);
+        }
+        Matcher week = WEEK_PARTITION.matcher(name);
+        if (week.matches()) {
+            return LocalDate.parse(week.group(1), DAY_SUFFIX);
+        }
+        return null;
+    }
+}
@@ -1,10 +1,13 @@
 package com.base.weather.service;
 
 import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.entity.req.WeatherDataBatchQueryReq;
 import com.base.weather.entity.req.WeatherDataQueryReq;
+import com.base.weather.entity.vo.WeatherDataRollupVo;
 import com.base.weather.entity.vo.WeatherDataVo;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 天气数据服务接口
@@ -23,6 +26,26 @@ public interface WeatherDataService {
      */
     List<WeatherDataVo> queryWeatherData(WeatherDataQueryReq queryReq);
 
+    /**
+     * 查询天气数据汇总
+     * <p>
+     * 按时间粒度（hour、day、week、auto）返回每个时间桶、每个指标的最小值、最大值、平均值和最后一个值
+     *
+     * @param queryReq 查询请求对象，包含策略ID、指标名称、时间范围、时间粒度等
+     * @return 汇总数据列表
+     */
+    List<WeatherDataRollupVo> queryWeatherRollup(WeatherDataQueryReq queryReq);
+
+    /**
+     * 批量查询多个策略的天气数据
+     * <p>
+     * 所有策略在一条 SQL 中查询，结果按策略分组
+     *
+     * @param queryReq 批量查询请求，包含策略ID列表、指标名称列表、时间范围
+     * @return 策略ID到天气数据VO列表（按采集时间倒序排列）的映射，顺序与请求中的策略ID一致，没有数据的策略对应空列表
+     */
+    Map<String, List<WeatherDataVo>> queryWeatherDataBatch(WeatherDataBatchQueryReq queryReq);
+
     /**
      * 根据策略查询天气数据
      * 
@@ -43,6 +66,15 @@ public interface WeatherDataService {
      */
     List<WeatherDataVo> collectWeatherData(WeatherStrategy strategy);
 
+    /**
+     * 采集天气数据（根据策略采集，复用采集批次内已获取的API响应）
+     *
+     * @param strategy 天气策略
+     * @param batch    采集批次，同一批次内相同位置、相同API类型只调用一次上游接口
+     * @return 采集的天气数据VO列表（按 collectTime 分组）
+     */
+    List<WeatherDataVo> collectWeatherData(WeatherStrategy strategy, CollectBatch batch);
+
     /**
      * 根据策略的开始时间和结束时间采集预报数据并入库
      * <p>
@@ -58,4 +90,13 @@ public interface WeatherDataService {
      * @return 采集到的天气数据VO列表（按 collectTime 分组）
      */
     List<WeatherDataVo> collectForecastDataByTimeRange(WeatherStrategy strategy);
+
+    /**
+     * 根据策略的开始时间和结束时间采集预报数据并入库（复用采集批次内已获取的API响应）
+     *
+     * @param strategy 天气策略对象
+     * @param batch    采集批次，同一批次内相同位置、相同API类型只调用一次上游接口
+     * @return 采集到的天气数据VO列表（按 collectTime 分组）
+     */
+    List<WeatherDataVo> collectForecastDataByTimeRange(WeatherStrategy strategy, CollectBatch batch);
 }
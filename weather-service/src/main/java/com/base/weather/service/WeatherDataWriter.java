@@ -0,0 +1,334 @@
+package com.base.weather.service;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.base.weather.constant.ResolutionEnum;
+import com.base.weather.entity.WeatherData;
+import com.base.weather.entity.dto.UpsertResult;
+import com.base.weather.mapper.WeatherDataMapper;
+import com.base.weather.mapper.WeatherDataRollupMapper;
+import com.base.weather.mapper.WeatherDataWideMapper;
+import jakarta.annotation.Resource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 天气数据写入器
+ * <p>
+ * 按 (strategy_id, collect_time, indicator_name) 幂等写入：不存在则插入，值变化则更新，值未变化则不修改，
+ * 避免每次采集都删除并重写整个时间范围的数据。
+ * 行数较少时使用多行 INSERT ... ON CONFLICT；行数达到阈值时先通过 COPY 协议写入会话临时表，
+ * 再用一条 INSERT ... SELECT ... ON CONFLICT 合并到 weather_data。
+ * 启用宽表或汇总表时，有数据插入或更新后在同一事务内重新计算受影响范围的 weather_data_wide 行
+ * 和 weather_data_rollup 时间桶。
+ * 每次写入的各指标行数、写入耗时和插入/更新/未变化行数记录到 {@link CollectMetrics}
+ */
+@Component
+public class WeatherDataWriter {
+
+    /**
+     * COPY 写入的临时表（随会话存在，事务提交后自动清空）
+     */
+    private static final String CREATE_STAGE_SQL = "CREATE TEMP TABLE IF NOT EXISTS weather_data_stage "
+            + "(LIKE weather_data INCLUDING DEFAULTS) ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STAGE_SQL = "COPY weather_data_stage (id, strategy_id, city_name, latitude, "
+            + "longitude, collect_time, indicator_name, indicator_value, indicator_num, indicator_code, indicator_unit, create_time, del_flag) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * 每条 INSERT 语句的最大行数
+     */
+    @Value("${collect.writer.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 行数达到该值时改用 COPY 写入，小于等于0表示不使用 COPY
+     */
+    @Value("${collect.writer.copy-threshold:2000}")
+    private int copyThreshold;
+
+    /**
+     * COPY 写入时内存缓冲区大小（字节），缓冲区写满后发送给数据库
+     */
+    @Value("${collect.writer.copy-buffer-bytes:1048576}")
+    private int copyBufferBytes;
+
+    /**
+     * 是否维护宽表 weather_data_wide（需先执行 sql/upgrade/004_weather_data_wide.sql）
+     */
+    @Value("${collect.wide-table.enabled:false}")
+    private boolean wideTableEnabled;
+
+    /**
+     * 是否维护汇总表 weather_data_rollup（需先执行 sql/upgrade/005_weather_data_rollup.sql）
+     */
+    @Value("${collect.rollup.enabled:false}")
+    private boolean rollupEnabled;
+
+    @Resource
+    private WeatherDataMapper weatherDataMapper;
+
+    @Resource
+    private WeatherDataWideMapper weatherDataWideMapper;
+
+    @Resource
+    private WeatherDataRollupMapper weatherDataRollupMapper;
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private CollectMetrics collectMetrics;
+
+    /**
+     * 批量插入或更新天气数据（同一事务内完成），按行数自动选择多行 INSERT 或 COPY
+     * <p>
+     * 同一唯一键重复出现时以最后一条为准
+     *
+     * @param dataList 天气数据列表
+     * @return 插入/更新/未变化的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public UpsertResult upsert(List<WeatherData> dataList) {
+        if (dataList == null || dataList.isEmpty()) {
+            return new UpsertResult();
+        }
+        collectMetrics.recordExtracted(dataList);
+        List<WeatherData> rows = deduplicate(dataList);
+        UpsertResult result = copyThreshold > 0 && rows.size() >= copyThreshold ? copyRows(rows) : insertRows(rows);
+        refreshDerivedTables(rows, result);
+        return result;
+    }
+
+    /**
+     * 使用多行 INSERT ... ON CONFLICT 批量插入或更新
+     *
+     * @param dataList 天气数据列表
+     * @return 插入/更新/未变化的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public UpsertResult insertUpsert(List<WeatherData> dataList) {
+        if (dataList == null || dataList.isEmpty()) {
+            return new UpsertResult();
+        }
+        collectMetrics.recordExtracted(dataList);
+        List<WeatherData> rows = deduplicate(dataList);
+        UpsertResult result = insertRows(rows);
+        refreshDerivedTables(rows, result);
+        return result;
+    }
+
+    /**
+     * 使用 COPY 写入临时表后合并的方式批量插入或更新
+     *
+     * @param dataList 天气数据列表
+     * @return 插入/更新/未变化的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public UpsertResult copyUpsert(List<WeatherData> dataList) {
+        if (dataList == null || dataList.isEmpty()) {
+            return new UpsertResult();
+        }
+        collectMetrics.recordExtracted(dataList);
+        List<WeatherData> rows = deduplicate(dataList);
+        UpsertResult result = copyRows(rows);
+        refreshDerivedTables(rows, result);
+        return result;
+    }
+
+    private UpsertResult insertRows(List<WeatherData> rows) {
+        long startNanos = System.nanoTime();
+        UpsertResult result = new UpsertResult();
+        int size = Math.max(1, batchSize);
+        for (int from = 0; from < rows.size(); from += size) {
+            List<WeatherData> chunk = rows.subList(from, Math.min(from + size, rows.size()));
+            List<Boolean> touched = weatherDataMapper.upsertBatch(chunk);
+            int inserted = 0;
+            for (Boolean isInsert : touched) {
+                if (Boolean.TRUE.equals(isInsert)) {
+                    inserted++;
+                }
+            }
+            result.setInsertedCount(result.getInsertedCount() + inserted);
+            result.setUpdatedCount(result.getUpdatedCount() + touched.size() - inserted);
+            result.setUnchangedCount(result.getUnchangedCount() + chunk.size() - touched.size());
+        }
+        collectMetrics.recordUpsert("insert", System.nanoTime() - startNanos, result);
+        return result;
+    }
+
+    private UpsertResult copyRows(List<WeatherData> rows) {
+        long startNanos = System.nanoTime();
+        // 与 MyBatis 使用同一个事务连接，临时表对后续的合并语句可见
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGE_SQL);
+                statement.execute("TRUNCATE weather_data_stage");
+            }
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGE_SQL);
+            try {
+                CsvCopyBuffer buffer = new CsvCopyBuffer(copyIn, copyBufferBytes);
+                for (WeatherData data : rows) {
+                    buffer.writeRow(data);
+                }
+                buffer.flush();
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("COPY 写入天气数据失败: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        UpsertResult result = weatherDataMapper.upsertFromStage();
+        result.setUnchangedCount(rows.size() - result.getInsertedCount() - result.getUpdatedCount());
+        collectMetrics.recordUpsert("copy", System.nanoTime() - startNanos, result);
+        return result;
+    }
+
+    /**
+     * 重新计算本次写入涉及的策略和时间范围内的宽表、汇总表数据，没有行被插入或更新时跳过
+     */
+    private void refreshDerivedTables(List<WeatherData> rows, UpsertResult result) {
+        if (!wideTableEnabled && !rollupEnabled || result.getInsertedCount() + result.getUpdatedCount() == 0) {
+            return;
+        }
+        Set<String> strategyIds = new LinkedHashSet<>();
+        LocalDateTime startTime = null;
+        LocalDateTime endTime = null;
+        for (WeatherData data : rows) {
+            LocalDateTime collectTime = data.getCollectTime();
+            if (data.getStrategyId() == null || collectTime == null) {
+                continue;
+            }
+            strategyIds.add(data.getStrategyId());
+            if (startTime == null || collectTime.isBefore(startTime)) {
+                startTime = collectTime;
+            }
+            if (endTime == null || collectTime.isAfter(endTime)) {
+                endTime = collectTime;
+            }
+        }
+        if (strategyIds.isEmpty()) {
+            return;
+        }
+        if (wideTableEnabled) {
+            weatherDataWideMapper.refreshFromWeatherData(strategyIds, startTime, endTime);
+        }
+        if (rollupEnabled) {
+            for (ResolutionEnum resolution : ResolutionEnum.values()) {
+                weatherDataRollupMapper.refreshFromWeatherData(strategyIds, resolution.getCode(), startTime, endTime);
+            }
+        }
+    }
+
+    /**
+     * 按唯一键去重（同一条 INSERT ... ON CONFLICT 语句中不能出现重复的唯一键），并补全主键
+     */
+    private static List<WeatherData> deduplicate(List<WeatherData> dataList) {
+        Map<String, WeatherData> unique = new LinkedHashMap<>();
+        for (WeatherData data : dataList) {
+            if (data.getId() == null) {
+                data.setId(IdWorker.get32UUID());
+            }
+            if (data.getDelFlag() == null) {
+                data.setDelFlag(0);
+            }
+            unique.put(data.getStrategyId() + "|" + data.getCollectTime() + "|" + data.getIndicatorName(), data);
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    /**
+     * COPY CSV 缓冲区：行数据编码为 CSV 后写入固定大小的字节缓冲区，写满后发送给数据库，
+     * 内存占用与总行数无关
+     */
+    private static class CsvCopyBuffer {
+
+        private final CopyIn copyIn;
+
+        private final byte[] buffer;
+
+        private int position;
+
+        private final StringBuilder line = new StringBuilder(256);
+
+        CsvCopyBuffer(CopyIn copyIn, int capacity) {
+            this.copyIn = copyIn;
+            this.buffer = new byte[Math.max(capacity, 4096)];
+        }
+
+        void writeRow(WeatherData data) throws SQLException {
+            line.setLength(0);
+            appendText(data.getId()).append(',');
+            appendText(data.getStrategyId()).append(',');
+            appendText(data.getCityName()).append(',');
+            appendValue(data.getLatitude()).append(',');
+            appendValue(data.getLongitude()).append(',');
+            appendValue(data.getCollectTime()).append(',');
+            appendText(data.getIndicatorName()).append(',');
+            appendText(data.getIndicatorValue()).append(',');
+            appendValue(data.getIndicatorNum()).append(',');
+            appendValue(data.getIndicatorCode()).append(',');
+            appendText(data.getIndicatorUnit()).append(',');
+            appendValue(data.getCreateTime()).append(',');
+            appendValue(data.getDelFlag()).append('\n');
+            write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        void flush() throws SQLException {
+            if (position > 0) {
+                copyIn.writeToCopy(buffer, 0, position);
+                position = 0;
+            }
+        }
+
+        private void write(byte[] bytes) throws SQLException {
+            if (position + bytes.length > buffer.length) {
+                flush();
+            }
+            if (bytes.length > buffer.length) {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+                return;
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        /**
+         * 文本字段：始终加引号，区分空字符串和 NULL（未加引号的空值表示 NULL）
+         */
+        private StringBuilder appendText(String value) {
+            if (value == null) {
+                return line;
+            }
+            return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+
+        private StringBuilder appendValue(Object value) {
+            return value == null ? line : line.append(value);
+        }
+    }
+}
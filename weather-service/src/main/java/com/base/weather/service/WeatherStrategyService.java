@@ -9,6 +9,7 @@ import com.base.weather.entity.req.WeatherStrategyQueryReq;
 import com.base.weather.entity.vo.WeatherStrategyVo;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * 天气策略 Service 接口
@@ -57,4 +58,18 @@ public interface WeatherStrategyService extends IService<WeatherStrategy> {
      * @return 导入结果，包含成功数量、重复信息等
      */
     BatchImportResult batchImportWithDetails(List<WeatherStrategyAddReq> strategyList);
+
+    /**
+     * 分批导入天气策略（流式导入时逐批调用）
+     * <p>
+     * Excel文件内重复的需求名称需由调用方预先统计整个文件得到，本批中这些名称全部跳过。
+     * 本方法不提交采集任务，需要立即采集的策略加入 collectStrategies，由调用方在全部批次导入后合并为一个采集任务提交
+     *
+     * @param strategyList      本批策略列表
+     * @param excelDuplicates   整个Excel文件内重复的需求名称
+     * @param collectStrategies 需要立即采集的策略（输出）
+     * @return 本批导入结果，excelDuplicates 为本批中出现的重复名称
+     */
+    BatchImportResult importChunk(List<WeatherStrategyAddReq> strategyList, Set<String> excelDuplicates,
+                                  List<WeatherStrategy> collectStrategies);
 }
@@ -1,14 +1,19 @@
 package com.base.weather.service.impl;
 
-import com.alibaba.fastjson.JSON;
+import com.base.common.exception.HttpStatusException;
 import com.base.common.util.HttpUtils;
 import com.base.weather.constant.ApiEnum;
+import com.base.weather.entity.dto.CodedResponse;
 import com.base.weather.entity.dto.GeoCityResponse;
 import com.base.weather.entity.dto.HourlyAirQualityResponse;
 import com.base.weather.entity.dto.HourlyForecastWeatherResponse;
 import com.base.weather.entity.dto.MonitoringStationDataResponse;
 import com.base.weather.entity.dto.RealTimeAirQualityResponse;
 import com.base.weather.entity.dto.RealTimeWeatherResponse;
+import com.base.weather.service.ApiResilience;
+import com.base.weather.service.CollectMetrics;
+import com.base.weather.service.GeoLocationCache;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -33,6 +38,15 @@ public class APIService {
     @Value("${api.hefeng.api-key}")
     private String apiKey;
 
+    @Resource
+    private GeoLocationCache geoLocationCache;
+
+    @Resource
+    private ApiResilience apiResilience;
+
+    @Resource
+    private CollectMetrics collectMetrics;
+
     /**
      * 获取监测站数据
      *
@@ -58,17 +72,8 @@ public class APIService {
             // 2. 使用 stationId 调用监测站数据 API
             String url = baseUrl + ApiEnum.MONITORING_STATION_DATA.getUrl() + stationId;
 
-            // 设置请求头（API Key 放在请求头中）
-            Map<String, String> headers = new HashMap<>();
-            headers.put("X-QW-Api-Key", apiKey);
-
-            // 发送 GET 请求（无URL参数）
-            String response = HttpUtils.get(url, null, headers);
-
-            log.info("监测站数据API响应: {}", response);
-
-            // 解析响应
-            return JSON.parseObject(response, MonitoringStationDataResponse.class);
+            // 发送 GET 请求（无URL参数）并解析响应
+            return request(ApiEnum.MONITORING_STATION_DATA, url, null, MonitoringStationDataResponse.class);
 
         } catch (Exception e) {
             log.error("获取监测站数据失败，location: {}", location, e);
@@ -77,12 +82,25 @@ public class APIService {
     }
 
     /**
-     * 通过位置信息获取城市位置信息
+     * 通过位置信息获取城市位置信息（优先使用城市位置缓存）
      *
      * @param location 位置信息，例如：beij（城市名称或拼音）
      * @return 城市位置信息列表
      */
     public List<GeoCityResponse.Location> getGeoLocation(String location) throws IOException {
+        return geoLocationCache.get(location, () -> fetchGeoLocation(location));
+    }
+
+    /**
+     * 调用 GEO_CITY API 查询城市位置信息（不经过缓存）
+     * <p>
+     * 只有确认查询不到（404 或 location 列表为空）时返回 null（由缓存短时间缓存），其他失败抛出异常（不缓存）
+     *
+     * @param location 位置信息
+     * @return 城市位置信息列表，查询不到时返回 null
+     * @throws IOException 请求失败、无响应体或返回其他异常状态码
+     */
+    private List<GeoCityResponse.Location> fetchGeoLocation(String location) throws IOException {
         // 构建请求URL
         String url = baseUrl + ApiEnum.GEO_CITY.getUrl();
 
@@ -90,21 +108,19 @@ public class APIService {
         Map<String, String> params = new HashMap<>();
         params.put("location", location);
 
-        // 设置请求头（API Key 放在请求头中）
-        Map<String, String> headers = new HashMap<>();
-        headers.put("X-QW-Api-Key", apiKey);
-
-        // 发送 GET 请求
-        String response = HttpUtils.get(url, params, headers);
-
-        log.info("城市查询API响应: {}", response);
-
-        // 解析响应
-        GeoCityResponse cityResponse = JSON.parseObject(response, GeoCityResponse.class);
-        // 检查响应码
-        if (!"200".equals(cityResponse.getCode())) {
-            log.warn("城市查询API返回非200状态码: {}", cityResponse.getCode());
-            return null;
+        // 发送 GET 请求并解析响应（业务状态码异常时 request 已按状态码抛出异常）
+        GeoCityResponse cityResponse;
+        try {
+            cityResponse = request(ApiEnum.GEO_CITY, url, params, GeoCityResponse.class);
+        } catch (HttpStatusException e) {
+            if (e.getStatusCode() == 404) {
+                log.warn("城市查询API未找到城市，location: {}", location);
+                return null;
+            }
+            throw e;
+        }
+        if (cityResponse == null) {
+            throw new IOException("城市查询API无响应体，location: " + location);
         }
         // 获取第一个 location 的 id
         List<GeoCityResponse.Location> locations = cityResponse.getLocation();
@@ -134,20 +150,11 @@ public class APIService {
             Map<String, String> params = new HashMap<>();
             params.put("location", location);
 
-            // 设置请求头（API Key 放在请求头中）
-            Map<String, String> headers = new HashMap<>();
-            headers.put("X-QW-Api-Key", apiKey);
-
-            // 发送 GET 请求
-            String response = HttpUtils.get(url, params, headers);
-
-            log.info("实时天气API响应: {}", response);
-
-            // 解析响应
-            RealTimeWeatherResponse weatherResponse = JSON.parseObject(response, RealTimeWeatherResponse.class);
+            // 发送 GET 请求并解析响应
+            RealTimeWeatherResponse weatherResponse = request(ApiEnum.REAL_TIME_WEATHER, url, params, RealTimeWeatherResponse.class);
 
             // 检查响应码
-            if (!"200".equals(weatherResponse.getCode())) {
+            if (weatherResponse != null && !"200".equals(weatherResponse.getCode())) {
                 log.warn("实时天气API返回非200状态码: {}", weatherResponse.getCode());
             }
 
@@ -175,17 +182,8 @@ public class APIService {
             // 构建请求URL，格式：/airquality/v1/current/{latitude}/{longitude}
             String url = baseUrl + ApiEnum.REAL_TIME_AIR_QUALITY.getUrl() + latitude + "/" + longitude;
 
-            // 设置请求头（API Key 放在请求头中）
-            Map<String, String> headers = new HashMap<>();
-            headers.put("X-QW-Api-Key", apiKey);
-
-            // 发送 GET 请求（无URL参数）
-            String response = HttpUtils.get(url, null, headers);
-
-            log.info("实时空气质量API响应: {}", response);
-
-            // 解析响应
-            return JSON.parseObject(response, RealTimeAirQualityResponse.class);
+            // 发送 GET 请求（无URL参数）并解析响应
+            return request(ApiEnum.REAL_TIME_AIR_QUALITY, url, null, RealTimeAirQualityResponse.class);
 
         } catch (Exception e) {
             log.error("获取实时空气质量数据失败，latitude: {}, longitude: {}", latitude, longitude, e);
@@ -209,17 +207,8 @@ public class APIService {
             // 构建请求URL，格式：/airquality/v1/hourly/{latitude}/{longitude}
             String url = baseUrl + ApiEnum.HOURLY_AIR_QUALITY.getUrl() + latitude + "/" + longitude;
 
-            // 设置请求头（API Key 放在请求头中）
-            Map<String, String> headers = new HashMap<>();
-            headers.put("X-QW-Api-Key", apiKey);
-
-            // 发送 GET 请求（无URL参数）
-            String response = HttpUtils.get(url, null, headers);
-
-            log.info("空气质量小时预报API响应: {}", response);
-
-            // 解析响应
-            return JSON.parseObject(response, HourlyAirQualityResponse.class);
+            // 发送 GET 请求（无URL参数）并解析响应
+            return request(ApiEnum.HOURLY_AIR_QUALITY, url, null, HourlyAirQualityResponse.class);
 
         } catch (Exception e) {
             log.error("获取空气质量小时预报数据失败，latitude: {}, longitude: {}", latitude, longitude, e);
@@ -255,20 +244,11 @@ public class APIService {
             Map<String, String> params = new HashMap<>();
             params.put("location", location);
 
-            // 设置请求头（API Key 放在请求头中）
-            Map<String, String> headers = new HashMap<>();
-            headers.put("X-QW-Api-Key", apiKey);
-
-            // 发送 GET 请求
-            String response = HttpUtils.get(url, params, headers);
-
-            log.info("逐小时天气预报API响应: {}", response);
-
-            // 解析响应
-            HourlyForecastWeatherResponse weatherResponse = JSON.parseObject(response, HourlyForecastWeatherResponse.class);
+            // 发送 GET 请求并解析响应
+            HourlyForecastWeatherResponse weatherResponse = request(ApiEnum.HOURLY_FORECAST_WEATHER, url, params, HourlyForecastWeatherResponse.class);
 
             // 检查响应码
-            if (!"200".equals(weatherResponse.getCode())) {
+            if (weatherResponse != null && !"200".equals(weatherResponse.getCode())) {
                 log.warn("逐小时天气预报API返回非200状态码: {}", weatherResponse.getCode());
             }
 
@@ -280,4 +260,54 @@ public class APIService {
         }
     }
 
+    /**
+     * 发送 GET 请求并将响应直接解析为指定类型（API Key 放在请求头中）
+     * <p>
+     * 请求经过容错层（限流、隔离舱、熔断、重试，使用该 API 的超时配置），启用对冲的 API 在首次请求较慢时发送对冲请求；
+     * 响应体中的业务状态码既不是 200 也不是 204 时按同名 HTTP 状态码抛出异常，由容错层判断是否计入失败和重试
+     *
+     * @param apiEnum      API 类型（用于限流和容错）
+     * @param url          请求地址
+     * @param params       URL参数，可为 null
+     * @param responseType 响应类型
+     * @return 解析后的响应对象
+     * @throws IOException 请求或解析失败
+     */
+    private <T> T request(ApiEnum apiEnum, String url, Map<String, String> params, Class<T> responseType) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-QW-Api-Key", apiKey);
+        return apiResilience.execute(apiEnum, (connectTimeout, readTimeout) -> {
+            // 每次请求单独观察，检查业务状态码后再记录请求结果
+            CollectMetrics.ApiRequestObserver observer = collectMetrics.apiObserver(apiEnum);
+            T response = HttpUtils.get(url, params, headers, responseType, connectTimeout, readTimeout, observer);
+            return checkCode(apiEnum, response, observer);
+        });
+    }
+
+    /**
+     * 检查响应体中的业务状态码（200 成功，204 查询的地区暂无数据），并按业务状态码记录请求结果
+     */
+    private static <T> T checkCode(ApiEnum apiEnum, T response, CollectMetrics.ApiRequestObserver observer)
+            throws HttpStatusException {
+        if (response instanceof CodedResponse codedResponse) {
+            String code = codedResponse.getCode();
+            boolean success = "200".equals(code) || "204".equals(code);
+            if (observer != null) {
+                observer.onChecked(code != null ? code : "invalid", success);
+            }
+            if (!success) {
+                int statusCode;
+                try {
+                    statusCode = Integer.parseInt(code);
+                } catch (NumberFormatException e) {
+                    statusCode = 500;
+                }
+                throw new HttpStatusException(statusCode, apiEnum.getDescription() + "返回异常状态码: " + code);
+            }
+        } else if (observer != null) {
+            observer.onChecked(null, true);
+        }
+        return response;
+    }
+
 }
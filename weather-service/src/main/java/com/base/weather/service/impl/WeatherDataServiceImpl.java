@@ -1,7 +1,9 @@
 package com.base.weather.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.base.weather.constant.ApiEnum;
 import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.constant.ResolutionEnum;
 import com.base.weather.entity.WeatherData;
 import com.base.weather.entity.WeatherStrategy;
 import com.base.weather.entity.dto.GeoCityResponse;
@@ -9,23 +11,45 @@ import com.base.weather.entity.dto.HourlyAirQualityResponse;
 import com.base.weather.entity.dto.HourlyForecastWeatherResponse;
 import com.base.weather.entity.dto.RealTimeAirQualityResponse;
 import com.base.weather.entity.dto.RealTimeWeatherResponse;
+import com.base.weather.entity.dto.UpsertResult;
+import com.base.weather.entity.req.WeatherDataBatchQueryReq;
 import com.base.weather.entity.req.WeatherDataQueryReq;
+import com.base.weather.entity.vo.WeatherDataRollupVo;
 import com.base.weather.entity.vo.WeatherDataVo;
 import com.base.weather.mapper.WeatherDataMapper;
+import com.base.weather.mapper.WeatherDataRollupMapper;
+import com.base.weather.mapper.WeatherDataWideMapper;
+import com.base.weather.service.CollectBatch;
+import com.base.weather.service.CollectPriorityHolder;
+import com.base.weather.service.ForecastResponseCache;
+import com.base.weather.service.WeatherDataWriter;
 import com.base.weather.service.WeatherDataService;
 import com.base.weather.service.WeatherStrategyService;
 import com.base.weather.util.DateTimeUtils;
+import com.base.weather.util.DownsampleUtils;
+import com.base.weather.util.IndicatorValueUtils;
+import com.base.weather.util.LocationUtils;
+import com.base.weather.util.WeatherDataExtractUtils;
+import com.base.weather.util.WeatherDataVoUtils;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 天气数据服务实现类
@@ -40,6 +64,36 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
     @Resource
     private WeatherStrategyService weatherStrategyService;
 
+    @Resource
+    private ForecastResponseCache forecastResponseCache;
+
+    @Resource
+    private WeatherDataWriter weatherDataWriter;
+
+    @Resource
+    private WeatherDataWideMapper weatherDataWideMapper;
+
+    /**
+     * 历史数据查询是否读取宽表 weather_data_wide（需先开启 collect.wide-table.enabled 并回填数据）
+     */
+    @Value("${collect.wide-table.read-enabled:false}")
+    private boolean wideTableReadEnabled;
+
+    @Resource
+    private WeatherDataRollupMapper weatherDataRollupMapper;
+
+    /**
+     * 是否维护汇总表 weather_data_rollup，未启用时按粒度查询退化为查询原始数据
+     */
+    @Value("${collect.rollup.enabled:false}")
+    private boolean rollupEnabled;
+
+    /**
+     * 时间粒度为 auto 且未指定 maxPoints 时，每个指标期望返回的最大点数
+     */
+    @Value("${collect.rollup.auto-max-points:500}")
+    private int autoMaxPoints;
+
     /**
      * 采集天气数据（根据策略采集）
      * <p>
@@ -59,6 +113,31 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
      */
     @Override
     public List<WeatherDataVo> collectWeatherData(WeatherStrategy strategy) {
+        return collectWeatherData(strategy, new CollectBatch());
+    }
+
+    /**
+     * 采集天气数据（根据策略采集，复用采集批次内已获取的API响应）
+     * <p>
+     * 同一批次内，相同位置（规范化后的经纬度/城市名称）、相同API类型只调用一次上游接口，
+     * 其余策略直接从已解析的响应中提取各自的指标
+     *
+     * @param strategy 天气策略对象，包含采集内容、位置信息等
+     * @param batch    采集批次
+     * @return 采集到的天气数据列表
+     */
+    @Override
+    public List<WeatherDataVo> collectWeatherData(WeatherStrategy strategy, CollectBatch batch) {
+        // 采集期间绑定策略优先级，额度紧张时限流器优先放行紧急策略
+        Integer previousPriority = CollectPriorityHolder.set(strategy.getTargetPriority());
+        try {
+            return doCollectWeatherData(strategy, batch);
+        } finally {
+            CollectPriorityHolder.restore(previousPriority);
+        }
+    }
+
+    private List<WeatherDataVo> doCollectWeatherData(WeatherStrategy strategy, CollectBatch batch) {
         List<WeatherData> weatherDataList = new ArrayList<>();
         LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
         // 解析采集内容（多个IndicatorEnum以","分隔）
@@ -71,14 +150,14 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
         String location;
 
         if (strategy.getTargetLatitude() != null && strategy.getTargetLongitude() != null) {
-            location = strategy.getTargetLongitude() + "," + strategy.getTargetLatitude();
+            location = LocationUtils.formatLocation(strategy.getTargetLongitude(), strategy.getTargetLatitude());
         } else {
             log.warn("策略 {} 没有有效的位置信息", strategy.getId());
             return new ArrayList<>();
         }
         // 按API类型分组采集
         // 先按API类型分组，避免重复调用同一个API
-        Map<com.base.weather.constant.ApiEnum, List<IndicatorEnum>> apiGroupMap = new HashMap<>();
+        Map<ApiEnum, List<IndicatorEnum>> apiGroupMap = new HashMap<>();
         for (String indicatorName : indicatorNames) {
             indicatorName = indicatorName.trim();
             IndicatorEnum indicator = IndicatorEnum.getByName(indicatorName);
@@ -90,8 +169,8 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
         }
 
         // 按API类型批量采集
-        for (Map.Entry<com.base.weather.constant.ApiEnum, List<IndicatorEnum>> entry : apiGroupMap.entrySet()) {
-            com.base.weather.constant.ApiEnum apiEnum = entry.getKey();
+        for (Map.Entry<ApiEnum, List<IndicatorEnum>> entry : apiGroupMap.entrySet()) {
+            ApiEnum apiEnum = entry.getKey();
             List<IndicatorEnum> indicators = entry.getValue();
 
             try {
@@ -101,13 +180,15 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                         String weatherLocation = location;
                         if (StringUtils.hasText(strategy.getCityName())) {
                             // 如果有城市名称，需要先转换为经纬度
-                            List<GeoCityResponse.Location> locations = apiService.getGeoLocation(strategy.getCityName());
-                            if (locations != null && !locations.isEmpty()) {
-                                GeoCityResponse.Location cityLocation = locations.get(0);
-                                weatherLocation = cityLocation.getLon() + "," + cityLocation.getLat();
+                            GeoCityResponse.Location cityLocation = resolveCity(strategy.getCityName(), batch);
+                            if (cityLocation != null) {
+                                weatherLocation = LocationUtils.formatLocation(
+                                        Double.parseDouble(cityLocation.getLon()), Double.parseDouble(cityLocation.getLat()));
                             }
                         }
-                        RealTimeWeatherResponse weatherResponse = apiService.getRealTimeWeather(weatherLocation);
+                        String realTimeLocation = weatherLocation;
+                        RealTimeWeatherResponse weatherResponse = batch.fetch(ApiEnum.REAL_TIME_WEATHER, realTimeLocation,
+                                () -> apiService.getRealTimeWeather(realTimeLocation));
                         for (IndicatorEnum indicator : indicators) {
                             weatherDataList.addAll(extractWeatherDataFromRealTime(strategy, weatherResponse, indicator, now));
                         }
@@ -120,16 +201,19 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
 
                         // 如果有城市名称但没有经纬度，先通过城市名称获取经纬度
                         if ((latitude == null || longitude == null) && StringUtils.hasText(strategy.getCityName())) {
-                            List<GeoCityResponse.Location> locations = apiService.getGeoLocation(strategy.getCityName());
-                            if (locations != null && !locations.isEmpty()) {
-                                GeoCityResponse.Location cityLocation = locations.get(0);
+                            GeoCityResponse.Location cityLocation = resolveCity(strategy.getCityName(), batch);
+                            if (cityLocation != null) {
                                 latitude = Double.parseDouble(cityLocation.getLat());
                                 longitude = Double.parseDouble(cityLocation.getLon());
                             }
                         }
 
                         if (latitude != null && longitude != null) {
-                            RealTimeAirQualityResponse airQualityResponse = apiService.getRealTimeAirQuality(latitude, longitude);
+                            Double airLatitude = LocationUtils.normalizeCoordinate(latitude);
+                            Double airLongitude = LocationUtils.normalizeCoordinate(longitude);
+                            RealTimeAirQualityResponse airQualityResponse = batch.fetch(ApiEnum.REAL_TIME_AIR_QUALITY,
+                                    LocationUtils.formatLocation(airLongitude, airLatitude),
+                                    () -> apiService.getRealTimeAirQuality(airLatitude, airLongitude));
                             for (IndicatorEnum indicator : indicators) {
                                 weatherDataList.addAll(extractWeatherDataFromAirQuality(strategy, airQualityResponse, indicator, now));
                             }
@@ -146,14 +230,14 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                 log.error("采集API类型 {} 失败，策略ID: {}", apiEnum, strategy.getId(), e);
             }
         }
-        // 批量保存
+        // 批量写入（与预报数据共用唯一键，同一时间重复采集时更新而不是报错）
         if (!weatherDataList.isEmpty()) {
-            saveBatch(weatherDataList);
+            weatherDataWriter.upsert(weatherDataList);
             log.info("策略 {} 采集了 {} 条天气数据", strategy.getId(), weatherDataList.size());
             // 注意：除“新增策略/取消/定时到期”外，不允许修改策略采集状态
         }
         // 转换为 WeatherDataVo（按 collectTime 分组）
-        return convertToWeatherDataVoList(weatherDataList);
+        return WeatherDataVoUtils.convertToWeatherDataVoList(weatherDataList);
     }
 
     /**
@@ -169,7 +253,32 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
      * @param strategy 天气策略对象
      * @return 采集到的天气数据VO列表（按 collectTime 分组）
      */
+    @Override
     public List<WeatherDataVo> collectForecastDataByTimeRange(WeatherStrategy strategy) {
+        return collectForecastDataByTimeRange(strategy, new CollectBatch());
+    }
+
+    /**
+     * 根据策略的开始时间和结束时间采集预报数据并入库（复用采集批次内已获取的API响应）
+     * <p>
+     * 同一批次内，相同位置、相同API类型（逐小时预报还需相同预报小时数）只调用一次上游接口
+     *
+     * @param strategy 天气策略对象
+     * @param batch    采集批次
+     * @return 采集到的天气数据VO列表（按 collectTime 分组）
+     */
+    @Override
+    public List<WeatherDataVo> collectForecastDataByTimeRange(WeatherStrategy strategy, CollectBatch batch) {
+        // 采集期间绑定策略优先级，额度紧张时限流器优先放行紧急策略
+        Integer previousPriority = CollectPriorityHolder.set(strategy.getTargetPriority());
+        try {
+            return doCollectForecastDataByTimeRange(strategy, batch);
+        } finally {
+            CollectPriorityHolder.restore(previousPriority);
+        }
+    }
+
+    private List<WeatherDataVo> doCollectForecastDataByTimeRange(WeatherStrategy strategy, CollectBatch batch) {
         List<WeatherData> weatherDataList = new ArrayList<>();
 
         // 检查策略的时间范围
@@ -206,9 +315,9 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
             log.warn("策略 {} 没有有效的位置信息", strategy.getId());
             return new ArrayList<>();
         }
-        String location = strategy.getTargetLongitude() + "," + strategy.getTargetLatitude();
-        Double latitude = strategy.getTargetLatitude();
-        Double longitude = strategy.getTargetLongitude();
+        String location = LocationUtils.formatLocation(strategy.getTargetLongitude(), strategy.getTargetLatitude());
+        Double latitude = LocationUtils.normalizeCoordinate(strategy.getTargetLatitude());
+        Double longitude = LocationUtils.normalizeCoordinate(strategy.getTargetLongitude());
 
         // 解析采集内容，判断需要调用哪些API
         String collectContent = strategy.getCollectContent();
@@ -220,8 +329,6 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
         String[] indicatorNames = collectContent.split(",");
         boolean needWeatherForecast = false;
         boolean needAirQualityForecast = false;
-        // 本次预报采集涉及的指标集合（用于覆盖删除旧数据）
-        List<String> forecastIndicatorNames = new ArrayList<>();
 
         // 判断需要哪些预报API
         for (String indicatorName : indicatorNames) {
@@ -231,15 +338,14 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                 log.warn("策略 {} 中未找到指标: {}", strategy.getId(), indicatorName);
                 continue;
             }
-            forecastIndicatorNames.add(indicator.name());
             log.debug("策略 {} 找到指标: {} (API类型: {})", strategy.getId(), indicatorName, indicator.getApiEnum());
             // 实时天气指标需要逐小时天气预报
-            if (indicator.getApiEnum() == com.base.weather.constant.ApiEnum.REAL_TIME_WEATHER) {
+            if (indicator.getApiEnum() == ApiEnum.REAL_TIME_WEATHER) {
                 needWeatherForecast = true;
                 log.debug("策略 {} 需要逐小时天气预报", strategy.getId());
             }
             // 空气质量指标需要空气质量小时预报
-            if (indicator.getApiEnum() == com.base.weather.constant.ApiEnum.REAL_TIME_AIR_QUALITY) {
+            if (indicator.getApiEnum() == ApiEnum.REAL_TIME_AIR_QUALITY) {
                 needAirQualityForecast = true;
                 log.debug("策略 {} 需要空气质量小时预报", strategy.getId());
             }
@@ -254,19 +360,24 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                 // 计算需要的小时数（最长168小时）
                 long forecastHours = Math.min(hoursBetween, 168);
                 // 选择最接近的API参数（24h、72h、168h）
-                String hoursParam;
+                int horizonHours;
                 if (forecastHours <= 24) {
-                    hoursParam = "24h";
+                    horizonHours = 24;
                 } else if (forecastHours <= 72) {
-                    hoursParam = "72h";
+                    horizonHours = 72;
                 } else {
-                    hoursParam = "168h";
+                    horizonHours = 168;
                 }
+                String hoursParam = horizonHours + "h";
 
                 log.info("策略 {} 开始采集逐小时天气预报，时间范围: {} 到 {}，预报小时数: {}",
                         strategy.getId(), startTime, endTime, hoursParam);
 
-                HourlyForecastWeatherResponse response = apiService.getHourlyForecastWeather(location, hoursParam);
+                HourlyForecastWeatherResponse response = batch.fetch(ApiEnum.HOURLY_FORECAST_WEATHER,
+                        location + "|" + hoursParam, () -> forecastResponseCache.get(ApiEnum.HOURLY_FORECAST_WEATHER,
+                                latitude, longitude, horizonHours,
+                                (gridLat, gridLon) -> apiService.getHourlyForecastWeather(
+                                        LocationUtils.formatLocation(gridLon, gridLat), hoursParam)));
                 if (response != null && response.getHourly() != null) {
                     for (HourlyForecastWeatherResponse.Hourly hourly : response.getHourly()) {
                         // 解析预报时间
@@ -280,7 +391,7 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                         }
 
                         // 提取天气指标数据
-                        extractHourlyWeatherData(strategy, hourly, forecastTime, indicatorNames, weatherDataList);
+                        WeatherDataExtractUtils.extractHourlyWeatherData(strategy, hourly, forecastTime, indicatorNames, weatherDataList);
                     }
                 }
             } catch (Exception e) {
@@ -295,7 +406,9 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                 log.info("策略 {} 开始采集空气质量小时预报，时间范围: {} 到 {}",
                         strategy.getId(), startTime, endTime);
 
-                HourlyAirQualityResponse response = apiService.getHourlyAirQuality(latitude, longitude);
+                HourlyAirQualityResponse response = batch.fetch(ApiEnum.HOURLY_AIR_QUALITY, location,
+                        () -> forecastResponseCache.get(ApiEnum.HOURLY_AIR_QUALITY, latitude, longitude, 24,
+                                apiService::getHourlyAirQuality));
                 if (response != null && response.getHours() != null) {
                     for (HourlyAirQualityResponse.Hour hour : response.getHours()) {
                         // 解析预报时间
@@ -309,7 +422,7 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                         }
 
                         // 提取空气质量指标数据
-                        extractHourlyAirQualityData(strategy, hour, forecastTime, indicatorNames, weatherDataList);
+                        WeatherDataExtractUtils.extractHourlyAirQualityData(strategy, hour, forecastTime, indicatorNames, weatherDataList);
                     }
                 }
             } catch (Exception e) {
@@ -317,187 +430,21 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
             }
         }
 
-        // 入库前：先物理删除旧预报数据（同策略、同时间范围、同一批指标），避免重复和数据库数据过多
-        if (!forecastIndicatorNames.isEmpty()) {
-            try {
-                int affected = baseMapper.deleteByStrategyAndTimeRangeAndIndicators(
-                        strategy.getId(), startTime, endTime, forecastIndicatorNames);
-                log.info("策略 {} 预报入库前物理删除旧数据完成，影响行数: {}", strategy.getId(), affected);
-            } catch (Exception e) {
-                log.error("策略 {} 预报入库前物理删除旧数据失败（将继续尝试入库，可能产生重复数据）", strategy.getId(), e);
-            }
-        }
-
-        // 批量保存（新预报数据）
+        // 批量写入（按 策略 + 时间 + 指标 插入或更新，值未变化的行不修改）
         if (!weatherDataList.isEmpty()) {
-            saveBatch(weatherDataList);
-            log.info("策略 {} 采集了 {} 条预报天气数据", strategy.getId(), weatherDataList.size());
+            UpsertResult upsertResult = weatherDataWriter.upsert(weatherDataList);
+            log.info("策略 {} 采集了 {} 条预报天气数据，新增: {}, 更新: {}, 未变化: {}", strategy.getId(),
+                    weatherDataList.size(), upsertResult.getInsertedCount(), upsertResult.getUpdatedCount(),
+                    upsertResult.getUnchangedCount());
             // 注意：除“新增策略/取消/定时到期”外，不允许修改策略采集状态
         }
 
         // 转换为 WeatherDataVo（按 collectTime 分组）
-        return convertToWeatherDataVoList(weatherDataList);
+        return WeatherDataVoUtils.convertToWeatherDataVoList(weatherDataList);
     }
 
     // 注意：根据当前业务约束，除“新增策略/取消/定时到期”外，不允许在采集流程中修改策略采集状态。
 
-    /**
-     * 从逐小时天气预报响应中提取天气数据
-     *
-     * @param strategy        天气策略对象
-     * @param hourly          逐小时天气预报数据
-     * @param forecastTime    预报时间
-     * @param indicatorNames  需要采集的指标名称列表
-     * @param weatherDataList 天气数据列表（用于收集数据）
-     */
-    private void extractHourlyWeatherData(WeatherStrategy strategy,
-                                          HourlyForecastWeatherResponse.Hourly hourly,
-                                          LocalDateTime forecastTime,
-                                          String[] indicatorNames,
-                                          List<WeatherData> weatherDataList) {
-        for (String indicatorName : indicatorNames) {
-            indicatorName = indicatorName.trim();
-            IndicatorEnum indicator = IndicatorEnum.getByName(indicatorName);
-            if (indicator == null || indicator.getApiEnum() != com.base.weather.constant.ApiEnum.REAL_TIME_WEATHER) {
-                continue;
-            }
-
-            String value = null;
-            switch (indicator) {
-                case Temperature:
-                    value = hourly.getTemp();
-                    break;
-                case Perceived_temperature:
-                    // 逐小时预报中没有体感温度，跳过
-                    continue;
-                case Wind_speed:
-                    value = hourly.getWindSpeed();
-                    break;
-                case Wind_direction:
-                    value = hourly.getWindDir();
-                    break;
-                case Relative_humidify:
-                    value = hourly.getHumidity();
-                    break;
-                case Atmospheric_pressure:
-                    value = hourly.getPressure();
-                    break;
-                case Precipitation:
-                    value = hourly.getPrecip();
-                    break;
-                case Visibility:
-                    // 逐小时预报中没有能见度，跳过
-                    continue;
-                case Dew_point_temperature:
-                    value = hourly.getDew();
-                    break;
-                case Cloud_cover:
-                    value = hourly.getCloud();
-                    break;
-                default:
-                    continue;
-            }
-
-            if (value != null) {
-                String unit = indicator.getUnit();
-                WeatherData data = createWeatherData(strategy, indicator.name(), value, unit, forecastTime);
-                weatherDataList.add(data);
-            }
-        }
-    }
-
-    /**
-     * 从空气质量小时预报响应中提取天气数据
-     *
-     * @param strategy        天气策略对象
-     * @param hour            空气质量小时预报数据
-     * @param forecastTime    预报时间
-     * @param indicatorNames  需要采集的指标名称列表
-     * @param weatherDataList 天气数据列表（用于收集数据）
-     */
-    private void extractHourlyAirQualityData(WeatherStrategy strategy,
-                                             HourlyAirQualityResponse.Hour hour,
-                                             LocalDateTime forecastTime,
-                                             String[] indicatorNames,
-                                             List<WeatherData> weatherDataList) {
-        if (hour.getPollutants() == null || hour.getPollutants().isEmpty()) {
-            log.warn("策略 {} 预报时间 {} 的污染物数据为空", strategy.getId(), forecastTime);
-            return;
-        }
-
-        // 创建污染物代码到污染物对象的映射
-        Map<String, HourlyAirQualityResponse.Pollutant> pollutantMap = new HashMap<>();
-        for (HourlyAirQualityResponse.Pollutant pollutant : hour.getPollutants()) {
-            if (pollutant.getCode() != null) {
-                pollutantMap.put(pollutant.getCode().toLowerCase(), pollutant);
-                log.debug("策略 {} 找到污染物: {} (code: {})", strategy.getId(), pollutant.getName(), pollutant.getCode());
-            }
-        }
-
-        log.debug("策略 {} 预报时间 {} 的污染物映射: {}", strategy.getId(), forecastTime, pollutantMap.keySet());
-
-        // 指标名称到污染物代码的映射
-        Map<IndicatorEnum, String> indicatorCodeMap = new HashMap<>();
-        indicatorCodeMap.put(IndicatorEnum.PM2p5, "pm2p5");
-        indicatorCodeMap.put(IndicatorEnum.PM10, "pm10");
-        indicatorCodeMap.put(IndicatorEnum.CO, "co");
-        indicatorCodeMap.put(IndicatorEnum.SO2, "so2");
-        indicatorCodeMap.put(IndicatorEnum.O3, "o3");
-        indicatorCodeMap.put(IndicatorEnum.NO2, "no2");
-
-        int extractedCount = 0;
-        for (String indicatorName : indicatorNames) {
-            indicatorName = indicatorName.trim();
-            IndicatorEnum indicator = IndicatorEnum.getByName(indicatorName);
-            if (indicator == null) {
-                log.debug("策略 {} 未找到指标: {}", strategy.getId(), indicatorName);
-                continue;
-            }
-            if (indicator.getApiEnum() != com.base.weather.constant.ApiEnum.REAL_TIME_AIR_QUALITY) {
-                log.debug("策略 {} 指标 {} 不是空气质量指标，跳过", strategy.getId(), indicatorName);
-                continue;
-            }
-
-            String code = indicatorCodeMap.get(indicator);
-            if (code == null) {
-                log.warn("策略 {} 指标 {} 没有对应的污染物代码映射", strategy.getId(), indicatorName);
-                continue;
-            }
-
-            HourlyAirQualityResponse.Pollutant pollutant = pollutantMap.get(code);
-            if (pollutant == null) {
-                log.warn("策略 {} 预报时间 {} 未找到污染物代码: {} (指标: {})",
-                        strategy.getId(), forecastTime, code, indicatorName);
-                continue;
-            }
-            if (pollutant.getConcentration() == null) {
-                log.warn("策略 {} 预报时间 {} 污染物 {} 的浓度数据为空",
-                        strategy.getId(), forecastTime, code);
-                continue;
-            }
-            if (pollutant.getConcentration().getValue() == null) {
-                log.warn("策略 {} 预报时间 {} 污染物 {} 的浓度值为空",
-                        strategy.getId(), forecastTime, code);
-                continue;
-            }
-
-            String value = String.valueOf(pollutant.getConcentration().getValue());
-            // 优先使用枚举中定义的单位，如果枚举中没有则使用API返回的单位
-            String unit = indicator.getUnit() != null ? indicator.getUnit() : pollutant.getConcentration().getUnit();
-            WeatherData data = createWeatherData(strategy, indicator.name(), value, unit, forecastTime);
-            weatherDataList.add(data);
-            extractedCount++;
-            log.debug("策略 {} 提取空气质量指标: {} = {} {}", strategy.getId(), indicatorName, value, unit);
-        }
-
-        if (extractedCount == 0) {
-            log.warn("策略 {} 预报时间 {} 没有提取到任何空气质量数据，指标列表: {}",
-                    strategy.getId(), forecastTime, String.join(", ", indicatorNames));
-        } else {
-            log.debug("策略 {} 预报时间 {} 提取了 {} 条空气质量数据", strategy.getId(), forecastTime, extractedCount);
-        }
-    }
-
     /**
      * 从实时天气响应中提取天气数据
      * <p>
@@ -520,6 +467,8 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
         }
         RealTimeWeatherResponse.Now now = response.getNow();
         String value;
+        // 风向角度（仅风向指标使用）
+        String wind360 = null;
         // 根据指标获取对应的值
         switch (indicator) {
             case Temperature:
@@ -533,6 +482,7 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                 break;
             case Wind_direction:
                 value = now.getWindDir();
+                wind360 = now.getWind360();
                 break;
             case Relative_humidify:
                 value = now.getHumidity();
@@ -559,7 +509,10 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
         // 从枚举中获取单位
         String unit = indicator.getUnit();
         if (value != null) {
-            WeatherData data = createWeatherData(strategy, indicator.name(), value, unit, collectTime);
+            WeatherData data = WeatherDataExtractUtils.createWeatherData(strategy, indicator.name(), value, unit, collectTime);
+            if (wind360 != null) {
+                data.setIndicatorNum(IndicatorValueUtils.toNumber(wind360));
+            }
             dataList.add(data);
         }
         return dataList;
@@ -613,7 +566,7 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
                 String value = String.valueOf(pollutant.getConcentration().getValue());
                 // 优先使用枚举中定义的单位，如果枚举中没有则使用API返回的单位
                 String unit = indicator.getUnit() != null ? indicator.getUnit() : pollutant.getConcentration().getUnit();
-                WeatherData data = createWeatherData(strategy, indicator.name(), value, unit, collectTime);
+                WeatherData data = WeatherDataExtractUtils.createWeatherData(strategy, indicator.name(), value, unit, collectTime);
                 dataList.add(data);
                 break;
             }
@@ -623,33 +576,20 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
     }
 
     /**
-     * 创建天气数据对象
-     * <p>
-     * 根据策略信息和指标数据，创建一个完整的WeatherData对象
-     * 包含策略关联信息、位置信息、指标信息、时间信息等
+     * 通过城市名称获取城市位置（同一采集批次内同一城市只查询一次）
      *
-     * @param strategy       天气策略对象，用于获取策略ID、城市名称、经纬度等信息
-     * @param indicatorName  指标名称（IndicatorEnum的name，如："Temperature"）
-     * @param indicatorValue 指标值（字符串格式）
-     * @param indicatorUnit  指标单位（如："℃"、"km/h"等）
-     * @param collectTime    采集时间
-     * @return 创建好的WeatherData对象
+     * @param cityName 城市名称
+     * @param batch    采集批次
+     * @return 第一个匹配的城市位置，未找到返回 null
      */
-    private WeatherData createWeatherData(WeatherStrategy strategy, String indicatorName,
-                                          String indicatorValue, String indicatorUnit,
-                                          LocalDateTime collectTime) {
-        WeatherData data = new WeatherData();
-        data.setStrategyId(strategy.getId());
-        data.setCityName(strategy.getCityName());
-        data.setLatitude(strategy.getTargetLatitude());
-        data.setLongitude(strategy.getTargetLongitude());
-        data.setCollectTime(collectTime);
-        data.setIndicatorName(indicatorName);
-        data.setIndicatorValue(indicatorValue);
-        data.setIndicatorUnit(indicatorUnit);
-        data.setCreateTime(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
-        data.setDelFlag(0);
-        return data;
+    private GeoCityResponse.Location resolveCity(String cityName, CollectBatch batch) {
+        String trimmedName = cityName.trim();
+        List<GeoCityResponse.Location> locations = batch.fetch(ApiEnum.GEO_CITY, trimmedName,
+                () -> apiService.getGeoLocation(trimmedName));
+        if (locations == null || locations.isEmpty()) {
+            return null;
+        }
+        return locations.get(0);
     }
 
     /**
@@ -658,6 +598,8 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
      * 根据查询请求对象查询天气数据（包括历史数据和预报数据）
      * 如果指定了indicatorName，则查询特定指标的数据
      * 如果未指定indicatorName，则查询该策略下所有指标的数据
+     * 如果指定了resolution，则从汇总表按时间桶返回（数值指标为平均值，风向为时间桶内最后一个值）
+     * 如果指定了maxPoints且结果超过该数量，按 LTTB 算法降采样
      *
      * @param queryReq 查询请求对象，包含策略ID、指标名称、时间范围等
      * @return 符合条件的天气数据VO列表
@@ -667,6 +609,235 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
         if (queryReq == null || !StringUtils.hasText(queryReq.getStrategyId())) {
             return new ArrayList<>();
         }
+        ResolutionEnum resolution = resolveResolution(queryReq);
+        List<WeatherDataVo> list;
+        if (resolution != null && rollupEnabled) {
+            list = convertRollupToWeatherDataVoList(queryRollup(queryReq, resolution));
+        } else {
+            list = queryRawWeatherData(queryReq);
+        }
+        return downsample(list, queryReq);
+    }
+
+    /**
+     * 查询天气数据汇总（每个时间桶、每个指标的最小值、最大值、平均值和最后一个值）
+     * <p>
+     * resolution 为空时按天汇总，为 auto 时根据时间范围自动选择
+     *
+     * @param queryReq 查询请求对象，包含策略ID、指标名称、时间范围、时间粒度等
+     * @return 汇总数据列表，按时间桶倒序排列
+     */
+    @Override
+    public List<WeatherDataRollupVo> queryWeatherRollup(WeatherDataQueryReq queryReq) {
+        if (queryReq == null || !StringUtils.hasText(queryReq.getStrategyId())) {
+            return new ArrayList<>();
+        }
+        if (!rollupEnabled) {
+            log.warn("汇总表未启用（collect.rollup.enabled=false），无法查询策略 {} 的汇总数据", queryReq.getStrategyId());
+            return new ArrayList<>();
+        }
+        ResolutionEnum resolution = resolveResolution(queryReq);
+        return queryRollup(queryReq, resolution != null ? resolution : ResolutionEnum.DAY);
+    }
+
+    /**
+     * 批量查询多个策略的天气数据
+     * <p>
+     * 所有策略在一条 SQL 中查询（strategy_id = ANY(?)），再按策略分组；
+     * 指定了指标名称列表时只返回这些指标，且只返回其中至少一个指标有值的时间点
+     *
+     * @param queryReq 批量查询请求，包含策略ID列表、指标名称列表、时间范围
+     * @return 策略ID到天气数据VO列表的映射，顺序与请求中的策略ID一致
+     */
+    @Override
+    public Map<String, List<WeatherDataVo>> queryWeatherDataBatch(WeatherDataBatchQueryReq queryReq) {
+        Map<String, List<WeatherDataVo>> result = new LinkedHashMap<>();
+        if (queryReq == null || queryReq.getStrategyIds() == null) {
+            return result;
+        }
+        for (String strategyId : queryReq.getStrategyIds()) {
+            if (StringUtils.hasText(strategyId)) {
+                result.put(strategyId, new ArrayList<>());
+            }
+        }
+        if (result.isEmpty()) {
+            return result;
+        }
+        Set<IndicatorEnum> indicators = new LinkedHashSet<>();
+        if (queryReq.getIndicatorNames() != null) {
+            for (String indicatorName : queryReq.getIndicatorNames()) {
+                IndicatorEnum indicator = IndicatorEnum.getByName(indicatorName);
+                if (indicator != null) {
+                    indicators.add(indicator);
+                } else {
+                    log.warn("未知的指标名称: {}", indicatorName);
+                }
+            }
+            if (indicators.isEmpty() && !queryReq.getIndicatorNames().isEmpty()) {
+                return result;
+            }
+        }
+
+        String[] strategyIds = result.keySet().toArray(new String[0]);
+        List<WeatherDataVo> list;
+        if (wideTableReadEnabled) {
+            list = weatherDataWideMapper.getHistoryByStrategyIds(strategyIds, queryReq.getStartTime(), queryReq.getEndTime());
+            if (!indicators.isEmpty()) {
+                list = retainIndicators(list, indicators);
+            }
+        } else {
+            String[] indicatorNames = indicators.stream().map(IndicatorEnum::name).toArray(String[]::new);
+            list = baseMapper.getHistoryByStrategyIds(strategyIds, indicatorNames, queryReq.getStartTime(), queryReq.getEndTime());
+        }
+        for (WeatherDataVo vo : list) {
+            List<WeatherDataVo> strategyList = result.get(vo.getStrategyId());
+            if (strategyList != null) {
+                strategyList.add(vo);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 只保留指定的指标，所有指定指标都没有值的时间点被过滤
+     */
+    private static List<WeatherDataVo> retainIndicators(List<WeatherDataVo> list, Set<IndicatorEnum> indicators) {
+        List<WeatherDataVo> retained = new ArrayList<>(list.size());
+        for (WeatherDataVo vo : list) {
+            WeatherDataVo copy = new WeatherDataVo();
+            copy.setStrategyId(vo.getStrategyId());
+            copy.setCityName(vo.getCityName());
+            copy.setLatitude(vo.getLatitude());
+            copy.setLongitude(vo.getLongitude());
+            copy.setCollectTime(vo.getCollectTime());
+            boolean hasValue = false;
+            for (IndicatorEnum indicator : indicators) {
+                String value = WeatherDataVoUtils.getIndicatorValue(vo, indicator);
+                if (value != null) {
+                    WeatherDataVoUtils.setIndicatorValue(copy, indicator, value);
+                    hasValue = true;
+                }
+            }
+            if (hasValue) {
+                retained.add(copy);
+            }
+        }
+        return retained;
+    }
+
+    private List<WeatherDataRollupVo> queryRollup(WeatherDataQueryReq queryReq, ResolutionEnum resolution) {
+        String indicatorName = null;
+        if (StringUtils.hasText(queryReq.getIndicatorName())) {
+            IndicatorEnum indicator = IndicatorEnum.getByName(queryReq.getIndicatorName());
+            if (indicator == null) {
+                return new ArrayList<>();
+            }
+            indicatorName = indicator.name();
+        }
+        return weatherDataRollupMapper.getRollup(queryReq.getStrategyId(), resolution.getCode(), indicatorName,
+                queryReq.getStartTime(), queryReq.getEndTime());
+    }
+
+    /**
+     * 解析查询的时间粒度
+     * <p>
+     * auto：按时间范围选择点数不超过 maxPoints（未指定时为 collect.rollup.auto-max-points）的最细粒度，
+     * 未指定开始时间时按天汇总
+     *
+     * @param queryReq 查询请求对象
+     * @return 时间粒度，未指定或无法识别时返回 null（查询原始数据）
+     */
+    private ResolutionEnum resolveResolution(WeatherDataQueryReq queryReq) {
+        String value = queryReq.getResolution();
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        if (!"auto".equalsIgnoreCase(value)) {
+            ResolutionEnum resolution = ResolutionEnum.getByCode(value);
+            if (resolution == null) {
+                log.warn("未知的时间粒度: {}，返回原始数据", value);
+            }
+            return resolution;
+        }
+        if (queryReq.getStartTime() == null) {
+            return ResolutionEnum.DAY;
+        }
+        long endMillis = queryReq.getEndTime() != null ? queryReq.getEndTime().getTime() : System.currentTimeMillis();
+        long spanMillis = Math.max(0, endMillis - queryReq.getStartTime().getTime());
+        int maxPoints = queryReq.getMaxPoints() != null && queryReq.getMaxPoints() > 0
+                ? queryReq.getMaxPoints() : autoMaxPoints;
+        for (ResolutionEnum resolution : ResolutionEnum.values()) {
+            if (spanMillis / resolution.getDuration().toMillis() <= maxPoints) {
+                return resolution;
+            }
+        }
+        return ResolutionEnum.WEEK;
+    }
+
+    /**
+     * 按 maxPoints 降采样（LTTB），以请求的指标（未指定时为第一个有数值的指标）作为曲线形状的依据
+     *
+     * @param list     天气数据VO列表（按 collectTime 倒序排列）
+     * @param queryReq 查询请求对象
+     * @return 降采样后的列表（按 collectTime 倒序排列）
+     */
+    private List<WeatherDataVo> downsample(List<WeatherDataVo> list, WeatherDataQueryReq queryReq) {
+        Integer maxPoints = queryReq.getMaxPoints();
+        if (maxPoints == null || maxPoints <= 0 || list == null || list.size() <= maxPoints) {
+            return list;
+        }
+        IndicatorEnum indicator = IndicatorEnum.getByName(queryReq.getIndicatorName());
+        if (indicator == null) {
+            indicator = firstNumericIndicator(list);
+        }
+        IndicatorEnum shapeIndicator = indicator;
+        List<WeatherDataVo> ascending = new ArrayList<>(list);
+        Collections.reverse(ascending);
+        List<WeatherDataVo> sampled = new ArrayList<>(DownsampleUtils.lttb(ascending, maxPoints,
+                vo -> vo.getCollectTime().toEpochSecond(ZoneOffset.UTC),
+                vo -> indicatorNumber(vo, shapeIndicator)));
+        Collections.reverse(sampled);
+        return sampled;
+    }
+
+    private static IndicatorEnum firstNumericIndicator(List<WeatherDataVo> list) {
+        for (IndicatorEnum indicator : IndicatorEnum.values()) {
+            if (indicator == IndicatorEnum.Wind_direction) {
+                continue;
+            }
+            for (WeatherDataVo vo : list) {
+                if (!Double.isNaN(indicatorNumber(vo, indicator))) {
+                    return indicator;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static double indicatorNumber(WeatherDataVo vo, IndicatorEnum indicator) {
+        if (indicator == null) {
+            return Double.NaN;
+        }
+        Double number = IndicatorValueUtils.toNumber(WeatherDataVoUtils.getIndicatorValue(vo, indicator));
+        return number != null ? number : Double.NaN;
+    }
+
+    /**
+     * 查询原始天气数据（不汇总）
+     */
+    private List<WeatherDataVo> queryRawWeatherData(WeatherDataQueryReq queryReq) {
+        if (wideTableReadEnabled) {
+            String indicatorColumn = null;
+            if (StringUtils.hasText(queryReq.getIndicatorName())) {
+                IndicatorEnum indicator = IndicatorEnum.getByName(queryReq.getIndicatorName());
+                if (indicator == null) {
+                    return new ArrayList<>();
+                }
+                indicatorColumn = indicator.getColumnName();
+            }
+            return weatherDataWideMapper.getHistoryByStrategyId(queryReq.getStrategyId(), indicatorColumn,
+                    queryReq.getStartTime(), queryReq.getEndTime());
+        }
         if (StringUtils.hasText(queryReq.getIndicatorName())) {
             // 查询特定指标的历史数据
             return baseMapper.getHistoryByStrategyIdAndIndicator(queryReq.getStrategyId(), queryReq.getIndicatorName(),
@@ -681,7 +852,7 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
      * 根据策略查询天气数据
      * <p>
      * 通过天气策略对象查询该策略关联的所有历史天气数据
-     * 不限制时间范围，返回该策略的所有历史数据
+     * 返回该策略的所有历史数据（以策略创建时间限定下界，便于分区裁剪）
      *
      * @param strategy 天气策略对象
      * @return 该策略关联的所有天气数据VO列表，按采集时间倒序排列
@@ -691,111 +862,46 @@ public class WeatherDataServiceImpl extends ServiceImpl<WeatherDataMapper, Weath
         if (strategy == null || !StringUtils.hasText(strategy.getId())) {
             return new ArrayList<>();
         }
-        return baseMapper.getHistoryByStrategyId(strategy.getId(), null, null);
+        // 策略的数据都在创建之后采集（预报从当前整点开始，可能略早于创建时间），
+        // 用创建时间前一天作为下界，weather_data 分区后只扫描相关分区
+        Date startTime = null;
+        if (strategy.getCreateTime() != null) {
+            startTime = new Date(strategy.getCreateTime().getTime() - TimeUnit.DAYS.toMillis(1));
+        }
+        if (wideTableReadEnabled) {
+            return weatherDataWideMapper.getHistoryByStrategyId(strategy.getId(), null, startTime, null);
+        }
+        return baseMapper.getHistoryByStrategyId(strategy.getId(), startTime, null);
     }
 
     /**
-     * 将 WeatherData 列表转换为 WeatherDataVo 列表（按 collectTime 分组）
+     * 将汇总数据转换为 WeatherDataVo 列表（按时间桶分组）
      * <p>
-     * 将多个 WeatherData 对象（同一时间点的不同指标）合并为一个 WeatherDataVo 对象
-     * 每个 WeatherDataVo 代表一个 collectTime 的所有指标值
+     * 数值指标取平均值，分类指标（风向）取时间桶内最后一个值
      *
-     * @param weatherDataList 天气数据列表
-     * @return 天气数据VO列表（按 collectTime 分组）
+     * @param rollupList 汇总数据列表（按时间桶倒序排列）
+     * @return 天气数据VO列表（按时间桶倒序排列）
      */
-    private List<WeatherDataVo> convertToWeatherDataVoList(List<WeatherData> weatherDataList) {
-        if (weatherDataList == null || weatherDataList.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        // 按 collectTime 分组
-        Map<LocalDateTime, WeatherDataVo> voMap = new HashMap<>();
-        for (WeatherData data : weatherDataList) {
-            LocalDateTime collectTime = data.getCollectTime();
-            WeatherDataVo vo = voMap.computeIfAbsent(collectTime, k -> {
+    private List<WeatherDataVo> convertRollupToWeatherDataVoList(List<WeatherDataRollupVo> rollupList) {
+        Map<LocalDateTime, WeatherDataVo> voMap = new LinkedHashMap<>();
+        for (WeatherDataRollupVo rollup : rollupList) {
+            WeatherDataVo vo = voMap.computeIfAbsent(rollup.getBucketTime(), k -> {
                 WeatherDataVo newVo = new WeatherDataVo();
-                newVo.setStrategyId(data.getStrategyId());
-                newVo.setCityName(data.getCityName());
-                newVo.setLatitude(data.getLatitude());
-                newVo.setLongitude(data.getLongitude());
-                newVo.setCollectTime(collectTime);
+                newVo.setStrategyId(rollup.getStrategyId());
+                newVo.setCityName(rollup.getCityName());
+                newVo.setLatitude(rollup.getLatitude());
+                newVo.setLongitude(rollup.getLongitude());
+                newVo.setCollectTime(rollup.getBucketTime());
                 return newVo;
             });
-
-            // 根据指标名称设置对应的字段值
-            String indicatorName = data.getIndicatorName();
-            String indicatorValue = data.getIndicatorValue();
-            if (indicatorName != null && indicatorValue != null) {
-                switch (indicatorName) {
-                    case "Temperature":
-                        vo.setTemperature(indicatorValue);
-                        break;
-                    case "Perceived_temperature":
-                        vo.setPerceivedTemperature(indicatorValue);
-                        break;
-                    case "Wind_speed":
-                        vo.setWindSpeed(indicatorValue);
-                        break;
-                    case "Wind_direction":
-                        vo.setWindDirection(indicatorValue);
-                        break;
-                    case "Relative_humidify":
-                        vo.setRelativeHumidify(indicatorValue);
-                        break;
-                    case "Atmospheric_pressure":
-                        vo.setAtmosphericPressure(indicatorValue);
-                        break;
-                    case "Precipitation":
-                        vo.setPrecipitation(indicatorValue);
-                        break;
-                    case "Visibility":
-                        vo.setVisibility(indicatorValue);
-                        break;
-                    case "Dew_point_temperature":
-                        vo.setDewPointTemperature(indicatorValue);
-                        break;
-                    case "Cloud_cover":
-                        vo.setCloudCover(indicatorValue);
-                        break;
-                    case "PM2p5":
-                        vo.setPm2p5(indicatorValue);
-                        break;
-                    case "PM10":
-                        vo.setPm10(indicatorValue);
-                        break;
-                    case "CO":
-                        vo.setCo(indicatorValue);
-                        break;
-                    case "SO2":
-                        vo.setSo2(indicatorValue);
-                        break;
-                    case "O3":
-                        vo.setO3(indicatorValue);
-                        break;
-                    case "NO2":
-                        vo.setNo2(indicatorValue);
-                        break;
-                    default:
-                        log.warn("未知的指标名称: {}", indicatorName);
-                        break;
-                }
+            IndicatorEnum indicator = IndicatorEnum.getByName(rollup.getIndicatorName());
+            if (indicator != null) {
+                // 风向的数值列为风向角度，平均值没有意义
+                String value = indicator != IndicatorEnum.Wind_direction && rollup.getAvgValue() != null
+                        ? WeatherDataVoUtils.formatNumber(rollup.getAvgValue()) : rollup.getLastValue();
+                WeatherDataVoUtils.setIndicatorValue(vo, indicator, value);
             }
         }
-
-        // 转换为列表并按 collectTime 降序排列
-        List<WeatherDataVo> result = new ArrayList<>(voMap.values());
-        result.sort((a, b) -> {
-            if (a.getCollectTime() == null && b.getCollectTime() == null) {
-                return 0;
-            }
-            if (a.getCollectTime() == null) {
-                return 1;
-            }
-            if (b.getCollectTime() == null) {
-                return -1;
-            }
-            return b.getCollectTime().compareTo(a.getCollectTime());
-        });
-        return result;
+        return new ArrayList<>(voMap.values());
     }
 }
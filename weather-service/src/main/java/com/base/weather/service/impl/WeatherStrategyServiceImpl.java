@@ -12,15 +12,16 @@ import com.base.weather.entity.req.WeatherStrategyQueryReq;
 import com.base.weather.entity.req.WeatherStrategyAddReq;
 import com.base.weather.entity.vo.WeatherStrategyVo;
 import com.base.weather.mapper.WeatherStrategyMapper;
+import com.base.weather.service.ForecastCollectQueue;
+import com.base.weather.service.StrategyRegistry;
 import com.base.weather.service.WeatherStrategyService;
-import com.base.weather.service.WeatherDataService;
 import com.base.weather.util.DateTimeUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
@@ -36,8 +37,13 @@ import java.util.stream.Collectors;
 public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMapper, WeatherStrategy> implements WeatherStrategyService {
 
     @Autowired
-    @Lazy
-    private WeatherDataService weatherDataService;
+    private ForecastCollectQueue forecastCollectQueue;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StrategyRegistry strategyRegistry;
 
     /**
      * 新增
@@ -46,10 +52,42 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
      * @return 新增结果
      */
     public boolean add(WeatherStrategyAddReq weatherStrategyAddReq) {
+        WeatherStrategy weatherStrategy = insertStrategy(weatherStrategyAddReq);
+        // 如果需要立即采集，提交异步预报数据采集（不阻塞请求线程）
+        if (weatherStrategy != null && isCollecting(weatherStrategy)) {
+            String jobId = forecastCollectQueue.submit(Collections.singletonList(weatherStrategy), "add");
+            log.info("策略 {} 新增后提交预报数据采集任务 {}", weatherStrategy.getId(), jobId);
+        }
+        return weatherStrategy != null;
+    }
+
+    /**
+     * 新增策略记录（不触发采集）
+     *
+     * @param weatherStrategyAddReq 新增请求
+     * @return 新增的策略，新增失败返回 null
+     */
+    private WeatherStrategy insertStrategy(WeatherStrategyAddReq weatherStrategyAddReq) {
+        WeatherStrategy weatherStrategy = buildStrategy(weatherStrategyAddReq, new Date());
+        if (baseMapper.insert(weatherStrategy) <= 0) {
+            return null;
+        }
+        strategyRegistry.onSaved(Collections.singletonList(weatherStrategy));
+        return weatherStrategy;
+    }
+
+    /**
+     * 根据新增请求构建策略实体，并设置初始采集状态
+     *
+     * @param weatherStrategyAddReq 新增请求
+     * @param createTime            创建时间
+     * @return 策略实体（未保存）
+     */
+    private WeatherStrategy buildStrategy(WeatherStrategyAddReq weatherStrategyAddReq, Date createTime) {
         WeatherStrategy weatherStrategy = new WeatherStrategy();
         BeanUtils.copyProperties(weatherStrategyAddReq, weatherStrategy);
         weatherStrategy.setDelFlag(DelFlagConst.NORMAL_INT);
-        weatherStrategy.setCreateTime(new Date());
+        weatherStrategy.setCreateTime(createTime);
 
         // 仅在“新增策略”时设置采集状态：
         // 当前时间与采集结束时间相差7天以上：待采集
@@ -58,21 +96,11 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
         weatherStrategy.setCollectStatus(String.valueOf(
                 within7Days ? CollectStatusEnum.COLLECTING.getCode() : CollectStatusEnum.PENDING.getCode()
         ));
+        return weatherStrategy;
+    }
 
-        boolean result = baseMapper.insert(weatherStrategy) > 0;
-
-        // 如果需要立即采集，触发预报数据采集
-        if (result && within7Days) {
-            try {
-                log.info("策略 {} 新增后立即触发预报数据采集", weatherStrategy.getId());
-                weatherDataService.collectForecastDataByTimeRange(weatherStrategy);
-            } catch (Exception e) {
-                log.error("策略 {} 新增后立即采集预报数据失败", weatherStrategy.getId(), e);
-                // 本次采集异常不影响策略新增的成功，状态会在 collectForecastDataByTimeRange 中被更新为待采集/采集中
-            }
-        }
-
-        return result;
+    private static boolean isCollecting(WeatherStrategy weatherStrategy) {
+        return String.valueOf(CollectStatusEnum.COLLECTING.getCode()).equals(weatherStrategy.getCollectStatus());
     }
 
     /**
@@ -94,19 +122,8 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
             List<WeatherStrategy> strategiesToCollect = new ArrayList<>(); // 需要立即采集的策略
 
             for (WeatherStrategyAddReq req : weatherStrategys) {
-                WeatherStrategy strategy = new WeatherStrategy();
-                BeanUtils.copyProperties(req, strategy);
-                strategy.setDelFlag(DelFlagConst.NORMAL_INT);
-                strategy.setCreateTime(now);
-
-                // 仅在“新增策略”时设置采集状态：
-                // 当前时间与采集结束时间相差7天以上：待采集
-                // 相差7天以内：采集中
-                boolean within7Days = isCollectEndWithinDays(req.getCollectEnd(), 7);
-                strategy.setCollectStatus(String.valueOf(
-                        within7Days ? CollectStatusEnum.COLLECTING.getCode() : CollectStatusEnum.PENDING.getCode()
-                ));
-                if (within7Days) {
+                WeatherStrategy strategy = buildStrategy(req, now);
+                if (isCollecting(strategy)) {
                     strategiesToCollect.add(strategy);
                 }
 
@@ -116,17 +133,14 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
             // 使用 MyBatis-Plus 批量保存（默认每批1000条）
             boolean result = saveBatch(strategyList);
 
-            // 如果需要立即采集，触发预报数据采集
+            if (result) {
+                strategyRegistry.onSaved(strategyList);
+            }
+
+            // 如果需要立即采集，提交异步预报数据采集（事务提交后开始，回滚则取消）
             if (result && !strategiesToCollect.isEmpty()) {
-                for (WeatherStrategy strategy : strategiesToCollect) {
-                    try {
-                        log.info("策略 {} 批量新增后立即触发预报数据采集", strategy.getId());
-                        weatherDataService.collectForecastDataByTimeRange(strategy);
-                    } catch (Exception e) {
-                        log.error("策略 {} 批量新增后立即采集预报数据失败", strategy.getId(), e);
-                        // 本次采集异常不影响策略新增的成功，状态会在 collectForecastDataByTimeRange 中被更新为待采集/采集中
-                    }
-                }
+                String jobId = forecastCollectQueue.submit(strategiesToCollect, "batchAdd");
+                log.info("批量新增策略提交预报数据采集任务 {}，策略数: {}", jobId, strategiesToCollect.size());
             }
 
             log.info("批量新增天气策略完成，总数: {}, 成功: {}, 立即采集: {}",
@@ -197,16 +211,15 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
         }
         
         boolean result = updateById(weatherStrategy);
+        if (result) {
+            // 请求中为空的字段不会更新，重新读取完整的策略
+            strategyRegistry.onChanged(weatherStrategy.getId());
+        }
         
-        // 如果更新成功，且需要触发采集，则触发预报数据采集
+        // 如果更新成功，且需要触发采集，则提交异步预报数据采集
         if (result && shouldTriggerCollection) {
-            try {
-                log.info("策略 {} 更新后立即触发预报数据采集", weatherStrategy.getId());
-                weatherDataService.collectForecastDataByTimeRange(weatherStrategy);
-            } catch (Exception e) {
-                log.error("策略 {} 更新后立即采集预报数据失败", weatherStrategy.getId(), e);
-                // 本次采集异常不影响策略更新的成功
-            }
+            String jobId = forecastCollectQueue.submit(Collections.singletonList(weatherStrategy), "update");
+            log.info("策略 {} 更新后提交预报数据采集任务 {}", weatherStrategy.getId(), jobId);
         }
         
         return result;
@@ -224,7 +237,13 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
         AssertUtils.throwNull(weatherStrategy, "没有查询到对应的实体信息");
         weatherStrategy.setDelFlag(DelFlagConst.DELETED_INT);
         weatherStrategy.setCollectStatus(String.valueOf(CollectStatusEnum.CANCELLED.getCode()));
-        return updateById(weatherStrategy);
+        // 设置更新时间，其他节点的策略注册表通过增量刷新感知删除
+        weatherStrategy.setUpdateTime(new Date());
+        boolean result = updateById(weatherStrategy);
+        if (result) {
+            strategyRegistry.onRemoved(id);
+        }
+        return result;
     }
 
     /**
@@ -239,7 +258,11 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
         AssertUtils.throwNull(weatherStrategy, "没有查询到对应的实体信息");
         weatherStrategy.setCollectStatus(String.valueOf(CollectStatusEnum.CANCELLED.getCode()));
         weatherStrategy.setUpdateTime(new Date());
-        return updateById(weatherStrategy);
+        boolean result = updateById(weatherStrategy);
+        if (result) {
+            strategyRegistry.onRemoved(id);
+        }
+        return result;
     }
 
     /**
@@ -339,19 +362,13 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
             return new BatchImportResult(0, new ArrayList<>(), new ArrayList<>());
         }
 
-        // 检查Excel文件内的重复（同一批导入数据中的重复）
+        // 检查Excel文件内的重复（同一批导入数据中的重复），重复的需求名称全部跳过
         Set<String> excelDemandNames = new HashSet<>();
-        List<String> excelDuplicates = new ArrayList<>();
+        Set<String> excelDuplicates = new LinkedHashSet<>();
         for (WeatherStrategyAddReq req : strategyList) {
             String demandName = req.getDemandName();
-            if (demandName != null && !demandName.trim().isEmpty()) {
-                if (excelDemandNames.contains(demandName.trim())) {
-                    if (!excelDuplicates.contains(demandName.trim())) {
-                        excelDuplicates.add(demandName.trim());
-                    }
-                } else {
-                    excelDemandNames.add(demandName.trim());
-                }
+            if (demandName != null && !demandName.trim().isEmpty() && !excelDemandNames.add(demandName.trim())) {
+                excelDuplicates.add(demandName.trim());
             }
         }
 
@@ -359,28 +376,50 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
             log.warn("Excel文件中存在重复的需求名称: {}", excelDuplicates);
         }
 
-        // 批量查询数据库中已存在的需求名称（优化：减少数据库查询次数）
-        Set<String> existingDemandNames = new HashSet<>();
+        List<WeatherStrategy> strategiesToCollect = new ArrayList<>();
+        BatchImportResult result = importChunk(strategyList, excelDuplicates, strategiesToCollect);
+        // 需要立即采集的策略合并为一个异步采集任务
+        result.setCollectJobId(forecastCollectQueue.submit(strategiesToCollect, "import"));
+        log.info("批量导入完成，总数: {}, 成功: {}, Excel内重复: {}, 数据库已存在: {}",
+                strategyList.size(), result.getSuccessCount(), result.getExcelDuplicates().size(),
+                result.getExistingDemandNames().size());
+        return result;
+    }
+
+    @Override
+    public BatchImportResult importChunk(List<WeatherStrategyAddReq> strategyList, Set<String> excelDuplicates,
+                                         List<WeatherStrategy> collectStrategies) {
+        if (strategyList == null || strategyList.isEmpty()) {
+            return new BatchImportResult(0, new ArrayList<>(), new ArrayList<>());
+        }
+
+        // 本批中需要查询数据库的需求名称（Excel内重复的直接跳过，不需要再查数据库）
+        Set<String> chunkDuplicates = new LinkedHashSet<>();
+        Set<String> candidateNames = new LinkedHashSet<>();
         for (WeatherStrategyAddReq req : strategyList) {
             String demandName = req.getDemandName();
-            if (demandName != null && !demandName.trim().isEmpty()) {
-                String trimmedName = demandName.trim();
-                // 跳过Excel内重复的，不需要再查数据库
-                if (!excelDuplicates.contains(trimmedName)) {
-                    // 检查数据库中是否已存在
-                    int count = baseMapper.countByDemandName(trimmedName);
-                    if (count > 0) {
-                        existingDemandNames.add(trimmedName);
-                    }
-                }
+            if (demandName == null || demandName.trim().isEmpty()) {
+                continue;
+            }
+            if (excelDuplicates.contains(demandName.trim())) {
+                chunkDuplicates.add(demandName.trim());
+            } else {
+                candidateNames.add(demandName.trim());
             }
         }
+
+        // 一次查询数据库中已存在的需求名称
+        Set<String> existingDemandNames = new LinkedHashSet<>();
+        if (!candidateNames.isEmpty()) {
+            existingDemandNames.addAll(baseMapper.selectExistingDemandNames(candidateNames.toArray(new String[0])));
+        }
         if (!existingDemandNames.isEmpty()) {
             log.warn("数据库中已存在以下需求名称，将跳过: {}", existingDemandNames);
         }
 
         // 过滤掉重复的记录，只导入有效的记录
-        int successCount = 0;
+        Date now = new Date();
+        List<WeatherStrategy> strategiesToInsert = new ArrayList<>();
         for (WeatherStrategyAddReq req : strategyList) {
             String demandName = req.getDemandName();
             if (demandName == null || demandName.trim().isEmpty()) {
@@ -402,24 +441,60 @@ public class WeatherStrategyServiceImpl extends ServiceImpl<WeatherStrategyMappe
                 continue;
             }
 
-            // 尝试添加
             try {
-                if (add(req)) {
-                    successCount++;
-                }
+                strategiesToInsert.add(buildStrategy(req, now));
             } catch (Exception e) {
                 // 记录错误但继续处理其他数据
                 log.error("导入策略失败: {}", trimmedName, e);
             }
         }
 
-        List<String> excelDuplicatesList = new ArrayList<>(excelDuplicates);
-        List<String> existingDemandNamesList = new ArrayList<>(existingDemandNames);
+        // 批量插入
+        List<WeatherStrategy> insertedStrategies = insertStrategies(strategiesToInsert);
+        int successCount = insertedStrategies.size();
+        strategyRegistry.onSaved(insertedStrategies);
+        for (WeatherStrategy strategy : insertedStrategies) {
+            if (isCollecting(strategy)) {
+                collectStrategies.add(strategy);
+            }
+        }
 
-        log.info("批量导入完成，总数: {}, 成功: {}, Excel内重复: {}, 数据库已存在: {}",
-                strategyList.size(), successCount, excelDuplicatesList.size(), existingDemandNamesList.size());
+        return new BatchImportResult(successCount, new ArrayList<>(chunkDuplicates),
+                new ArrayList<>(existingDemandNames));
+    }
 
-        return new BatchImportResult(successCount, excelDuplicatesList, existingDemandNamesList);
+    /**
+     * 批量插入策略
+     * <p>
+     * 先在一个事务内批量插入全部策略；批量插入失败时回滚并逐条插入，跳过插入失败的记录
+     *
+     * @param strategies 待插入的策略
+     * @return 插入成功的策略
+     */
+    private List<WeatherStrategy> insertStrategies(List<WeatherStrategy> strategies) {
+        if (strategies.isEmpty()) {
+            return strategies;
+        }
+        try {
+            Boolean saved = transactionTemplate.execute(status -> saveBatch(strategies));
+            if (Boolean.TRUE.equals(saved)) {
+                return strategies;
+            }
+        } catch (Exception e) {
+            log.warn("批量插入策略失败，改为逐条插入，数量: {}", strategies.size(), e);
+        }
+        List<WeatherStrategy> inserted = new ArrayList<>(strategies.size());
+        for (WeatherStrategy strategy : strategies) {
+            try {
+                if (baseMapper.insert(strategy) > 0) {
+                    inserted.add(strategy);
+                }
+            } catch (Exception e) {
+                // 记录错误但继续处理其他数据
+                log.error("导入策略失败: {}", strategy.getDemandName(), e);
+            }
+        }
+        return inserted;
     }
 
     /**
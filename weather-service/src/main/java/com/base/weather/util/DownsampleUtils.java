@@ -0,0 +1,83 @@
+package com.base.weather.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 降采样工具类
+ * 使用 LTTB（Largest-Triangle-Three-Buckets）算法减少数据点数量，同时保留曲线的峰谷形状，适用于图表展示
+ */
+public class DownsampleUtils {
+
+    /**
+     * LTTB 降采样
+     * <p>
+     * 保留第一个和最后一个点，其余点均分为 (threshold - 2) 个桶，每个桶选取与前一个选中点、
+     * 下一个桶平均点构成三角形面积最大的点。y 值为 NaN 的点不参与平均值计算，也不会被优先选中
+     *
+     * @param points    数据点（按 x 升序排列）
+     * @param threshold 最大点数，小于3或不小于数据点数量时原样返回
+     * @param x         x 值（例如时间戳）
+     * @param y         y 值（例如指标数值），缺失时返回 NaN
+     * @param <T>       数据点类型
+     * @return 降采样后的数据点（按 x 升序排列）
+     */
+    public static <T> List<T> lttb(List<T> points, int threshold, ToDoubleFunction<T> x, ToDoubleFunction<T> y) {
+        int size = points.size();
+        if (threshold < 3 || threshold >= size) {
+            return points;
+        }
+        List<T> sampled = new ArrayList<>(threshold);
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        sampled.add(points.get(0));
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // 下一个桶的平均点（最后一个桶的下一个桶为最后一个点）
+            int nextStart = (int) Math.floor((i + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * bucketSize) + 1, size);
+            double avgX = 0;
+            double avgY = 0;
+            int count = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                double pointY = y.applyAsDouble(points.get(j));
+                if (!Double.isNaN(pointY)) {
+                    avgX += x.applyAsDouble(points.get(j));
+                    avgY += pointY;
+                    count++;
+                }
+            }
+            if (count > 0) {
+                avgX /= count;
+                avgY /= count;
+            } else {
+                avgX = x.applyAsDouble(points.get(size - 1));
+                avgY = y.applyAsDouble(points.get(size - 1));
+            }
+
+            // 当前桶中与前一个选中点、下一个桶平均点构成三角形面积最大的点
+            int start = (int) Math.floor(i * bucketSize) + 1;
+            int end = (int) Math.floor((i + 1) * bucketSize) + 1;
+            double selectedX = x.applyAsDouble(points.get(selected));
+            double selectedY = y.applyAsDouble(points.get(selected));
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int j = start; j < end; j++) {
+                double pointX = x.applyAsDouble(points.get(j));
+                double pointY = y.applyAsDouble(points.get(j));
+                double area = Math.abs((selectedX - avgX) * (pointY - selectedY)
+                        - (selectedX - pointX) * (avgY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            sampled.add(points.get(maxIndex));
+            selected = maxIndex;
+        }
+
+        sampled.add(points.get(size - 1));
+        return sampled;
+    }
+}
@@ -0,0 +1,79 @@
+package com.base.weather.util;
+
+import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.entity.WeatherData;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 指标值工具类
+ * 将字符串指标值转换为数值列（indicator_num）和分类编码列（indicator_code），便于统计查询
+ */
+public class IndicatorValueUtils {
+
+    /**
+     * 风向名称到编码的映射（和风天气 windDir 取值），顺时针从北风开始编号
+     */
+    private static final Map<String, Integer> WIND_DIRECTION_CODES = new HashMap<>();
+
+    static {
+        WIND_DIRECTION_CODES.put("北风", 0);
+        WIND_DIRECTION_CODES.put("东北风", 1);
+        WIND_DIRECTION_CODES.put("东风", 2);
+        WIND_DIRECTION_CODES.put("东南风", 3);
+        WIND_DIRECTION_CODES.put("南风", 4);
+        WIND_DIRECTION_CODES.put("西南风", 5);
+        WIND_DIRECTION_CODES.put("西风", 6);
+        WIND_DIRECTION_CODES.put("西北风", 7);
+        WIND_DIRECTION_CODES.put("旋转风", 8);
+        WIND_DIRECTION_CODES.put("无持续风向", 9);
+    }
+
+    /**
+     * 根据指标名称和字符串值填充数值列和编码列
+     * <p>
+     * 风向为分类指标，填充编码列（数值列可由调用方填充风向角度）；其他指标填充数值列
+     *
+     * @param data 天气数据
+     */
+    public static void fillTypedValue(WeatherData data) {
+        if (IndicatorEnum.Wind_direction.name().equals(data.getIndicatorName())) {
+            data.setIndicatorCode(windDirectionCode(data.getIndicatorValue()));
+        } else {
+            data.setIndicatorNum(toNumber(data.getIndicatorValue()));
+        }
+    }
+
+    /**
+     * 解析数值
+     *
+     * @param value 字符串值
+     * @return 数值，为空或无法解析时返回 null
+     */
+    public static Double toNumber(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        try {
+            double number = Double.parseDouble(value.trim());
+            return Double.isFinite(number) ? number : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取风向编码
+     *
+     * @param windDirection 风向名称，例如：东北风
+     * @return 风向编码，未知风向返回 null
+     */
+    public static Integer windDirectionCode(String windDirection) {
+        if (!StringUtils.hasText(windDirection)) {
+            return null;
+        }
+        return WIND_DIRECTION_CODES.get(windDirection.trim());
+    }
+}
@@ -0,0 +1,66 @@
+package com.base.weather.util;
+
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 位置工具类
+ * 提供经纬度规范化、位置键生成等通用方法
+ */
+public class LocationUtils {
+
+    /**
+     * 经纬度保留的小数位数（和风天气接口最多支持两位小数）
+     */
+    private static final int COORDINATE_SCALE = 2;
+
+    /**
+     * 规范化经纬度（保留两位小数，四舍五入）
+     *
+     * @param coordinate 经度或纬度
+     * @return 规范化后的值，入参为 null 时返回 null
+     */
+    public static Double normalizeCoordinate(Double coordinate) {
+        if (coordinate == null) {
+            return null;
+        }
+        return BigDecimal.valueOf(coordinate).setScale(COORDINATE_SCALE, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * 生成和风天气 location 参数（格式：经度,纬度），经纬度先做规范化
+     *
+     * @param longitude 经度
+     * @param latitude  纬度
+     * @return location 参数，例如：116.41,39.92
+     */
+    public static String formatLocation(Double longitude, Double latitude) {
+        return format(normalizeCoordinate(longitude)) + "," + format(normalizeCoordinate(latitude));
+    }
+
+    /**
+     * 生成策略的位置分组键
+     * <p>
+     * 有经纬度时使用规范化后的经纬度，否则使用城市名称；两者都没有返回 null
+     *
+     * @param latitude  纬度
+     * @param longitude 经度
+     * @param cityName  城市名称
+     * @return 位置分组键
+     */
+    public static String locationKey(Double latitude, Double longitude, String cityName) {
+        if (latitude != null && longitude != null) {
+            return formatLocation(longitude, latitude);
+        }
+        if (StringUtils.hasText(cityName)) {
+            return "city:" + cityName.trim();
+        }
+        return null;
+    }
+
+    private static String format(Double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
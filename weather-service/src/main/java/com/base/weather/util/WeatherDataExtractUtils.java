@@ -0,0 +1,217 @@
+package com.base.weather.util;
+
+import com.base.weather.constant.ApiEnum;
+import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.entity.WeatherData;
+import com.base.weather.entity.WeatherStrategy;
+import com.base.weather.entity.dto.HourlyAirQualityResponse;
+import com.base.weather.entity.dto.HourlyForecastWeatherResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 天气数据提取工具类
+ * 从和风天气预报响应中按策略的指标列表提取 WeatherData
+ */
+@Slf4j
+public class WeatherDataExtractUtils {
+
+    /**
+     * 从逐小时天气预报响应中提取天气数据
+     *
+     * @param strategy        天气策略对象
+     * @param hourly          逐小时天气预报数据
+     * @param forecastTime    预报时间
+     * @param indicatorNames  需要采集的指标名称列表
+     * @param weatherDataList 天气数据列表（用于收集数据）
+     */
+    public static void extractHourlyWeatherData(WeatherStrategy strategy,
+                                                HourlyForecastWeatherResponse.Hourly hourly,
+                                                LocalDateTime forecastTime,
+                                                String[] indicatorNames,
+                                                List<WeatherData> weatherDataList) {
+        for (String indicatorName : indicatorNames) {
+            indicatorName = indicatorName.trim();
+            IndicatorEnum indicator = IndicatorEnum.getByName(indicatorName);
+            if (indicator == null || indicator.getApiEnum() != ApiEnum.REAL_TIME_WEATHER) {
+                continue;
+            }
+
+            String value = null;
+            // 风向角度（仅风向指标使用）
+            String wind360 = null;
+            switch (indicator) {
+                case Temperature:
+                    value = hourly.getTemp();
+                    break;
+                case Perceived_temperature:
+                    // 逐小时预报中没有体感温度，跳过
+                    continue;
+                case Wind_speed:
+                    value = hourly.getWindSpeed();
+                    break;
+                case Wind_direction:
+                    value = hourly.getWindDir();
+                    wind360 = hourly.getWind360();
+                    break;
+                case Relative_humidify:
+                    value = hourly.getHumidity();
+                    break;
+                case Atmospheric_pressure:
+                    value = hourly.getPressure();
+                    break;
+                case Precipitation:
+                    value = hourly.getPrecip();
+                    break;
+                case Visibility:
+                    // 逐小时预报中没有能见度，跳过
+                    continue;
+                case Dew_point_temperature:
+                    value = hourly.getDew();
+                    break;
+                case Cloud_cover:
+                    value = hourly.getCloud();
+                    break;
+                default:
+                    continue;
+            }
+
+            if (value != null) {
+                String unit = indicator.getUnit();
+                WeatherData data = createWeatherData(strategy, indicator.name(), value, unit, forecastTime);
+                if (wind360 != null) {
+                    data.setIndicatorNum(IndicatorValueUtils.toNumber(wind360));
+                }
+                weatherDataList.add(data);
+            }
+        }
+    }
+
+    /**
+     * 从空气质量小时预报响应中提取天气数据
+     *
+     * @param strategy        天气策略对象
+     * @param hour            空气质量小时预报数据
+     * @param forecastTime    预报时间
+     * @param indicatorNames  需要采集的指标名称列表
+     * @param weatherDataList 天气数据列表（用于收集数据）
+     */
+    public static void extractHourlyAirQualityData(WeatherStrategy strategy,
+                                                   HourlyAirQualityResponse.Hour hour,
+                                                   LocalDateTime forecastTime,
+                                                   String[] indicatorNames,
+                                                   List<WeatherData> weatherDataList) {
+        if (hour.getPollutants() == null || hour.getPollutants().isEmpty()) {
+            log.warn("策略 {} 预报时间 {} 的污染物数据为空", strategy.getId(), forecastTime);
+            return;
+        }
+
+        // 创建污染物代码到污染物对象的映射
+        Map<String, HourlyAirQualityResponse.Pollutant> pollutantMap = new HashMap<>();
+        for (HourlyAirQualityResponse.Pollutant pollutant : hour.getPollutants()) {
+            if (pollutant.getCode() != null) {
+                pollutantMap.put(pollutant.getCode().toLowerCase(), pollutant);
+                log.debug("策略 {} 找到污染物: {} (code: {})", strategy.getId(), pollutant.getName(), pollutant.getCode());
+            }
+        }
+
+        log.debug("策略 {} 预报时间 {} 的污染物映射: {}", strategy.getId(), forecastTime, pollutantMap.keySet());
+
+        // 指标名称到污染物代码的映射
+        Map<IndicatorEnum, String> indicatorCodeMap = new HashMap<>();
+        indicatorCodeMap.put(IndicatorEnum.PM2p5, "pm2p5");
+        indicatorCodeMap.put(IndicatorEnum.PM10, "pm10");
+        indicatorCodeMap.put(IndicatorEnum.CO, "co");
+        indicatorCodeMap.put(IndicatorEnum.SO2, "so2");
+        indicatorCodeMap.put(IndicatorEnum.O3, "o3");
+        indicatorCodeMap.put(IndicatorEnum.NO2, "no2");
+
+        int extractedCount = 0;
+        for (String indicatorName : indicatorNames) {
+            indicatorName = indicatorName.trim();
+            IndicatorEnum indicator = IndicatorEnum.getByName(indicatorName);
+            if (indicator == null) {
+                log.debug("策略 {} 未找到指标: {}", strategy.getId(), indicatorName);
+                continue;
+            }
+            if (indicator.getApiEnum() != ApiEnum.REAL_TIME_AIR_QUALITY) {
+                log.debug("策略 {} 指标 {} 不是空气质量指标，跳过", strategy.getId(), indicatorName);
+                continue;
+            }
+
+            String code = indicatorCodeMap.get(indicator);
+            if (code == null) {
+                log.warn("策略 {} 指标 {} 没有对应的污染物代码映射", strategy.getId(), indicatorName);
+                continue;
+            }
+
+            HourlyAirQualityResponse.Pollutant pollutant = pollutantMap.get(code);
+            if (pollutant == null) {
+                log.warn("策略 {} 预报时间 {} 未找到污染物代码: {} (指标: {})",
+                        strategy.getId(), forecastTime, code, indicatorName);
+                continue;
+            }
+            if (pollutant.getConcentration() == null) {
+                log.warn("策略 {} 预报时间 {} 污染物 {} 的浓度数据为空",
+                        strategy.getId(), forecastTime, code);
+                continue;
+            }
+            if (pollutant.getConcentration().getValue() == null) {
+                log.warn("策略 {} 预报时间 {} 污染物 {} 的浓度值为空",
+                        strategy.getId(), forecastTime, code);
+                continue;
+            }
+
+            String value = String.valueOf(pollutant.getConcentration().getValue());
+            // 优先使用枚举中定义的单位，如果枚举中没有则使用API返回的单位
+            String unit = indicator.getUnit() != null ? indicator.getUnit() : pollutant.getConcentration().getUnit();
+            WeatherData data = createWeatherData(strategy, indicator.name(), value, unit, forecastTime);
+            weatherDataList.add(data);
+            extractedCount++;
+            log.debug("策略 {} 提取空气质量指标: {} = {} {}", strategy.getId(), indicatorName, value, unit);
+        }
+
+        if (extractedCount == 0) {
+            log.warn("策略 {} 预报时间 {} 没有提取到任何空气质量数据，指标列表: {}",
+                    strategy.getId(), forecastTime, String.join(", ", indicatorNames));
+        } else {
+            log.debug("策略 {} 预报时间 {} 提取了 {} 条空气质量数据", strategy.getId(), forecastTime, extractedCount);
+        }
+    }
+
+    /**
+     * 创建天气数据对象
+     * <p>
+     * 根据策略信息和指标数据，创建一个完整的WeatherData对象
+     * 包含策略关联信息、位置信息、指标信息、时间信息等
+     *
+     * @param strategy       天气策略对象，用于获取策略ID、城市名称、经纬度等信息
+     * @param indicatorName  指标名称（IndicatorEnum的name，如："Temperature"）
+     * @param indicatorValue 指标值（字符串格式）
+     * @param indicatorUnit  指标单位（如："℃"、"km/h"等）
+     * @param collectTime    采集时间
+     * @return 创建好的WeatherData对象
+     */
+    public static WeatherData createWeatherData(WeatherStrategy strategy, String indicatorName,
+                                                String indicatorValue, String indicatorUnit,
+                                                LocalDateTime collectTime) {
+        WeatherData data = new WeatherData();
+        data.setStrategyId(strategy.getId());
+        data.setCityName(strategy.getCityName());
+        data.setLatitude(strategy.getTargetLatitude());
+        data.setLongitude(strategy.getTargetLongitude());
+        data.setCollectTime(collectTime);
+        data.setIndicatorName(indicatorName);
+        data.setIndicatorValue(indicatorValue);
+        data.setIndicatorUnit(indicatorUnit);
+        IndicatorValueUtils.fillTypedValue(data);
+        data.setCreateTime(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+        data.setDelFlag(0);
+        return data;
+    }
+}
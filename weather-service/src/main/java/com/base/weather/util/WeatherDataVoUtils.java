@@ -0,0 +1,206 @@
+package com.base.weather.util;
+
+import com.base.weather.constant.IndicatorEnum;
+import com.base.weather.entity.WeatherData;
+import com.base.weather.entity.vo.WeatherDataVo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 天气数据VO工具类
+ * 按指标读写 WeatherDataVo 中对应的字段
+ */
+@Slf4j
+public class WeatherDataVoUtils {
+
+    /**
+     * 汇总值的保留小数位数
+     */
+    private static final int NUMBER_SCALE = 2;
+
+    /**
+     * 格式化汇总得到的数值（保留两位小数，去掉末尾的0）
+     *
+     * @param value 数值
+     * @return 字符串值，例如：21.35、1013
+     */
+    public static String formatNumber(Double value) {
+        if (value == null || !Double.isFinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(NUMBER_SCALE, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 设置指标值
+     *
+     * @param vo        天气数据VO
+     * @param indicator 指标
+     * @param value     指标值
+     */
+    public static void setIndicatorValue(WeatherDataVo vo, IndicatorEnum indicator, String value) {
+        switch (indicator) {
+            case Temperature:
+                vo.setTemperature(value);
+                break;
+            case Perceived_temperature:
+                vo.setPerceivedTemperature(value);
+                break;
+            case Wind_speed:
+                vo.setWindSpeed(value);
+                break;
+            case Wind_direction:
+                vo.setWindDirection(value);
+                break;
+            case Relative_humidify:
+                vo.setRelativeHumidify(value);
+                break;
+            case Atmospheric_pressure:
+                vo.setAtmosphericPressure(value);
+                break;
+            case Precipitation:
+                vo.setPrecipitation(value);
+                break;
+            case Visibility:
+                vo.setVisibility(value);
+                break;
+            case Dew_point_temperature:
+                vo.setDewPointTemperature(value);
+                break;
+            case Cloud_cover:
+                vo.setCloudCover(value);
+                break;
+            case PM2p5:
+                vo.setPm2p5(value);
+                break;
+            case PM10:
+                vo.setPm10(value);
+                break;
+            case CO:
+                vo.setCo(value);
+                break;
+            case SO2:
+                vo.setSo2(value);
+                break;
+            case O3:
+                vo.setO3(value);
+                break;
+            case NO2:
+                vo.setNo2(value);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 获取指标值
+     *
+     * @param vo        天气数据VO
+     * @param indicator 指标
+     * @return 指标值
+     */
+    public static String getIndicatorValue(WeatherDataVo vo, IndicatorEnum indicator) {
+        switch (indicator) {
+            case Temperature:
+                return vo.getTemperature();
+            case Perceived_temperature:
+                return vo.getPerceivedTemperature();
+            case Wind_speed:
+                return vo.getWindSpeed();
+            case Wind_direction:
+                return vo.getWindDirection();
+            case Relative_humidify:
+                return vo.getRelativeHumidify();
+            case Atmospheric_pressure:
+                return vo.getAtmosphericPressure();
+            case Precipitation:
+                return vo.getPrecipitation();
+            case Visibility:
+                return vo.getVisibility();
+            case Dew_point_temperature:
+                return vo.getDewPointTemperature();
+            case Cloud_cover:
+                return vo.getCloudCover();
+            case PM2p5:
+                return vo.getPm2p5();
+            case PM10:
+                return vo.getPm10();
+            case CO:
+                return vo.getCo();
+            case SO2:
+                return vo.getSo2();
+            case O3:
+                return vo.getO3();
+            case NO2:
+                return vo.getNo2();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 将 WeatherData 列表转换为 WeatherDataVo 列表（按 collectTime 分组）
+     * <p>
+     * 将多个 WeatherData 对象（同一时间点的不同指标）合并为一个 WeatherDataVo 对象
+     * 每个 WeatherDataVo 代表一个 collectTime 的所有指标值
+     *
+     * @param weatherDataList 天气数据列表
+     * @return 天气数据VO列表（按 collectTime 分组）
+     */
+    public static List<WeatherDataVo> convertToWeatherDataVoList(List<WeatherData> weatherDataList) {
+        if (weatherDataList == null || weatherDataList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 按 collectTime 分组
+        Map<LocalDateTime, WeatherDataVo> voMap = new HashMap<>();
+        for (WeatherData data : weatherDataList) {
+            LocalDateTime collectTime = data.getCollectTime();
+            WeatherDataVo vo = voMap.computeIfAbsent(collectTime, k -> {
+                WeatherDataVo newVo = new WeatherDataVo();
+                newVo.setStrategyId(data.getStrategyId());
+                newVo.setCityName(data.getCityName());
+                newVo.setLatitude(data.getLatitude());
+                newVo.setLongitude(data.getLongitude());
+                newVo.setCollectTime(collectTime);
+                return newVo;
+            });
+
+            // 根据指标名称设置对应的字段值
+            String indicatorName = data.getIndicatorName();
+            String indicatorValue = data.getIndicatorValue();
+            if (indicatorName != null && indicatorValue != null) {
+                IndicatorEnum indicator = IndicatorEnum.getByName(indicatorName);
+                if (indicator != null) {
+                    setIndicatorValue(vo, indicator, indicatorValue);
+                } else {
+                    log.warn("未知的指标名称: {}", indicatorName);
+                }
+            }
+        }
+
+        // 转换为列表并按 collectTime 降序排列
+        List<WeatherDataVo> result = new ArrayList<>(voMap.values());
+        result.sort((a, b) -> {
+            if (a.getCollectTime() == null && b.getCollectTime() == null) {
+                return 0;
+            }
+            if (a.getCollectTime() == null) {
+                return 1;
+            }
+            if (b.getCollectTime() == null) {
+                return -1;
+            }
+            return b.getCollectTime().compareTo(a.getCollectTime());
+        });
+        return result;
+    }
+}
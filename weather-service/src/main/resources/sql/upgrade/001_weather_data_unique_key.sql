@@ -0,0 +1,16 @@
+-- weather_data 唯一键：同一策略、同一采集时间、同一指标只保留一行，供预报数据 upsert（INSERT ... ON CONFLICT）使用
+
+-- 1. 清理历史重复数据（保留每组中创建时间最新的一行）
+DELETE FROM weather_data d
+USING (
+    SELECT id,
+           ROW_NUMBER() OVER (PARTITION BY strategy_id, collect_time, indicator_name
+                              ORDER BY create_time DESC NULLS LAST, id DESC) AS rn
+    FROM weather_data
+) dup
+WHERE d.id = dup.id
+  AND dup.rn > 1;
+
+-- 2. 创建唯一索引（CONCURRENTLY 不阻塞写入，不能在事务块中执行）
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_weather_data_strategy_time_indicator
+    ON weather_data (strategy_id, collect_time, indicator_name);
@@ -0,0 +1,32 @@
+-- weather_data 增加数值列和分类编码列，统计查询不再需要对 indicator_value 做文本转换
+
+-- 1. 新增列（不带默认值，PostgreSQL 只修改元数据，不重写表）
+ALTER TABLE weather_data ADD COLUMN IF NOT EXISTS indicator_num DOUBLE PRECISION;
+ALTER TABLE weather_data ADD COLUMN IF NOT EXISTS indicator_code SMALLINT;
+
+COMMENT ON COLUMN weather_data.indicator_num IS '指标数值（风向为风向角度）';
+COMMENT ON COLUMN weather_data.indicator_code IS '分类指标编码（风向：0-北风 1-东北风 2-东风 3-东南风 4-南风 5-西南风 6-西风 7-西北风 8-旋转风 9-无持续风向）';
+
+-- 2. 回填数值指标（数据量大时可按 collect_time 分段执行，避免长事务）
+UPDATE weather_data
+SET indicator_num = indicator_value::DOUBLE PRECISION
+WHERE indicator_name <> 'Wind_direction'
+  AND indicator_num IS NULL
+  AND indicator_value ~ '^\s*[-+]?[0-9]+(\.[0-9]+)?([eE][-+]?[0-9]+)?\s*$';
+
+-- 3. 回填风向编码（历史数据没有风向角度，只回填编码）
+UPDATE weather_data
+SET indicator_code = CASE TRIM(indicator_value)
+                         WHEN '北风' THEN 0
+                         WHEN '东北风' THEN 1
+                         WHEN '东风' THEN 2
+                         WHEN '东南风' THEN 3
+                         WHEN '南风' THEN 4
+                         WHEN '西南风' THEN 5
+                         WHEN '西风' THEN 6
+                         WHEN '西北风' THEN 7
+                         WHEN '旋转风' THEN 8
+                         WHEN '无持续风向' THEN 9
+                     END
+WHERE indicator_name = 'Wind_direction'
+  AND indicator_code IS NULL;
@@ -0,0 +1,51 @@
+-- weather_data 改为按 collect_time 范围分区（按月）
+-- 说明：
+--   1. 分区表的主键和唯一索引必须包含分区键，主键改为 (id, collect_time)
+--   2. 迁移期间需停止采集任务；数据量大时 INSERT ... SELECT 可按月分段执行
+--   3. 迁移完成后开启 collect.partition.enabled，由 WeatherDataPartitionManager 维护后续分区
+--   4. 本脚本按月创建分区，对应 collect.partition.interval=month（默认）。如需按周分区，必须先将下方分区改为按周创建
+--      （分区名 weather_data_wyyyyMMdd，周一开始）再执行，然后配置 collect.partition.interval=week；
+--      已按月分区后直接改为 week 会与现有月分区重叠，WeatherDataPartitionManager 会拒绝创建分区
+--   5. 旧表的唯一索引和主键索引同时改名，避免与新表索引重名
+
+BEGIN;
+
+ALTER TABLE weather_data RENAME TO weather_data_legacy;
+ALTER INDEX uk_weather_data_strategy_time_indicator RENAME TO uk_weather_data_legacy_strategy_time_indicator;
+ALTER INDEX IF EXISTS weather_data_pkey RENAME TO weather_data_legacy_pkey;
+
+CREATE TABLE weather_data (
+    LIKE weather_data_legacy INCLUDING DEFAULTS INCLUDING COMMENTS,
+    PRIMARY KEY (id, collect_time)
+) PARTITION BY RANGE (collect_time);
+
+CREATE UNIQUE INDEX uk_weather_data_strategy_time_indicator
+    ON weather_data (strategy_id, collect_time, indicator_name);
+
+-- 默认分区：兜底未预先创建分区的数据，正常情况下应为空
+CREATE TABLE weather_data_default PARTITION OF weather_data DEFAULT;
+
+-- 为已有数据及未来3个月创建按月分区（分区名：weather_data_pyyyyMM）
+DO $$
+DECLARE
+    month_start DATE;
+    last_month  DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(collect_time)), date_trunc('month', now()))::DATE
+    INTO month_start
+    FROM weather_data_legacy;
+    last_month := (date_trunc('month', now()) + INTERVAL '3 month')::DATE;
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF weather_data FOR VALUES FROM (%L) TO (%L)',
+                       'weather_data_p' || to_char(month_start, 'YYYYMM'),
+                       month_start, (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO weather_data SELECT * FROM weather_data_legacy;
+
+COMMIT;
+
+-- 确认数据无误后删除旧表
+-- DROP TABLE weather_data_legacy;
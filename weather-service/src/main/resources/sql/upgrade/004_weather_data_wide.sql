@@ -0,0 +1,63 @@
+-- 天气数据宽表：每个 (策略, 采集时间) 一行，每个指标一列，查询历史数据时不再需要按 collect_time 聚合行转列
+-- 说明：
+--   1. 宽表由 WeatherDataWriter 在写入 weather_data 的同一事务内维护（collect.wide-table.enabled=true）
+--   2. 执行本脚本回填已有数据后，再开启 collect.wide-table.read-enabled，历史查询改为读取宽表
+--   3. 数值指标为 DOUBLE PRECISION（取自 indicator_num），风向为文本
+
+CREATE TABLE IF NOT EXISTS weather_data_wide (
+    strategy_id           TEXT         NOT NULL,
+    collect_time          TIMESTAMP    NOT NULL,
+    city_name             TEXT,
+    latitude              DOUBLE PRECISION,
+    longitude             DOUBLE PRECISION,
+    temperature           DOUBLE PRECISION,
+    perceived_temperature DOUBLE PRECISION,
+    wind_speed            DOUBLE PRECISION,
+    wind_direction        TEXT,
+    relative_humidify     DOUBLE PRECISION,
+    atmospheric_pressure  DOUBLE PRECISION,
+    precipitation         DOUBLE PRECISION,
+    visibility            DOUBLE PRECISION,
+    dew_point_temperature DOUBLE PRECISION,
+    cloud_cover           DOUBLE PRECISION,
+    pm2p5                 DOUBLE PRECISION,
+    pm10                  DOUBLE PRECISION,
+    co                    DOUBLE PRECISION,
+    so2                   DOUBLE PRECISION,
+    o3                    DOUBLE PRECISION,
+    no2                   DOUBLE PRECISION,
+    PRIMARY KEY (strategy_id, collect_time)
+);
+
+COMMENT ON TABLE weather_data_wide IS '天气数据宽表（由 weather_data 行转列得到）';
+
+-- 回填已有数据（数据量大时可按 collect_time 分段执行）
+INSERT INTO weather_data_wide (strategy_id, collect_time, city_name, latitude, longitude,
+                               temperature, perceived_temperature, wind_speed, wind_direction,
+                               relative_humidify, atmospheric_pressure, precipitation, visibility,
+                               dew_point_temperature, cloud_cover, pm2p5, pm10, co, so2, o3, no2)
+SELECT strategy_id,
+       collect_time,
+       MAX(city_name),
+       MAX(latitude),
+       MAX(longitude),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Temperature'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Perceived_temperature'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Wind_speed'),
+       MAX(indicator_value) FILTER (WHERE indicator_name = 'Wind_direction'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Relative_humidify'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Atmospheric_pressure'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Precipitation'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Visibility'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Dew_point_temperature'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'Cloud_cover'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'PM2p5'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'PM10'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'CO'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'SO2'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'O3'),
+       MAX(indicator_num) FILTER (WHERE indicator_name = 'NO2')
+FROM weather_data
+WHERE del_flag = 0
+GROUP BY strategy_id, collect_time
+ON CONFLICT (strategy_id, collect_time) DO NOTHING;
@@ -0,0 +1,47 @@
+-- 天气数据汇总表：按小时/天/周时间桶汇总每个指标的最小值、最大值、平均值和最后一个值，长时间范围查询不再读取全部原始数据
+-- 说明：
+--   1. 汇总表由 WeatherDataWriter 在写入 weather_data 的同一事务内增量维护（collect.rollup.enabled=true），
+--      只重新计算本次写入涉及的时间桶
+--   2. 执行本脚本回填已有数据后再开启 collect.rollup.enabled
+--   3. 周时间桶从周一开始（PostgreSQL date_trunc('week', ...)）
+
+CREATE TABLE IF NOT EXISTS weather_data_rollup (
+    strategy_id    TEXT             NOT NULL,
+    resolution     TEXT             NOT NULL,
+    bucket_time    TIMESTAMP        NOT NULL,
+    indicator_name TEXT             NOT NULL,
+    city_name      TEXT,
+    latitude       DOUBLE PRECISION,
+    longitude      DOUBLE PRECISION,
+    min_value      DOUBLE PRECISION,
+    max_value      DOUBLE PRECISION,
+    avg_value      DOUBLE PRECISION,
+    last_value     TEXT,
+    sample_count   INTEGER          NOT NULL,
+    PRIMARY KEY (strategy_id, resolution, bucket_time, indicator_name)
+);
+
+COMMENT ON TABLE weather_data_rollup IS '天气数据汇总表（按时间桶汇总 weather_data）';
+COMMENT ON COLUMN weather_data_rollup.resolution IS '时间粒度：hour、day、week';
+COMMENT ON COLUMN weather_data_rollup.last_value IS '时间桶内最后一个值（原始字符串值）';
+
+-- 回填已有数据（数据量大时可按 collect_time 分段执行）
+INSERT INTO weather_data_rollup (strategy_id, resolution, bucket_time, indicator_name, city_name, latitude, longitude,
+                                 min_value, max_value, avg_value, last_value, sample_count)
+SELECT d.strategy_id,
+       r.resolution,
+       date_trunc(r.resolution, d.collect_time),
+       d.indicator_name,
+       MAX(d.city_name),
+       MAX(d.latitude),
+       MAX(d.longitude),
+       MIN(d.indicator_num),
+       MAX(d.indicator_num),
+       AVG(d.indicator_num),
+       (ARRAY_AGG(d.indicator_value ORDER BY d.collect_time DESC))[1],
+       COUNT(*)
+FROM weather_data d
+         CROSS JOIN (VALUES ('hour'), ('day'), ('week')) AS r (resolution)
+WHERE d.del_flag = 0
+GROUP BY d.strategy_id, r.resolution, date_trunc(r.resolution, d.collect_time), d.indicator_name
+ON CONFLICT (strategy_id, resolution, bucket_time, indicator_name) DO NOTHING;
@@ -0,0 +1,5 @@
+-- weather_strategy 需求名称索引：批量导入时按 demand_name = ANY(...) 一次查询已存在的需求名称
+
+CREATE INDEX IF NOT EXISTS idx_weather_strategy_demand_name
+    ON weather_strategy (demand_name)
+    WHERE del_flag = 0;
@@ -0,0 +1,4 @@
+-- weather_strategy 修改时间索引：策略注册表按 COALESCE(update_time, create_time) 增量刷新
+
+CREATE INDEX IF NOT EXISTS idx_weather_strategy_change_time
+    ON weather_strategy ((COALESCE(update_time, create_time)));
@@ -0,0 +1,11 @@
+-- 采集节点表：多节点部署时各节点定时写入心跳，存活节点按一致性哈希分摊采集策略
+-- 心跳时间使用数据库时间，不受各节点时钟偏差影响
+
+CREATE TABLE IF NOT EXISTS collect_node (
+    node_id        VARCHAR(128) PRIMARY KEY,
+    host           VARCHAR(255),
+    start_time     TIMESTAMP NOT NULL DEFAULT now(),
+    heartbeat_time TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_collect_node_heartbeat_time ON collect_node (heartbeat_time);